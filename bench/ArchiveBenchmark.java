@@ -0,0 +1,93 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Benchmark of game archives: writes random 7x6 games to a game record
+ * file, builds its position index on 1 thread and on the given number,
+ * and times lookups of positions from the archived games.
+ *
+ * Run with the number of games and threads, and optionally a directory
+ * for the files, which are deleted at the end:
+ *   java -cp ./bin:./bench ArchiveBenchmark [games] [threads] [directory]
+ */
+public class ArchiveBenchmark {
+
+	private static final int DEFAULT_GAMES = 1000000;
+	private static final int LOOKUPS = 1000000;
+
+	public static void main(String[] args) throws IOException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		File directory = args.length > 2 ? new File(args[2]) : null;
+		File file = File.createTempFile("archive", ".c4g", directory);
+		File indexFile = GameIndex.indexFileOf(file);
+		try {
+			long start = System.nanoTime();
+			Board board = new Board(7, 6, 4);
+			Player player = new RandomPlayer(1);
+			try (GameRecordWriter writer = new GameRecordWriter(file, false)) {
+				for (int i = 0; i < games; i++) {
+					board.reset();
+					int turn = 1;
+					while (board.play(player.chooseMove(board, turn), turn) == Board.Outcome.ONGOING) {
+						turn = 3 - turn;
+					}
+					writer.write(board);
+				}
+			}
+			System.out.printf("Wrote %d games, %d bytes, in %.1f ms%n", games, file.length(),
+												(System.nanoTime() - start) / 1e6);
+
+			long positions = 0;
+			for (int buildThreads : threads > 1 ? new int[] {1, threads} : new int[] {1}) {
+				start = System.nanoTime();
+				positions = GameIndex.build(file, indexFile, buildThreads);
+				double millis = (System.nanoTime() - start) / 1e6;
+				System.out.printf("Indexed %d positions on %d thread%s in %.1f ms: %.0f positions/sec, %d bytes%n",
+													positions, buildThreads, buildThreads == 1 ? "" : "s", millis,
+													positions / (millis / 1e3), indexFile.length());
+			}
+
+			try (GameRecordReader reader = new GameRecordReader(file); GameIndex index = new GameIndex(indexFile)) {
+				long[] offsets = new long[games];
+				for (int i = 0; reader.next(); i++) {
+					offsets[i] = reader.getOffset();
+				}
+				// Few games share a position late in a game, many early on.
+				timeLookups("after move 10 or later", LOOKUPS, reader, index, offsets, board, 10, Integer.MAX_VALUE);
+				timeLookups("after moves 1 to 4", LOOKUPS / 100, reader, index, offsets, board, 1, 4);
+			}
+		} finally {
+			file.delete();
+			indexFile.delete();
+		}
+	}
+
+	// Time lookups of positions of random archived games, each after a
+	// random number of moves from first to last.
+	private static void timeLookups(String label, int count, GameRecordReader reader, GameIndex index,
+																	long[] offsets, Board board, int first, int last) throws IOException {
+		Random random = new Random(2);
+		long[] keys = new long[count];
+		for (int i = 0; i < keys.length; i++) {
+			do {
+				reader.seek(offsets[random.nextInt(offsets.length)]);
+			} while (reader.getMoveCount() < first);
+			int ply = first + random.nextInt(Math.min(last, reader.getMoveCount()) - first + 1);
+			board.reset();
+			for (int move = 0; move < ply; move++) {
+				board.placeTile(reader.getMove(move), 1 + move % 2);
+			}
+			keys[i] = board.hash();
+		}
+		long found = 0;
+		long start = System.nanoTime();
+		for (long key : keys) {
+			found += index.lookup(key).length;
+		}
+		long nanos = System.nanoTime() - start;
+		System.out.printf("%d lookups of positions %s in %.1f ms: %.0f ns each, %.1f games found on average%n",
+											keys.length, label, nanos / 1e6, (double) nanos / keys.length, (double) found / keys.length);
+	}
+}
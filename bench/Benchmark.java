@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal microbenchmark harness for the Connect-Four-Cli hot paths.
+ *
+ * Each benchmark is an operation run in a loop for a fixed time, first
+ * for some warmup iterations so the JIT compiler has settled, then for
+ * measured iterations whose average time per operation is reported with
+ * its spread. Operations return a value that is folded into a sink, so
+ * the JIT cannot remove the work as dead code.
+ */
+public class Benchmark {
+	
+	/**
+	 * Work to be timed. Should be small and return something computed from its work.
+	 */
+	public interface Operation {
+		long run();
+	}
+	
+	// Default iteration counts and lengths.
+	public static final int WARMUP_ITERATIONS = 5;
+	public static final int MEASURED_ITERATIONS = 5;
+	public static final long ITERATION_MILLIS = 1000;
+	
+	private final int warmupIterations;
+	private final int measuredIterations;
+	private final long iterationNanos;
+	private final List<String> names = new ArrayList<String>();
+	private final List<Operation> operations = new ArrayList<Operation>();
+	private long sink;
+	
+	/**
+	 * Creates a harness.
+	 * @param warmupIterations number of iterations run before measuring
+	 * @param measuredIterations number of iterations measured
+	 * @param iterationMillis length of each iteration in milliseconds
+	 */
+	public Benchmark(int warmupIterations, int measuredIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measuredIterations = measuredIterations;
+		iterationNanos = iterationMillis * 1000000L;
+	}
+	
+	/**
+	 * Adds a benchmark to run.
+	 * @param name name reported for the benchmark
+	 * @param operation the work timed
+	 */
+	public void add(String name, Operation operation) {
+		names.add(name);
+		operations.add(operation);
+	}
+	
+	/**
+	 * Runs every benchmark whose name contains filter, printing a line of
+	 * results for each.
+	 * @param filter part of the names of the benchmarks to run, or "" for all
+	 */
+	public void run(String filter) {
+		System.out.printf("%-40s %14s %10s %16s%n", "Benchmark", "ns/op", "error", "ops/sec");
+		for (int i = 0; i < names.size(); i++) {
+			if (names.get(i).contains(filter)) {
+				measure(names.get(i), operations.get(i));
+			}
+		}
+		// Printing the sink keeps it alive.
+		System.out.println("(sink " + (sink & 0xF) + ")");
+	}
+	
+	// Run warmup and measured iterations of the operation and print its results.
+	private void measure(String name, Operation operation) {
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(operation);
+		}
+		double[] nanosPerOp = new double[measuredIterations];
+		double mean = 0;
+		for (int i = 0; i < measuredIterations; i++) {
+			nanosPerOp[i] = iteration(operation);
+			mean += nanosPerOp[i] / measuredIterations;
+		}
+		double variance = 0;
+		for (double value : nanosPerOp) {
+			variance += (value - mean) * (value - mean) / Math.max(1, measuredIterations - 1);
+		}
+		System.out.printf("%-40s %14.2f %10.2f %16.0f%n", name, mean, Math.sqrt(variance), 1e9 / mean);
+	}
+	
+	// Run the operation for one iteration's time, checking the clock every
+	// so many operations, and return the average time per operation.
+	private double iteration(Operation operation) {
+		long operations = 0;
+		long batch = 1;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (long i = 0; i < batch; i++) {
+				sink += operation.run();
+			}
+			operations += batch;
+			elapsed = System.nanoTime() - start;
+			if (batch < 1 << 16) {
+				batch *= 2;
+			}
+		} while (elapsed < iterationNanos);
+		return (double) elapsed / operations;
+	}
+}
@@ -0,0 +1,355 @@
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Benchmarks of the Connect-Four-Cli hot paths: placing tiles, win
+ * checks, rendering and reading the board, whole random games, the
+ * command decoding and dispatch of ConnectFour, opening book lookups, and
+ * Monte Carlo tree searches.
+ *
+ * Run with an optional part of the names of the benchmarks to run, and
+ * "--quick" for shorter iterations when only a rough number is needed:
+ *   java -cp ./bin:./bench BoardBenchmark [filter] [--quick]
+ */
+public class BoardBenchmark {
+	
+	// Number of recorded random games replayed by the placement benchmarks.
+	private static final int RECORDED_GAMES = 1024;
+	
+	// Commands sent through ConnectFour per dispatch benchmark operation.
+	private static final int DISPATCHED_COMMANDS = 1000;
+	
+	// The command lines of testFileWin.txt, the malformed ones included.
+	private static final String[] WIN_SCRIPT = {
+		"slfkdslfj", "PUT akdfjsdj", "PUT 5", "BOARD", "GET", "PUT 1", "PUT 1", "PUT 2", "PUT 1", "PUT 3", "PUT 1",
+		"PUT 4", "GET", "BOARD", "EXIT"
+	};
+	
+	// Playouts per Monte Carlo tree search benchmark operation.
+	private static final int MCTS_PLAYOUTS = 1000;
+	
+	public static void main(String[] args) {
+		String filter = "";
+		boolean quick = false;
+		for (String arg : args) {
+			if (arg.equals("--quick")) {
+				quick = true;
+			} else {
+				filter = arg;
+			}
+		}
+		Benchmark benchmark = quick ? new Benchmark(2, 3, 200)
+				: new Benchmark(Benchmark.WARMUP_ITERATIONS, Benchmark.MEASURED_ITERATIONS, Benchmark.ITERATION_MILLIS);
+		addBoardBenchmarks(benchmark);
+		addDecodeBenchmarks(benchmark);
+		addDispatchBenchmark(benchmark);
+		addBookBenchmark(benchmark);
+		addMctsBenchmarks(benchmark);
+		benchmark.run(filter);
+	}
+	
+	private static void addBoardBenchmarks(Benchmark benchmark) {
+		int[][] games = recordRandomGames(7, 6, 4, RECORDED_GAMES, 1);
+		
+		// One placeTile per operation, replaying recorded games and starting
+		// a new one whenever a game is over.
+		benchmark.add("placeTile 7x6", new Benchmark.Operation() {
+			private final Board board = new Board(7, 6, 4);
+			private int game;
+			private int move;
+			
+			@Override
+			public long run() {
+				if (move == games[game].length) {
+					board.reset();
+					game = (game + 1) % games.length;
+					move = 0;
+				}
+				return board.placeTile(games[game][move], 1 + move++ % 2) ? 1 : 0;
+			}
+		});
+		
+		// Make and unmake one move, as a search does, on a half filled board.
+		benchmark.add("placeTile+undoMove 7x6", new Benchmark.Operation() {
+			private final Board board = playedBoard(7, 6, 4, games[0], games[0].length / 2);
+			private int column;
+			
+			@Override
+			public long run() {
+				column = column % 7 + 1;
+				if (board.placeTile(column, 1)) {
+					board.undoMove();
+					return column;
+				}
+				return 0;
+			}
+		});
+		
+		for (int percent = 0; percent <= 100; percent += 50) {
+			int moves = games[1].length * percent / 100;
+			Board board = playedBoard(7, 6, 4, games[1], moves);
+			benchmark.add("isWinState 7x6 " + percent + "% of game", () -> board.isWinState(1) ? 1 : 0);
+		}
+		
+		Board smallBoard = playedBoard(4, 4, 4, new int[] {1, 2, 3, 4, 4, 3, 2, 1}, 8);
+		benchmark.add("toString 4x4", () -> smallBoard.toString().length());
+		Board standardBoard = playedBoard(7, 6, 4, games[2], games[2].length / 2);
+		benchmark.add("toString 7x6 half full", () -> standardBoard.toString().length());
+		
+		// Drawing a changed board, as after every move: a tile is placed or
+		// taken back before each toString, so the drawing cannot be reused.
+		Board changingBoard = playedBoard(7, 6, 4, games[2], games[2].length / 2);
+		benchmark.add("toString 7x6 after a move", new Benchmark.Operation() {
+			private boolean placed;
+			
+			@Override
+			public long run() {
+				if (placed) {
+					changingBoard.undoMove();
+				} else {
+					changingBoard.placeTile(games[2][games[2].length / 2], 1);
+				}
+				placed = !placed;
+				return changingBoard.toString().length();
+			}
+		});
+		
+		// The same, rendered straight into a reused Writer with no String made.
+		CharArrayWriter renderOut = new CharArrayWriter();
+		benchmark.add("render 7x6 after a move", new Benchmark.Operation() {
+			private boolean placed;
+			
+			@Override
+			public long run() {
+				if (placed) {
+					changingBoard.undoMove();
+				} else {
+					changingBoard.placeTile(games[2][games[2].length / 2], 1);
+				}
+				placed = !placed;
+				renderOut.reset();
+				try {
+					changingBoard.render(renderOut);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return renderOut.size();
+			}
+		});
+		
+		Board fullGame = playedBoard(7, 6, 4, games[3], games[3].length);
+		benchmark.add("getMoves 7x6 whole game", () -> {
+			long sum = 0;
+			for (int move : fullGame.getMoves()) {
+				sum += move;
+			}
+			return sum;
+		});
+		benchmark.add("getMove 7x6 whole game", () -> {
+			long sum = 0;
+			for (int i = 0; i < fullGame.getMoveCount(); i++) {
+				sum += fullGame.getMove(i);
+			}
+			return sum;
+		});
+		
+		// A whole game between random players per operation.
+		benchmark.add("random playout 7x6", new Benchmark.Operation() {
+			private final Board board = new Board(7, 6, 4);
+			private final Player player = new RandomPlayer(2);
+			
+			@Override
+			public long run() {
+				board.reset();
+				int turn = 1;
+				while (board.play(player.chooseMove(board, turn), turn) == Board.Outcome.ONGOING) {
+					turn = 3 - turn;
+				}
+				return board.getMoveCount();
+			}
+		});
+	}
+	
+	// Decoding every line of testFileWin.txt into its command word and
+	// column, as GameSession once did and with a reused Command.
+	private static void addDecodeBenchmarks(Benchmark benchmark) {
+		benchmark.add("decode testFileWin.txt by split", () -> {
+			long sum = 0;
+			for (String line : WIN_SCRIPT) {
+				sum += splitDecode(line);
+			}
+			return sum;
+		});
+		Command command = new Command();
+		benchmark.add("decode testFileWin.txt by Command", () -> {
+			long sum = 0;
+			for (String line : WIN_SCRIPT) {
+				command.parse(line);
+				int column = (command.getType() == Command.Type.PUT && command.hasNumber()) ? command.getNumber() : -1;
+				sum += command.getType().ordinal() + column + command.getWordCount();
+			}
+			return sum;
+		});
+	}
+	
+	// Decode a line as GameSession did before it used Command: split into a
+	// new array of words, a switch on the first, and the column parsed with
+	// Integer.parseInt, catching its exception for a malformed one.
+	private static long splitDecode(String line) {
+		String[] tokens = line.split(" ");
+		if (tokens.length == 0) {
+			return 0;
+		}
+		Command.Type type;
+		switch (tokens[0]) {
+		case GameSession.PLACE_TOKEN_COMMAND:
+			type = Command.Type.PUT;
+			break;
+		case GameSession.GET_MOVES_COMMAND:
+			type = Command.Type.GET;
+			break;
+		case GameSession.VIEW_BOARD_COMMAND:
+			type = Command.Type.BOARD;
+			break;
+		case GameSession.EXIT_GAME_COMMAND:
+			type = Command.Type.EXIT;
+			break;
+		default:
+			type = Command.Type.UNKNOWN;
+			break;
+		}
+		int column = -1;
+		if (type == Command.Type.PUT && tokens.length == 2) {
+			try {
+				column = Integer.parseInt(tokens[1]);
+			} catch (NumberFormatException e) {
+				column = -1;
+			}
+		}
+		return type.ordinal() + column + tokens.length;
+	}
+	
+	// Time ConnectFour.main reading a script of commands, with its output thrown away
+	// or written to a file.
+	private static void addDispatchBenchmark(Benchmark benchmark) {
+		String[] commands = {"PUT 1", "PUT 2", "GET", "BOARD", "PUT x", "PUT 9", "UNDO", "HELLO"};
+		StringBuilder script = new StringBuilder();
+		for (int i = 0; i < DISPATCHED_COMMANDS; i++) {
+			script.append(commands[i % commands.length]).append('\n');
+		}
+		byte[] input = script.toString().getBytes();
+		PrintStream discard = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		String[] options = {"--columns", "7", "--rows", "6"};
+		benchmark.add("ConnectFour dispatch x" + DISPATCHED_COMMANDS, () -> dispatch(input, discard, options));
+		
+		// The same with output written to a file, rewritten for every operation,
+		// as the integration tests do, so every write the command loop makes
+		// reaches the operating system.
+		File output;
+		try {
+			output = File.createTempFile("dispatch", ".txt");
+			output.deleteOnExit();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		benchmark.add("ConnectFour dispatch x" + DISPATCHED_COMMANDS + " to file", () -> {
+			try (PrintStream file = new PrintStream(new FileOutputStream(output))) {
+				return dispatch(input, file, options);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+	
+	// Run ConnectFour.main on the input with its output sent to out.
+	private static long dispatch(byte[] input, PrintStream out, String[] options) {
+		InputStream stdin = System.in;
+		PrintStream stdout = System.out;
+		System.setIn(new ByteArrayInputStream(input));
+		System.setOut(out);
+		try {
+			ConnectFour.main(options);
+		} finally {
+			System.setIn(stdin);
+			System.setOut(stdout);
+		}
+		return input.length;
+	}
+	
+	// Choosing a move early in a 4x4 game by searching, and by looking it up in an opening book.
+	private static void addBookBenchmark(Benchmark benchmark) {
+		OpeningBook book;
+		try {
+			File file = File.createTempFile("opening", ".book");
+			file.deleteOnExit();
+			OpeningBook.build(4, 4, 4, 4, file, 1);
+			book = new OpeningBook(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Board board = playedBoard(4, 4, 4, new int[] {1, 2}, 2);
+		benchmark.add("Solver 4x4 after 2 moves", () -> new Solver(10, 1000).findBestMove(board, 1));
+		benchmark.add("OpeningBook 4x4 after 2 moves", () -> book.getMove(board));
+	}
+	
+	// One search per operation from alternate positions, so that no tree is reused,
+	// on one thread and on every core.
+	private static void addMctsBenchmarks(Benchmark benchmark) {
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads : cores > 1 ? new int[] {1, cores} : new int[] {1}) {
+			benchmark.add("MctsPlayer " + MCTS_PLAYOUTS + " playouts 7x6 on " + threads + " thread" + (threads == 1 ? "" : "s"),
+										new Benchmark.Operation() {
+				private final MctsPlayer player = new MctsPlayer(Long.MAX_VALUE / 2000000, MCTS_PLAYOUTS, threads,
+																												 MctsPlayer.DEFAULT_NODES, 4);
+				private final Board[] boards = {playedBoard(7, 6, 4, new int[] {3}, 1), playedBoard(7, 6, 4, new int[] {5}, 1)};
+				private int search;
+				
+				@Override
+				public long run() {
+					return player.chooseMove(boards[search++ % boards.length], 2);
+				}
+			});
+		}
+	}
+	
+	// Play games between random players and record their moves.
+	private static int[][] recordRandomGames(int columns, int rows, int connectLength, int count, long seed) {
+		int[][] games = new int[count][];
+		Board board = new Board(columns, rows, connectLength);
+		Player player = new RandomPlayer(seed);
+		for (int i = 0; i < count; i++) {
+			board.reset();
+			int turn = 1;
+			while (board.play(player.chooseMove(board, turn), turn) == Board.Outcome.ONGOING) {
+				turn = 3 - turn;
+			}
+			games[i] = new int[board.getMoveCount()];
+			board.copyMoves(games[i]);
+		}
+		return games;
+	}
+	
+	// Create a board with the first moves of a game played on it.
+	private static Board playedBoard(int columns, int rows, int connectLength, int[] game, int moves) {
+		Board board = new Board(columns, rows, connectLength);
+		for (int i = 0; i < moves; i++) {
+			board.placeTile(game[i], 1 + i % 2);
+		}
+		return board;
+	}
+}
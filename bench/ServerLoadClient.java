@@ -0,0 +1,242 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Load test of GameServer over the loopback interface. Each client thread
+ * opens two connections, creates a game on one and joins it on the other,
+ * and plays random games between them as fast as the server answers,
+ * starting a new game whenever one is over. The round trip time of every
+ * command is measured, and the throughput and latency percentiles of all
+ * the clients are printed at the end.
+ *
+ * With "--pipeline N" each move is sent together with N - 1 GET commands,
+ * and their responses read together, as a client that does not wait for
+ * each answer would. Latencies are then those of the whole batch.
+ *
+ * Run against a server already listening on a port, or with no port to
+ * start one in this process, NioGameServer if "--nio" is given:
+ *   java -cp ./bin:./bench ServerLoadClient [clients] [seconds] [port] [--nio] [--pipeline N]
+ */
+public class ServerLoadClient {
+
+	private static final int DEFAULT_CLIENTS = 4;
+	private static final int DEFAULT_SECONDS = 10;
+
+	// Round trip times kept per client for the percentiles; later ones are only counted.
+	private static final int LATENCY_SAMPLES = 1 << 20;
+
+	public static void main(String[] args) throws Exception {
+		List<Integer> numbers = new ArrayList<Integer>();
+		boolean nio = false;
+		int pipeline = 1;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--nio")) {
+				nio = true;
+			} else if (args[i].equals("--pipeline")) {
+				pipeline = Integer.parseInt(args[++i]);
+			} else {
+				numbers.add(Integer.parseInt(args[i]));
+			}
+		}
+		int clients = numbers.size() > 0 ? numbers.get(0) : DEFAULT_CLIENTS;
+		int seconds = numbers.size() > 1 ? numbers.get(1) : DEFAULT_SECONDS;
+		GameServer server = null;
+		NioGameServer nioServer = null;
+		int port;
+		if (numbers.size() > 2) {
+			port = numbers.get(2);
+		} else if (nio) {
+			nioServer = new NioGameServer(0, 7, 6, 4);
+			nioServer.start();
+			port = nioServer.getPort();
+		} else {
+			server = new GameServer(0, 7, 6, 4);
+			server.start();
+			port = server.getPort();
+		}
+
+		long deadline = System.nanoTime() + seconds * 1000000000L;
+		List<Client> running = new ArrayList<Client>();
+		for (int i = 0; i < clients; i++) {
+			Client client = new Client(port, deadline, pipeline, i);
+			client.start();
+			running.add(client);
+		}
+		long commands = 0;
+		long games = 0;
+		long[] latencies = new long[0];
+		for (Client client : running) {
+			client.join();
+			if (client.failure != null) {
+				throw client.failure;
+			}
+			commands += client.commands;
+			games += client.games;
+			int start = latencies.length;
+			latencies = Arrays.copyOf(latencies, start + client.samples);
+			System.arraycopy(client.latencies, 0, latencies, start, client.samples);
+		}
+		if (server != null) {
+			server.stop();
+		}
+		if (nioServer != null) {
+			nioServer.stop();
+		}
+
+		Arrays.sort(latencies);
+		System.out.printf("%d clients for %d s: %d games, %d commands, %.0f commands/sec%n", clients, seconds,
+											games, commands, commands / (double) seconds);
+		System.out.printf("Round trip latency%s: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+											pipeline > 1 ? " of " + pipeline + " commands" : "", percentile(latencies, 0.5),
+											percentile(latencies, 0.99), percentile(latencies, 0.999),
+											percentile(latencies, 1.0));
+	}
+
+	// The given fraction of the sorted latencies are at most the returned one, in microseconds.
+	private static double percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e3;
+	}
+
+	// Plays games between its two connections until the deadline.
+	private static class Client extends Thread {
+		private final int port;
+		private final long deadline;
+		private final int pipeline;
+		private final RandomPlayer randomPlayer;
+		private final long[] latencies = new long[LATENCY_SAMPLES];
+		private int samples;
+		private long commands;
+		private long games;
+		private Exception failure;
+
+		Client(int port, long deadline, int pipeline, long seed) {
+			this.port = port;
+			this.deadline = deadline;
+			this.pipeline = pipeline;
+			randomPlayer = new RandomPlayer(seed);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (System.nanoTime() - deadline < 0) {
+					playGame();
+				}
+			} catch (Exception e) {
+				failure = e;
+			}
+		}
+
+		// Play one random game, both connections exiting at its end.
+		private void playGame() throws IOException {
+			try (Connection first = new Connection(port); Connection second = new Connection(port)) {
+				String created = send(first, GameServer.CREATE_GAME_COMMAND, 1);
+				String id = created.substring(GameServer.GAME_MESSAGE.length() + 1).trim();
+				expect(send(second, GameServer.JOIN_GAME_COMMAND + " " + id, 1), GameSession.SUCCESS_MESSAGE);
+
+				// The client keeps its own copy of the board to choose moves from.
+				Board board = new Board(7, 6, 4);
+				Connection[] players = {first, second};
+				int player = 1;
+				while (true) {
+					int column = randomPlayer.chooseMove(board, player);
+					board.placeTile(column, player);
+					String response = send(players[player - 1], GameSession.PLACE_TOKEN_COMMAND + " " + column,
+																 pipeline).trim();
+					if (!response.equals(GameSession.SUCCESS_MESSAGE)) {
+						expect(response, board.isWinState(player) ? GameSession.WIN_MESSAGE : GameSession.DRAW_MESSAGE);
+						break;
+					}
+					player = GameSession.advanceToNextPlayer(player);
+				}
+				first.exit();
+				second.exit();
+				games++;
+			}
+		}
+
+		// Send a command, followed by GETs to make up the given number of
+		// commands, and wait for all their responses, timing the round trip.
+		// Returns the response to the first command.
+		private String send(Connection connection, String command, int count) throws IOException {
+			long start = System.nanoTime();
+			String response = connection.send(command, count);
+			long nanos = System.nanoTime() - start;
+			if (samples < latencies.length) {
+				latencies[samples++] = nanos;
+			}
+			commands += count;
+			return response;
+		}
+
+		private static void expect(String response, String expected) throws IOException {
+			if (!response.trim().equals(expected)) {
+				throw new IOException("Expected " + expected + " but the server sent " + response);
+			}
+		}
+	}
+
+	// A connection to the server, past its first prompt.
+	private static class Connection implements AutoCloseable {
+		private final Socket socket;
+		private final BufferedReader in;
+		private final OutputStream out;
+
+		Connection(int port) throws IOException {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			socket.setTcpNoDelay(true);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			out = socket.getOutputStream();
+			readResponse();
+		}
+
+		// Send a command line and count - 1 GETs, returning everything the
+		// server wrote before the next prompt for the first.
+		String send(String command, int count) throws IOException {
+			StringBuilder lines = new StringBuilder(command).append('\n');
+			for (int i = 1; i < count; i++) {
+				lines.append(GameSession.GET_MOVES_COMMAND).append('\n');
+			}
+			out.write(lines.toString().getBytes());
+			out.flush();
+			String response = readResponse();
+			for (int i = 1; i < count; i++) {
+				readResponse();
+			}
+			return response;
+		}
+
+		void exit() throws IOException {
+			out.write((GameSession.EXIT_GAME_COMMAND + "\n").getBytes());
+			out.flush();
+		}
+
+		private String readResponse() throws IOException {
+			StringBuilder response = new StringBuilder();
+			int c;
+			while ((c = in.read()) != GameServer.PROMPT.charAt(0)) {
+				if (c == -1) {
+					throw new IOException("Server closed the connection");
+				}
+				response.append((char) c);
+			}
+			return response.toString();
+		}
+
+		@Override
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+}
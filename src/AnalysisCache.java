@@ -0,0 +1,171 @@
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of the best move and value of positions, as solved by a
+ * Solver, shared by any number of games on any number of threads.
+ *
+ * Positions are kept by their Board.canonicalKey, so a position and its
+ * mirror image share an entry, with the move stored for the canonical
+ * orientation. The player to move is the one whose turn it is by the
+ * number of tiles on the board. Once the
+ * cache holds its capacity, each new position replaces the one used least
+ * recently. Searches are made outside the cache's lock, so one game's
+ * search does not hold up another's lookups.
+ */
+public class AnalysisCache {
+
+	// Default number of positions kept, each taking about 100 bytes.
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/**
+	 * The best move found from a position, and its value.
+	 */
+	public static class Analysis {
+		public final int move;				// column to play
+		public final int score;				// Solver score for the player to move
+		public final boolean solved;	// whether the score is exact
+
+		public Analysis(int move, int score, boolean solved) {
+			this.move = move;
+			this.score = score;
+			this.solved = solved;
+		}
+
+		/**
+		 * Describes the value of the position for the player to move.
+		 * @return "win", "loss", "draw", or "unclear" if the search found
+		 * 				 neither a forced result nor a draw
+		 */
+		public String describe() {
+			if (score > 0) {
+				return "win";
+			} else if (score < 0) {
+				return "loss";
+			}
+			return solved ? "draw" : "unclear";
+		}
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<Long, Analysis> entries;		// least recently used first, guarded by this
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates an empty cache.
+	 * @param capacity most positions to keep
+	 */
+	public AnalysisCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1, was " + capacity);
+		}
+		this.capacity = capacity;
+		entries = new LinkedHashMap<Long, Analysis>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Analysis> eldest) {
+				if (size() > AnalysisCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Finds the best move from the position on a board, from the cache if
+	 * it is there, otherwise by a search that is then kept if it solved the
+	 * position. A search cut short by its time budget is not kept, so that
+	 * it is not given to a game whose search would have gone deeper.
+	 * @param board board holding the position, with no player having won
+	 * 				 and at least one empty position; it is left as it was
+	 * @param player player to move
+	 * @param solver gives the solver to search with, asked only on a miss,
+	 * 				 since a solver's table is costly to make
+	 * @return the best move and its value
+	 */
+	public Analysis analyze(Board board, int player, Supplier<Solver> solver) {
+		Analysis analysis = get(board);
+		if (analysis == null) {
+			analysis = search(board, player, solver.get());
+			if (analysis.solved) {
+				put(board, analysis);
+			}
+		}
+		return analysis;
+	}
+
+	/**
+	 * Looks up a position, counting a hit or a miss.
+	 * @param board board holding the position
+	 * @return the analysis kept for it, or null if there is none
+	 */
+	public synchronized Analysis get(Board board) {
+		Analysis analysis = entries.get(board.canonicalKey());
+		if (analysis == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return board.isCanonicalMirrored() ? mirrored(board, analysis) : analysis;
+	}
+
+	/**
+	 * Keeps the analysis of a position, replacing the least recently used
+	 * position if the cache is full.
+	 * @param board board holding the position
+	 * @param analysis its analysis
+	 */
+	public synchronized void put(Board board, Analysis analysis) {
+		entries.put(board.canonicalKey(), board.isCanonicalMirrored() ? mirrored(board, analysis) : analysis);
+	}
+
+	/**
+	 * Finds the best move from a position by a search, without the cache.
+	 * @param board board holding the position, with no player having won
+	 * 				 and at least one empty position; it is left as it was
+	 * @param player player to move
+	 * @param solver solver to search with
+	 * @return the best move and its value
+	 */
+	public static Analysis search(Board board, int player, Solver solver) {
+		int move = solver.findBestMove(board, player);
+		return new Analysis(move, solver.getScore(), solver.isSolved());
+	}
+
+	// The analysis of the mirror image of the position on the board.
+	private static Analysis mirrored(Board board, Analysis analysis) {
+		return new Analysis(board.mirrorColumn(analysis.move), analysis.score, analysis.solved);
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Writes the number of positions kept and the lookups made so far.
+	 * @param out output for the report
+	 */
+	public synchronized void report(PrintStream out) {
+		long lookups = hits + misses;
+		out.printf("Analysis cache: %d of %d positions, %d hits, %d misses (%.1f%% hits), %d evictions%n",
+							 entries.size(), capacity, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups,
+							 evictions);
+	}
+}
@@ -0,0 +1,101 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+public class AnalysisCacheTest {
+
+	// Once full, the cache drops the position used least recently.
+	@Test
+	public void testLeastRecentlyUsedEvicted() {
+		AnalysisCache cache = new AnalysisCache(2);
+		Board first = played("1");
+		Board second = played("2");
+		Board third = played("3");
+		cache.put(first, new AnalysisCache.Analysis(1, 0, true));
+		cache.put(second, new AnalysisCache.Analysis(2, 0, true));
+		assertNotNull("should hold the first position", cache.get(first));
+		cache.put(third, new AnalysisCache.Analysis(3, 0, true));
+
+		assertEquals("should hold no more than its capacity", 2, cache.size());
+		assertEquals("should count the eviction", 1, cache.getEvictions());
+		assertNull("should drop the least recently used position", cache.get(second));
+		assertEquals("should keep the recently used position", 1, cache.get(first).move);
+		assertEquals("should keep the newest position", 3, cache.get(third).move);
+		assertEquals("should count the hits", 3, cache.getHits());
+		assertEquals("should count the misses", 1, cache.getMisses());
+	}
+
+	// A position is solved once, then answered from the cache with the same result.
+	@Test
+	public void testAnalyzeSearchesOnce() {
+		AnalysisCache cache = new AnalysisCache(AnalysisCache.DEFAULT_CAPACITY);
+		Board board = played(4, 4, "1,1,2,2,3");
+		Solver solver = new Solver(1000);
+		AnalysisCache.Analysis analysis = cache.analyze(board, 2, () -> solver);
+		assertTrue("should solve the position", analysis.solved);
+		assertEquals("should block the threat", 4, analysis.move);
+		assertEquals("should leave the board as it was", 5, board.getMoveCount());
+		assertEquals("should answer from the cache", analysis.move, cache.analyze(board, 2, () -> {
+			fail("should not need a solver for a position in the cache");
+			return null;
+		}).move);
+		assertEquals("should count one miss", 1, cache.getMisses());
+		assertEquals("should count one hit", 1, cache.getHits());
+	}
+
+	// A search cut short by its time budget is not kept for other games.
+	@Test
+	public void testUnsolvedNotKept() {
+		AnalysisCache cache = new AnalysisCache(AnalysisCache.DEFAULT_CAPACITY);
+		AnalysisCache.Analysis analysis = cache.analyze(played(7, 6, "4"), 2, () -> new Solver(0));
+		assertFalse("should not solve the opening in no time", analysis.solved);
+		assertEquals("should not keep the analysis", 0, cache.size());
+	}
+
+	// A position's mirror image is answered from the cache with the mirrored move.
+	@Test
+	public void testMirrorImageShared() {
+		AnalysisCache cache = new AnalysisCache(AnalysisCache.DEFAULT_CAPACITY);
+		cache.analyze(played(4, 4, "1,1,2,2,3"), 2, () -> new Solver(1000));
+		AnalysisCache.Analysis mirrored = cache.get(played(4, 4, "4,4,3,3,2"));
+		assertNotNull("should hold the mirror image", mirrored);
+		assertEquals("should block the mirrored threat", 1, mirrored.move);
+		assertEquals("should keep one position for both", 1, cache.size());
+		cache.put(played("1"), new AnalysisCache.Analysis(2, 0, true));
+		assertEquals("should mirror a move stored from either side", 6, cache.get(played("7")).move);
+	}
+
+	// The HINT command suggests a move without playing it.
+	@Test
+	public void testHintCommand() {
+		GameSession session = new GameSession(new Board(7, 6, 4), false, 0);
+		session.setAnalysisCache(new AnalysisCache(AnalysisCache.DEFAULT_CAPACITY));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes);
+		for (String command : new String[] {"PUT 1", "PUT 5", "PUT 2", "PUT 5", "PUT 3", "PUT 6", "HINT"}) {
+			session.execute(command, GameSession.ANY_PLAYER, out);
+		}
+		out.flush();
+		assertTrue("should suggest the winning column",
+							 bytes.toString().endsWith(GameSession.HINT_MESSAGE + "4, score " + session.hint().score + " (win)"
+																			 + System.lineSeparator()));
+		assertEquals("should not play the hint", 6, session.getBoard().getMoveCount());
+	}
+
+	// Board of the default 7x6 game with the given comma separated moves played.
+	private static Board played(String columns) {
+		return played(7, 6, columns);
+	}
+
+	// Board of the given size with the given comma separated moves played.
+	private static Board played(int columns, int rows, String moves) {
+		Board board = new Board(columns, rows, 4);
+		for (String column : moves.split(",")) {
+			board.placeTile(Integer.parseInt(column), 1 + board.getMoveCount() % 2);
+		}
+		return board;
+	}
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many files of commands, such as testFileWin.txt, as independent
+ * games in one program, in parallel, each as the command line game would
+ * play it with the file as its input.
+ *
+ * The output of each file is written to a file of the same name with its
+ * "test" prefix changed to "out" (or "out" added), and may be compared
+ * with the expected output in a file with the prefix "expected". EXIT
+ * ends only the game of the file it is in.
+ */
+public class BatchRunner {
+
+	public static final String INPUT_PREFIX = "test";
+	public static final String OUTPUT_PREFIX = "out";
+	public static final String EXPECTED_PREFIX = "expected";
+
+	private final int numColumns;
+	private final int numRows;
+	private final int connectLength;
+	private final boolean vsComputer;
+	private final long computerTimeMillis;
+	private final int threads;
+	private final File outputDirectory;
+	private final AnalysisCache analysisCache = new AnalysisCache(AnalysisCache.DEFAULT_CAPACITY);
+
+	/**
+	 * Outcome of playing one file of commands.
+	 */
+	public static class Result {
+		public final File input;
+		public final File output;
+		public final File expected;
+		public final boolean compared;	// whether there was an expected file to compare with
+		public final int differentLine;	// first line that differs from the expected output, from 1, or 0
+
+		Result(File input, File output, File expected, boolean compared, int differentLine) {
+			this.input = input;
+			this.output = output;
+			this.expected = expected;
+			this.compared = compared;
+			this.differentLine = differentLine;
+		}
+
+		public boolean matched() {
+			return compared && differentLine == 0;
+		}
+	}
+
+	/**
+	 * Creates a runner for games on boards of the given size.
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param vsComputer whether the computer plays player 2, as with --vs-ai
+	 * @param computerTimeMillis time the computer may take per move, in milliseconds
+	 * @param threads number of files to play at once
+	 * @param outputDirectory directory to write outputs to, or null to write
+	 * 				 each next to its input
+	 * @throws IllegalArgumentException if the dimensions are not valid
+	 */
+	public BatchRunner(int numColumns, int numRows, int connectLength, boolean vsComputer,
+										 long computerTimeMillis, int threads, File outputDirectory) {
+		// Check the dimensions now rather than on every thread.
+		new Board(numColumns, numRows, connectLength);
+		this.numColumns = numColumns;
+		this.numRows = numRows;
+		this.connectLength = connectLength;
+		this.vsComputer = vsComputer;
+		this.computerTimeMillis = computerTimeMillis;
+		this.threads = threads;
+		this.outputDirectory = outputDirectory;
+	}
+
+	/**
+	 * Lists the command files named by a comma separated list of files and
+	 * directories. A directory stands for every file in it whose name
+	 * starts with "test" and ends with ".txt", in name order.
+	 * @param paths files and directories
+	 * @return command files
+	 * @throws IOException if a directory could not be listed
+	 */
+	public static List<File> findInputs(String paths) throws IOException {
+		List<File> inputs = new ArrayList<File>();
+		for (String path : paths.split(",")) {
+			File file = new File(path);
+			if (file.isDirectory()) {
+				File[] files = file.listFiles((directory, name) -> name.startsWith(INPUT_PREFIX) && name.endsWith(".txt"));
+				if (files == null) {
+					throw new IOException("Could not list the directory " + file);
+				}
+				Arrays.sort(files);
+				inputs.addAll(Arrays.asList(files));
+			} else {
+				inputs.add(file);
+			}
+		}
+		return inputs;
+	}
+
+	/**
+	 * Plays every file of commands and writes its output.
+	 * @param inputs files of commands
+	 * @param compare whether to compare each output with its expected file
+	 * @return outcome of each file, in the order given
+	 * @throws IOException if a file could not be read or written
+	 */
+	public List<Result> run(List<File> inputs, boolean compare) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (File input : inputs) {
+				futures.add(executor.submit(() -> play(input, compare)));
+			}
+			List<Result> results = new ArrayList<Result>();
+			for (Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Batch interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Batch failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	// Play one file of commands as a new game, and compare its output if asked.
+	private Result play(File input, boolean compare) throws IOException {
+		File directory = (outputDirectory != null) ? outputDirectory : input.getAbsoluteFile().getParentFile();
+		File output = new File(directory, renamed(input.getName(), OUTPUT_PREFIX));
+		File expected = new File(input.getAbsoluteFile().getParentFile(), renamed(input.getName(), EXPECTED_PREFIX));
+
+		GameSession session = new GameSession(new Board(numColumns, numRows, connectLength), vsComputer,
+																					computerTimeMillis, true);
+		session.setAnalysisCache(analysisCache);
+		try (Scanner in = new Scanner(new FileInputStream(input));
+				 PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(output),
+																																		ConnectFour.OUTPUT_BUFFER_SIZE))) {
+			session.playCommands(in, out, false);
+			if (out.checkError()) {
+				throw new IOException("Could not write " + output);
+			}
+		}
+
+		if (!compare || !expected.isFile()) {
+			return new Result(input, output, expected, false, 0);
+		}
+		return new Result(input, output, expected, true, firstDifferentLine(output, expected));
+	}
+
+	// The file name with its input prefix replaced by the given one, or the
+	// given one added if it has none.
+	private static String renamed(String name, String prefix) {
+		if (name.startsWith(INPUT_PREFIX)) {
+			return prefix + name.substring(INPUT_PREFIX.length());
+		}
+		return prefix + name;
+	}
+
+	// The first line, from 1, at which two files differ, or 0 if they are the same.
+	private static int firstDifferentLine(File file, File other) throws IOException {
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		byte[] otherBytes = Files.readAllBytes(other.toPath());
+		int line = 1;
+		int length = Math.min(bytes.length, otherBytes.length);
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] != otherBytes[i]) {
+				return line;
+			}
+			if (bytes[i] == '\n') {
+				line++;
+			}
+		}
+		return bytes.length == otherBytes.length ? 0 : line;
+	}
+}
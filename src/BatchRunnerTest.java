@@ -0,0 +1,75 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchRunnerTest {
+
+	// Integration test files in the repository home directory.
+	private static final String[] TESTS = {"Win", "Draw", "Undo", "Computer"};
+
+	// Names the repository home directory, if the tests are not run from in it.
+	private static final String HOME_PROPERTY = "connectfour.home";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// Every integration test file gives its expected output, played together.
+	@Test
+	public void testIntegrationFiles() throws IOException {
+		for (String test : TESTS) {
+			copy("testFile" + test + ".txt");
+			copy("expectedFile" + test + ".txt");
+		}
+		BatchRunner runner = new BatchRunner(Board.NUM_COLUMNS, Board.NUM_ROWS, Board.CONNECT_LENGTH, false,
+																				 ConnectFour.DEFAULT_COMPUTER_TIME_MILLIS, 4, null);
+		List<BatchRunner.Result> results = runner.run(BatchRunner.findInputs(folder.getRoot().getPath()), true);
+		assertEquals("should find every test file", TESTS.length, results.size());
+		for (BatchRunner.Result result : results) {
+			assertTrue("should match " + result.expected.getName() + ", differs at line " + result.differentLine,
+								 result.matched());
+			assertTrue("should write " + result.output.getName(), result.output.getName().startsWith("outFile"));
+		}
+	}
+
+	// A different output is reported with the line it first differs at.
+	@Test
+	public void testDifferenceFound() throws IOException {
+		File input = folder.newFile("testFileShort.txt");
+		Files.write(input.toPath(), "PUT 1\nGET\nEXIT\nPUT 2\n".getBytes());
+		Files.write(folder.newFile("expectedFileShort.txt").toPath(), ">OK\n>2\n>".getBytes());
+		BatchRunner runner = new BatchRunner(4, 4, 4, false, 0, 1, null);
+		BatchRunner.Result result = runner.run(BatchRunner.findInputs(input.getPath()), true).get(0);
+		assertTrue("should compare with the expected file", result.compared);
+		assertEquals("should differ at the GET output", 2, result.differentLine);
+		assertEquals("should stop at EXIT", ">OK\n>1\n>", new String(Files.readAllBytes(result.output.toPath())));
+	}
+
+	private void copy(String name) throws IOException {
+		Files.copy(new File(home(), name).toPath(), new File(folder.getRoot(), name).toPath(),
+							 StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	// The repository home directory: the one named by HOME_PROPERTY, or else
+	// the nearest of the working directory and those above it that holds the
+	// integration test files.
+	private static File home() throws IOException {
+		String named = System.getProperty(HOME_PROPERTY);
+		if (named != null) {
+			return new File(named);
+		}
+		for (File directory = new File("").getAbsoluteFile(); directory != null; directory = directory.getParentFile()) {
+			if (new File(directory, "testFile" + TESTS[0] + ".txt").isFile()) {
+				return directory;
+			}
+		}
+		throw new IOException("No integration test files found; set " + HOME_PROPERTY + " to the repository directory");
+	}
+}
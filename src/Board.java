@@ -1,35 +1,143 @@
 
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.*;
 
 /**
  *  Board for the Connect-Four-Cli game
  * @author kch349
  * 
- * A Board is a 4x4 board used in a Connect-Four-Cli game.
+ * A Board is a grid of columns and rows used in a Connect-Four-Cli game,
+ * 4x4 with 4 in a row needed to win unless other dimensions are given.
  * It keeps track of the current tiles on the board, the plays
  * made by players to this point, and can tell whether a player has won,
  * if the game is a draw, or if plays are valid or invalid.
  */
 public class Board {
 	
-	// Board dimensions: square 4x4 board. Changing these would also change the game
-	// from Connect Four to Connect <NUM_COLUMNS> in this implementation.
+	// Default board dimensions: square 4x4 board where 4 tiles in a row wins.
 	public static final int NUM_COLUMNS = 4;
 	public static final int NUM_ROWS = 4;
+	public static final int CONNECT_LENGTH = 4;
 	
-	int[][] positions;			// positions in the board, represented [bottom ... top]
-													// and where the coordinates are [column][row] for easy access
+	// Number of players whose tiles can be held on the board.
+	public static final int NUM_PLAYERS = 2;
 	
-	List<Integer> moves;		// list of actions made on this board
+	/**
+	 * Outcome of trying to play a tile on the board.
+	 */
+	public enum Outcome {
+		ONGOING,	// tile placed, the game continues
+		WIN,			// tile placed, and the player has won
+		DRAW,			// tile placed, filling the board without the player winning
+		ILLEGAL		// tile not placed, the column is full or not on the board
+	}
+	
+	// Directions of the lines that can be won along, as {column step, row step}:
+	// horizontal, vertical, diagonal bottom left to top right and
+	// diagonal top left to bottom right.
+	private static final int[][] LINE_DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+	
+	final int numColumns;
+	final int numRows;
+	final int connectLength;
+	
+	// Tiles are stored as bitboards, with wordsPerPlayer longs per player.
+	// Bit (column * numRows + row) of a player's bitboard is set if that
+	// player has a tile at that zero based [column][row], where rows are
+	// counted [bottom ... top].
+	final int wordsPerPlayer;
+	long[] playerTiles;		// bitboards of all players, player p's at index (p - 1) * wordsPerPlayer
+	int[] columnHeights;	// number of tiles currently in each column
+	long playableColumns;	// bit (column - 1) set for each of the first 64 columns that has room
+	long hash;						// Zobrist hash of the tiles on the board, see hash()
+	long mirrorHash;			// Zobrist hash of the tiles mirrored left to right, see mirrorHash()
+	int[] winningMoveCount;	// number of moves made when each player first completed a line,
+												// or 0 if they have not, indexed by player - 1
+	
+	int[] moves;					// columns played on this board, in order
+	int moveCount;				// number of moves made, the used length of moves
+	List<Integer> movesView;	// read only list view of moves, created when first requested
+	char[] drawing;				// the board as toString draws it, made when first needed
+	boolean drawn;				// whether drawing shows the current tiles
+	String rendered;			// drawing as a String, or null until it is next needed
 	
 	/**
-	 *  Creates a new board of the set number of columns and rows
+	 *  Creates a new board of the default number of columns and rows
 	 *  and all 0s. No moves made yet.
 	 */
 	public Board() {
-		positions = new int[NUM_COLUMNS][NUM_ROWS];
-		moves = new ArrayList<Integer>();
+		this(NUM_COLUMNS, NUM_ROWS, CONNECT_LENGTH);
+	}
+	
+	/**
+	 *  Creates a new board of the given number of columns and rows
+	 *  and all 0s, where a player wins with connectLength tiles in a row.
+	 *  No moves made yet.
+	 * @param numColumns number of columns, at least 1
+	 * @param numRows number of rows, at least 1
+	 * @param connectLength number of tiles in a row needed to win, at least 1
+	 * 				 and no longer than the longest side of the board
+	 * @throws IllegalArgumentException if the dimensions are not valid
+	 */
+	public Board(int numColumns, int numRows, int connectLength) {
+		if (numColumns < 1 || numRows < 1) {
+			throw new IllegalArgumentException("Board must have at least one column and row, was "
+																				 + numColumns + "x" + numRows);
+		}
+		if (connectLength < 1 || connectLength > Math.max(numColumns, numRows)) {
+			throw new IllegalArgumentException("Connect length " + connectLength
+																				 + " does not fit on a " + numColumns + "x" + numRows + " board");
+		}
+		this.numColumns = numColumns;
+		this.numRows = numRows;
+		this.connectLength = connectLength;
+		wordsPerPlayer = (numColumns * numRows + Long.SIZE - 1) / Long.SIZE;
+		playerTiles = new long[NUM_PLAYERS * wordsPerPlayer];
+		columnHeights = new int[numColumns];
+		winningMoveCount = new int[NUM_PLAYERS];
+		moves = new int[numColumns * numRows];	// every move fills one position
+		playableColumns = allColumns();
+		hash = emptyHash();
+		mirrorHash = hash;
+	}
+	
+	/**
+	 *  Removes all tiles and moves from this board, leaving it as when it
+	 *  was created, so that it can be reused for another game.
+	 */
+	public void reset() {
+		Arrays.fill(playerTiles, 0);
+		Arrays.fill(columnHeights, 0);
+		Arrays.fill(winningMoveCount, 0);
+		moveCount = 0;
+		playableColumns = allColumns();
+		hash = emptyHash();
+		mirrorHash = hash;
+		drawn = false;
+	}
+	
+	/**
+	 *  Creates a copy of the given board, with the same dimensions, tiles
+	 *  and moves. Later moves on either board do not affect the other.
+	 * @param other board to copy
+	 */
+	public Board(Board other) {
+		numColumns = other.numColumns;
+		numRows = other.numRows;
+		connectLength = other.connectLength;
+		wordsPerPlayer = other.wordsPerPlayer;
+		playerTiles = other.playerTiles.clone();
+		columnHeights = other.columnHeights.clone();
+		playableColumns = other.playableColumns;
+		winningMoveCount = other.winningMoveCount.clone();
+		moves = other.moves.clone();
+		moveCount = other.moveCount;
+		hash = other.hash;
+		mirrorHash = other.mirrorHash;
 	}
 	
 	/**
@@ -37,7 +145,96 @@ public class Board {
 	 * @return number of columns
 	 */
 	public int getNumColumns() {
-		return NUM_COLUMNS;
+		return numColumns;
+	}
+	
+	/**
+	 * Reports the number of rows in this board.
+	 * @return number of rows
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+	
+	/**
+	 * Reports the number of tiles in a row a player needs to win on this board.
+	 * @return connect length
+	 */
+	public int getConnectLength() {
+		return connectLength;
+	}
+	
+	/**
+	 * Reports the number of tiles in a column.
+	 * @param column integer between 1 and the number of columns in this board
+	 * @return number of tiles, from 0 to the number of rows
+	 * @throws IndexOutOfBoundsException if the column is not on this board
+	 */
+	public int getColumnHeight(int column) {
+		return columnHeights[column - 1];
+	}
+	
+	/**
+	 * Reports whether a tile can be placed in a column, without placing one.
+	 * @param column column to check
+	 * @return true if the column is on this board and has room for a tile
+	 */
+	public boolean isPlayable(int column) {
+		return column >= 1 && column <= numColumns && columnHeights[column - 1] < numRows;
+	}
+	
+	/**
+	 * Reports the columns that have room for a tile as a bitmask, with bit
+	 * (column - 1) set for each. The mask is kept up to date as tiles are
+	 * placed and taken back, so this takes no time.
+	 * @return mask of the playable columns
+	 * @throws IllegalStateException if this board has more than 64 columns
+	 */
+	public long getLegalMoveMask() {
+		if (numColumns > Long.SIZE) {
+			throw new IllegalStateException(numColumns + " columns do not fit in a mask");
+		}
+		return playableColumns;
+	}
+	
+	/**
+	 * Finds the next column after the given one that has room for a tile,
+	 * so that the legal moves can be visited in order without creating
+	 * anything:
+	 *   for (int c = board.nextLegalMove(0); c != -1; c = board.nextLegalMove(c))
+	 * @param column column to search after, 0 to start from the first
+	 * @return the next playable column, or -1 if there is none
+	 */
+	public int nextLegalMove(int column) {
+		if (column < Long.SIZE) {
+			long rest = playableColumns & (-1L << column);
+			if (rest != 0) {
+				return Long.numberOfTrailingZeros(rest) + 1;
+			}
+			column = Long.SIZE;
+		}
+		// Columns past the mask are checked one by one.
+		for (int next = column + 1; next <= numColumns; next++) {
+			if (columnHeights[next - 1] < numRows) {
+				return next;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Copies the columns that have room for a tile, in order, to the start
+	 * of the given array.
+	 * @param destination array with room for at least getNumColumns() columns
+	 * @return the number of columns copied
+	 * @throws IndexOutOfBoundsException if destination is too short
+	 */
+	public int copyLegalMoves(int[] destination) {
+		int count = 0;
+		for (int column = nextLegalMove(0); column != -1; column = nextLegalMove(column)) {
+			destination[count++] = column;
+		}
+		return count;
 	}
 	
 	/**
@@ -47,7 +244,7 @@ public class Board {
 	 * @return true if board full, false otherwise
 	 */
 	public boolean boardFilled() {
-		return moves.size() == (NUM_COLUMNS * NUM_ROWS);
+		return moveCount == moves.length;
 	}
 	
 	/**
@@ -66,21 +263,161 @@ public class Board {
 		boolean success = findPositionAndPlaceTile(column, player);
 		// If successfully placed a token, add it to the list of moves
 		if (success) {
-			moves.add(column);
+			moves[moveCount++] = column;
 		}
 		return success;
 	}
 	
+	/**
+	 *  Place a tile for the given player on the board at the given column,
+	 *  and report the resulting state of the game. Only the lines through
+	 *  the new tile are checked for a win.
+	 * @param column integer between 1 and the number of columns in this board
+	 * @param player integer representing the current player (player 1, 2, etc).
+	 * @return ILLEGAL if the tile could not be placed (as for placeTile),
+	 * 				 otherwise WIN if this tile completed the player's first line,
+	 * 				 DRAW if the board is now filled, or ONGOING.
+	 */
+	public Outcome play(int column, int player) {
+		if (!placeTile(column, player)) {
+			return Outcome.ILLEGAL;
+		}
+		if (winningMoveCount[player - 1] == moveCount) {
+			return Outcome.WIN;
+		}
+		return boardFilled() ? Outcome.DRAW : Outcome.ONGOING;
+	}
+	
+	/**
+	 *  Take back the last move made on this board, removing its tile.
+	 *  The board is left as it was before that move was made.
+	 * @return true if a move was undone, false if no moves have been made
+	 */
+	public boolean undoMove() {
+		if (moveCount == 0) {
+			return false;
+		}
+		int columnIndex = moves[--moveCount] - 1;
+		int row = --columnHeights[columnIndex];
+		if (columnIndex < Long.SIZE) {
+			playableColumns |= 1L << columnIndex;
+		}
+		int player = getTile(columnIndex, row);
+		int bit = columnIndex * numRows + row;
+		playerTiles[(player - 1) * wordsPerPlayer + (bit >>> 6)] &= ~(1L << bit);
+		hash ^= tileKey(player, bit);
+		mirrorHash ^= tileKey(player, mirrorBit(columnIndex, row));
+		drawn = false;
+		// A line completed by the undone move no longer exists.
+		if (winningMoveCount[player - 1] > moveCount) {
+			winningMoveCount[player - 1] = 0;
+		}
+		return true;
+	}
+	
+	/**
+	 *  Reports the Zobrist hash of the current position: the XOR of a random
+	 *  key for each tile on the board, kept up to date as tiles are placed and
+	 *  taken back. Boards with the same dimensions and tiles have the same hash
+	 *  whatever order the tiles were placed in, and different positions almost
+	 *  never do.
+	 * @return 64 bit hash of the current position
+	 */
+	public long hash() {
+		return hash;
+	}
+	
+	/**
+	 *  Reports the hash of the mirror image of the current position, with
+	 *  every tile moved from column c to column (getNumColumns() + 1 - c).
+	 *  It is kept up to date alongside hash(), and is the hash() the board
+	 *  would have with its tiles mirrored.
+	 * @return 64 bit hash of the mirrored position
+	 */
+	public long mirrorHash() {
+		return mirrorHash;
+	}
+	
+	/**
+	 *  Reports a key shared by the current position and its mirror image,
+	 *  which have the same value for either player, so that results stored
+	 *  by the key serve both. Moves stored with a result should be mapped
+	 *  with canonicalColumn.
+	 * @return the smaller of hash() and mirrorHash()
+	 */
+	public long canonicalKey() {
+		return Math.min(hash, mirrorHash);
+	}
+	
+	/**
+	 *  Reports whether canonicalKey is the hash of the mirror image of the
+	 *  current position rather than of the position itself.
+	 * @return true if the canonical orientation is mirrored
+	 */
+	public boolean isCanonicalMirrored() {
+		return mirrorHash < hash;
+	}
+	
+	/**
+	 *  Maps a column between the current position and its canonical
+	 *  orientation, the one whose hash is canonicalKey. The mapping is its
+	 *  own inverse, so it serves both to store a move by the key and to
+	 *  read one back.
+	 * @param column integer between 1 and the number of columns in this board
+	 * @return the column in the other orientation
+	 */
+	public int canonicalColumn(int column) {
+		return isCanonicalMirrored() ? mirrorColumn(column) : column;
+	}
+	
+	/**
+	 *  Maps a column to the column it becomes when the board is mirrored
+	 *  left to right.
+	 * @param column integer between 1 and the number of columns in this board
+	 * @return the mirrored column
+	 */
+	public int mirrorColumn(int column) {
+		return numColumns + 1 - column;
+	}
+	
+	/**
+	 *  Two boards are equal if they have the same dimensions and the same
+	 *  tiles in the same places, whatever order they were placed in.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof Board)) {
+			return false;
+		}
+		Board board = (Board) other;
+		return hash == board.hash
+				&& numColumns == board.numColumns && numRows == board.numRows
+				&& connectLength == board.connectLength
+				&& Arrays.equals(playerTiles, board.playerTiles);
+	}
+	
+	/**
+	 *  Hash code of the current position, which changes as tiles are placed.
+	 */
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+	
 	/**
 	 *  Checks whether the game is currently at a win state for the player.
+	 *  Lines are checked as tiles are placed, so this does not search the board.
 	 * @param player integer representing whether this is player 1, 2, etc.
 	 * @return true if the player has won, false if not
 	 */
 	public boolean isWinState(int player) {
-		boolean wonHorizontally = checkRowsForWin(player);
-		boolean wonVertically = checkColumnsForWin(player);
-		boolean wonDiagonally = checkDiagonalsForWin(player);
-		return wonHorizontally || wonVertically || wonDiagonally;
+		if (player < 1 || player > NUM_PLAYERS) {
+			return false;
+		}
+		return winningMoveCount[player - 1] != 0;
 	}
 	
 	/**
@@ -97,136 +434,278 @@ public class Board {
 	 */
 	@Override
 	public String toString() {
-		// Small number Strings created along the way, so not using string builder
-		String result = "";
-		for (int j = NUM_ROWS - 1; j >= 0; j--) {
-			result += "|";
-			for (int i = 0; i < NUM_COLUMNS; i++) {
-				result += " " + positions[i][j];
-			}
-			result +="\n";
+		// The board is drawn once per position and kept until a tile is
+		// placed or taken back, so asking again for the same board is free.
+		draw();
+		if (rendered == null) {
+			rendered = new String(drawing);
+		}
+		return rendered;
+	}
+	
+	/**
+	 * Appends the representation of the current board state given by
+	 * toString to out.
+	 * @param out destination for the board
+	 * @throws IOException if out cannot be written to
+	 */
+	public void render(Appendable out) throws IOException {
+		draw();
+		if (out instanceof Writer) {
+			((Writer) out).write(drawing);
+		} else if (out instanceof PrintStream) {
+			((PrintStream) out).print(drawing);
+		} else if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(drawing);
+		} else {
+			out.append(CharBuffer.wrap(drawing));
 		}
-		result += "+--------\n";
-		result += "  1 2 3 4";
-		return result;
 	}
 	
 	/**
 	 * Gets a list of all moves made by all players to this point.
-	 * Does not include invalid move attempts.
+	 * Does not include invalid move attempts. The list is a read only
+	 * view that reflects later moves; getMoveCount and getMove read the
+	 * same moves without boxing them.
 	 * @return a list of integers representing columns where a token was
 	 * 				 placed, in chronological order.
 	 */
 	public List<Integer> getMoves() {
-		return Collections.unmodifiableList(moves);
+		if (movesView == null) {
+			movesView = new AbstractList<Integer>() {
+				@Override
+				public Integer get(int index) {
+					return getMove(index);
+				}
+				
+				@Override
+				public int size() {
+					return moveCount;
+				}
+			};
+		}
+		return movesView;
 	}
 	
-	// Search for an empty spot at the top of the stack of tiles
-	// in the given column. If there is one, place a tile for the current
-	// player and return true for success.
-	// If there was not space in this column, a tile is not placed,
-	// and returns false.
+	/**
+	 * Reports the number of moves made by all players to this point.
+	 * @return number of tiles placed on the board
+	 */
+	public int getMoveCount() {
+		return moveCount;
+	}
+	
+	/**
+	 * Gets a move made on this board.
+	 * @param index position of the move in chronological order, starting at 0
+	 * @return the column where the tile was placed
+	 * @throws IndexOutOfBoundsException if index is not less than the move count
+	 */
+	public int getMove(int index) {
+		if (index < 0 || index >= moveCount) {
+			throw new IndexOutOfBoundsException("Move " + index + " of " + moveCount);
+		}
+		return moves[index];
+	}
+	
+	/**
+	 * Copies the moves made on this board, in chronological order,
+	 * to the start of the given array.
+	 * @param destination array with room for at least getMoveCount() moves
+	 * @return the number of moves copied
+	 * @throws IndexOutOfBoundsException if destination is too short
+	 */
+	public int copyMoves(int[] destination) {
+		System.arraycopy(moves, 0, destination, 0, moveCount);
+		return moveCount;
+	}
+	
+	/**
+	 * Copies the moves made on this board, in chronological order,
+	 * to the start of the given array, one byte per column number.
+	 * @param destination array with room for at least getMoveCount() moves
+	 * @return the number of moves copied
+	 * @throws IndexOutOfBoundsException if destination is too short
+	 * @throws IllegalStateException if this board has more columns than fit in a byte
+	 */
+	public int copyMoves(byte[] destination) {
+		if (numColumns > Byte.MAX_VALUE) {
+			throw new IllegalStateException(numColumns + " columns do not fit in a byte");
+		}
+		if (destination.length < moveCount) {
+			throw new IndexOutOfBoundsException("Room for " + destination.length + " of " + moveCount + " moves");
+		}
+		for (int i = 0; i < moveCount; i++) {
+			destination[i] = (byte) moves[i];
+		}
+		return moveCount;
+	}
+	
+	// Place a tile for the current player on top of the stack of tiles
+	// in the given column and return true for success.
+	// If there was not space in this column, or the column or player
+	// is not on this board, a tile is not placed, and returns false.
+	// Records whether the new tile completed a line for the player.
 	private boolean findPositionAndPlaceTile(int column, int currentPlayer) {
-		// If column is not a column on this board, return -1 as error.
-		if (column > NUM_COLUMNS || column < 1) {
+		// If column is not a column on this board, return false as error.
+		if (column > numColumns || column < 1) {
+			return false;
+		}
+		if (currentPlayer < 1 || currentPlayer > NUM_PLAYERS) {
 			return false;
 		}
 		
 		int columnIndex = column - 1; // for zero based indexing.
-		// Try to find an empty position in the column.
-		int[] columnData = positions[columnIndex];
-		for (int i = 0; i < columnData.length; i++) {
-			if (columnData[i] == 0) {
-				// Found an empty spot in this column. 
-				// Add tile of the current player here,
-				// and report success
-				positions[columnIndex][i] = currentPlayer;
-				return true;
-			}
+		int row = columnHeights[columnIndex];
+		if (row == numRows) {
+			return false; 	// column was full and tile not placed
+		}
+		// Found an empty spot in this column. 
+		// Add tile of the current player here,
+		// and report success
+		int bit = columnIndex * numRows + row;
+		playerTiles[(currentPlayer - 1) * wordsPerPlayer + (bit >>> 6)] |= 1L << bit;
+		hash ^= tileKey(currentPlayer, bit);
+		mirrorHash ^= tileKey(currentPlayer, mirrorBit(columnIndex, row));
+		drawn = false;
+		columnHeights[columnIndex] = row + 1;
+		if (row + 1 == numRows && columnIndex < Long.SIZE) {
+			playableColumns &= ~(1L << columnIndex);
 		}
-		return false; 	// column was full and tile not placed
+		if (winningMoveCount[currentPlayer - 1] == 0 && completesLine(columnIndex, row, currentPlayer)) {
+			winningMoveCount[currentPlayer - 1] = moveCount + 1;	// counting the move being made
+		}
+		return true;
 	}
-
-	// Check all horizontal rows of board for possible wins
-	// for the given player. Returns true if a row filled
-	// with player's tiles is found, false if not.
-	private boolean checkRowsForWin(int player) {
-		boolean allTokensOfPlayer;
-		int nextTile;
-		for (int j = 0; j < NUM_ROWS; j++) {
-			allTokensOfPlayer = false;
-			for(int i = 0; i < NUM_COLUMNS; i++) {
-				nextTile = positions[i][j];
-				allTokensOfPlayer = (nextTile == player);
-				if (!allTokensOfPlayer) {
-					break;
-				}
-			}
-			// If found a full row of this player's token, player
-			// has won and return true.
-			if (allTokensOfPlayer) {
-				return true;
+	
+	// Returns the player whose tile is at the given zero based [column][row],
+	// or 0 if the position is empty.
+	int getTile(int columnIndex, int row) {
+		for (int p = 1; p <= NUM_PLAYERS; p++) {
+			if (hasTile(p, columnIndex, row)) {
+				return p;
 			}
 		}
-		return false;
+		return 0;
 	}
 	
-	// Check all vertical columns of board for possible wins
-	// for the given player. Returns true if a column filled
-	// with player's tiles is found, false if not.
-	private boolean checkColumnsForWin(int player) {
-		boolean allTokensOfPlayer;
-		int nextTile;
-		for (int i = 0; i < NUM_COLUMNS; i++) {
-			allTokensOfPlayer = false;
-			for(int j = 0; j < NUM_ROWS; j++) {
-				nextTile = positions[i][j];
-				allTokensOfPlayer = (nextTile == player);
-				if (!allTokensOfPlayer) {
-					break;
-				}
-			}
-			// If found a full row of this player's token, player
-			// has won and return true.
-			if (allTokensOfPlayer) {
+	// Returns whether the player has a tile at the given zero based [column][row].
+	private boolean hasTile(int player, int columnIndex, int row) {
+		int bit = columnIndex * numRows + row;
+		return (playerTiles[(player - 1) * wordsPerPlayer + (bit >>> 6)] & (1L << bit)) != 0;
+	}
+	
+	// Check whether the player's tile at [column][row] is part of a line of
+	// connectLength of their tiles. Only the lines through this tile are
+	// examined, so the cost does not grow with the size of the board.
+	private boolean completesLine(int columnIndex, int row, int player) {
+		for (int[] direction : LINE_DIRECTIONS) {
+			int lineLength = 1
+					+ countTilesFrom(columnIndex, row, direction[0], direction[1], player)
+					+ countTilesFrom(columnIndex, row, -direction[0], -direction[1], player);
+			if (lineLength >= connectLength) {
 				return true;
 			}
 		}
 		return false;
 	}
 	
-	// Check both diagonals of board for possible wins for the
-	// given player. If a full diagonal of player's tiles
-	// is found, returns true, false if not.
-	private boolean checkDiagonalsForWin(int player) {
-		// Check left to right diagonal
-		boolean allTokensOfPlayer = false;
-		int nextTile;
-		for (int i = 0; i < NUM_COLUMNS; i++) {
-			nextTile = positions[i][NUM_ROWS - 1 - i];
-			allTokensOfPlayer = (nextTile == player);
-			if (!allTokensOfPlayer) {
-				break;
+	// Count the player's tiles in a row starting next to [column][row] and
+	// stepping in the given direction, up to the connect length.
+	private int countTilesFrom(int columnIndex, int row, int columnStep, int rowStep, int player) {
+		int count = 0;
+		int i = columnIndex + columnStep;
+		int j = row + rowStep;
+		while (count < connectLength - 1 && i >= 0 && i < numColumns && j >= 0 && j < numRows
+					 && hasTile(player, i, j)) {
+			count++;
+			i += columnStep;
+			j += rowStep;
+		}
+		return count;
+	}
+	
+	// Bit of the bitboards at which the tile at [column][row] lands when
+	// the board is mirrored.
+	private int mirrorBit(int columnIndex, int row) {
+		return (numColumns - 1 - columnIndex) * numRows + row;
+	}
+	
+	// Mask of playable columns of an empty board: the first 64 columns, or
+	// all of them if there are fewer.
+	private long allColumns() {
+		return numColumns >= Long.SIZE ? -1L : (1L << numColumns) - 1;
+	}
+	
+	// Hash of this board with no tiles. Boards of different sizes start from
+	// different hashes, so that their positions are not mistaken for each other.
+	private long emptyHash() {
+		return mix(((long) numColumns << 40) ^ ((long) numRows << 20) ^ connectLength);
+	}
+	
+	// Random Zobrist key for a tile of the player at the given bit of the
+	// bitboards. Keys are generated from the tile rather than stored in a
+	// table, so boards of any size need no extra memory for them.
+	private static long tileKey(int player, int bit) {
+		return mix((long) bit * NUM_PLAYERS + player);
+	}
+	
+	// SplitMix64 finalizer: spreads the bits of value over the whole result,
+	// so that nearby values give unrelated random looking keys.
+	private static long mix(long value) {
+		long z = value * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	// Bring drawing up to date with the tiles. The array, of exactly the
+	// right length, and the frame and column labels in it are made on first
+	// use; after that only the tiles are drawn again. Every cell is as wide
+	// as the largest column label plus a separating space, with its value
+	// right aligned.
+	private void draw() {
+		if (drawn) {
+			return;
+		}
+		int cellWidth = Integer.toString(numColumns).length() + 1;
+		int lineLength = 1 + numColumns * cellWidth;
+		if (drawing == null) {
+			drawing = drawFrame(cellWidth, lineLength);
+		}
+		int lineStart = 0;
+		for (int j = numRows - 1; j >= 0; j--) {
+			for (int i = 0; i < numColumns; i++) {
+				drawing[lineStart + (i + 1) * cellWidth] = (char) ('0' + getTile(i, j));
 			}
+			lineStart += lineLength + 1;
 		}
-		// If found a full diagonal of this player's token from left
-		// to right, player has won and return true.
-		if (allTokensOfPlayer) {
-			return true;
+		drawn = true;
+		rendered = null;
+	}
+
+	// Draw everything but the tiles: the left border of each row, the
+	// bottom border and the column labels.
+	private char[] drawFrame(int cellWidth, int lineLength) {
+		char[] chars = new char[(numRows + 1) * (lineLength + 1) + lineLength];
+		Arrays.fill(chars, ' ');
+		int lineStart = 0;
+		for (int j = numRows - 1; j >= 0; j--) {
+			chars[lineStart] = '|';
+			lineStart += lineLength;
+			chars[lineStart++] = '\n';
 		}
-		
-		// Check right to left diagonal
-		allTokensOfPlayer = false;
-		for (int i = 0; i < NUM_COLUMNS; i++) {
-			nextTile = positions[i][i];
-			allTokensOfPlayer = (nextTile == player);
-			if (!allTokensOfPlayer) {
-				break;
+		chars[lineStart] = '+';
+		Arrays.fill(chars, lineStart + 1, lineStart + lineLength, '-');
+		lineStart += lineLength;
+		chars[lineStart++] = '\n';
+		for (int i = 0; i < numColumns; i++) {
+			// Write the label's digits leftwards from the end of its cell.
+			int end = lineStart + (i + 1) * cellWidth;
+			for (int label = i + 1; label > 0; label /= 10) {
+				chars[end--] = (char) ('0' + label % 10);
 			}
 		}
-		// If found a full diagonal of this player's token from
-		// right to left, player has won and return true. Otherwise
-		// player has not won by diagonal and return false.
-		return allTokensOfPlayer;
+		return chars;
 	}
 }
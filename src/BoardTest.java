@@ -1,4 +1,6 @@
 import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.*;
 
 import org.junit.After;
@@ -575,4 +577,436 @@ public class BoardTest {
 		assertEquals("should return the correct list of moves", expected, testBoard.getMoves());
 		assertEquals("length should equal the size of the board - 1", 15, testBoard.getMoves().size());
 	}
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////	Test configured board dimensions
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testConfiguredDimensions() {
+		testBoard = new Board(7, 6, 4);
+		assertEquals("should return 7 columns", 7, testBoard.getNumColumns());
+		assertEquals("should return 6 rows", 6, testBoard.getNumRows());
+		assertEquals("should need 4 in a row", 4, testBoard.getConnectLength());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testConnectLengthLongerThanBoard() {
+		new Board(4, 4, 5);
+	}
+	
+	@Test
+	public void testToStringStandardBoard() {
+		String expected = "| 0 0 0 0 0 0 0\n"
+										+ "| 0 0 0 0 0 0 0\n"
+										+ "| 0 0 0 0 0 0 0\n"
+										+ "| 0 0 0 0 0 0 0\n"
+										+ "| 0 0 0 0 0 0 0\n"
+										+ "| 0 0 0 2 0 0 1\n"
+										+ "+--------------\n"
+										+ "  1 2 3 4 5 6 7";
+		testBoard = new Board(7, 6, 4);
+		testBoard.placeTile(7, 1);
+		testBoard.placeTile(4, 2);
+		assertEquals("should print a 7x6 board", expected, testBoard.toString());
+	}
+	
+	@Test
+	public void testToStringWideBoard() {
+		String expected = "|  0  0  0  0  0  0  0  0  0  0\n"
+										+ "|  1  0  0  0  0  0  0  0  0  2\n"
+										+ "+------------------------------\n"
+										+ "   1  2  3  4  5  6  7  8  9 10";
+		testBoard = new Board(10, 2, 4);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(10, 2);
+		assertEquals("should widen cells to fit two digit column numbers", expected, testBoard.toString());
+	}
+	
+	@Test
+	public void testWinHorizontalOffCenterStandardBoard() {
+		testBoard = new Board(7, 6, 4);
+		testBoard.placeTile(4, 1);
+		testBoard.placeTile(4, 2);
+		testBoard.placeTile(5, 1);
+		testBoard.placeTile(5, 2);
+		testBoard.placeTile(6, 1);
+		testBoard.placeTile(6, 2);
+		assertFalse("should not find a win with only 3 in a row", testBoard.isWinState(1));
+		testBoard.placeTile(7, 1);
+		assertTrue("should notice that player 1 has won horizontally", testBoard.isWinState(1));
+		assertFalse("should not mistake that player 2 has won", testBoard.isWinState(2));
+	}
+	
+	@Test
+	public void testWinDiagonalFilledInMiddleStandardBoard() {
+		/* Building player 1's diagonal from the bottom of column 2 to the
+		   fourth row of column 5, on top of player 2's tiles, with the
+		   tile in column 4 placed last. */
+		testBoard = new Board(7, 6, 4);
+		int[] columns = {3, 4, 4, 5, 5, 5};
+		for (int i = 0; i < columns.length; i++) {
+			testBoard.placeTile(columns[i], 2);
+		}
+		testBoard.placeTile(2, 1);
+		testBoard.placeTile(3, 1);
+		testBoard.placeTile(5, 1);
+		assertFalse("should not find a win with a gap in the diagonal", testBoard.isWinState(1));
+		testBoard.placeTile(4, 1);
+		assertTrue("should notice a diagonal completed in its middle", testBoard.isWinState(1));
+	}
+	
+	@Test
+	public void testWinConnectFiveLargeBoard() {
+		testBoard = new Board(9, 7, 5);
+		for (int i = 0; i < 4; i++) {
+			testBoard.placeTile(9, 1);
+		}
+		assertFalse("should need 5 in a row on a connect 5 board", testBoard.isWinState(1));
+		testBoard.placeTile(9, 1);
+		assertTrue("should notice that player 1 has won vertically", testBoard.isWinState(1));
+	}
+	
+	@Test
+	public void testMultiWordBoard() {
+		// 10x8 needs more than one long per player.
+		testBoard = new Board(10, 8, 4);
+		for (int i = 0; i < 8; i++) {
+			assertTrue("should fill column 10", testBoard.placeTile(10, 1 + i % 2));
+		}
+		assertFalse("should not place a tile in a full column", testBoard.placeTile(10, 1));
+		assertTrue("should place a tile in column 1", testBoard.placeTile(1, 2));
+		assertFalse("should not mistake alternating tiles for a win", testBoard.isWinState(1));
+	}
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////	Test play outcomes
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testPlayOngoing() {
+		assertEquals("should report the game continues", Board.Outcome.ONGOING, testBoard.play(1, 1));
+	}
+	
+	@Test
+	public void testPlayIllegal() {
+		assertEquals("should report a column not on the board", Board.Outcome.ILLEGAL, testBoard.play(5, 1));
+		testBoard.play(1, 1);
+		testBoard.play(1, 2);
+		testBoard.play(1, 1);
+		testBoard.play(1, 2);
+		assertEquals("should report a full column", Board.Outcome.ILLEGAL, testBoard.play(1, 1));
+		assertEquals("should not record illegal plays", 4, testBoard.getMoves().size());
+	}
+	
+	@Test
+	public void testPlayWin() {
+		testBoard.play(1, 1);
+		testBoard.play(2, 2);
+		testBoard.play(1, 1);
+		testBoard.play(2, 2);
+		testBoard.play(1, 1);
+		testBoard.play(2, 2);
+		assertEquals("should report player 1 won vertically", Board.Outcome.WIN, testBoard.play(1, 1));
+	}
+	
+	@Test
+	public void testPlayAfterWin() {
+		testBoard.play(1, 1);
+		testBoard.play(2, 2);
+		testBoard.play(1, 1);
+		testBoard.play(2, 2);
+		testBoard.play(1, 1);
+		testBoard.play(2, 2);
+		testBoard.play(1, 1);
+		assertEquals("should report only the move that won as a win", Board.Outcome.ONGOING, testBoard.play(3, 1));
+	}
+	
+	@Test
+	public void testPlayDraw() {
+		int[] columns = {1, 2, 3, 4, 4, 3, 2, 1, 1, 2, 3, 4, 1, 2, 3};
+		for (int i = 0; i < columns.length; i++) {
+			assertEquals("should report the game continues", Board.Outcome.ONGOING, testBoard.play(columns[i], 1 + i % 2));
+		}
+		assertEquals("should report a draw on the last tile", Board.Outcome.DRAW, testBoard.play(4, 2));
+	}
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////	Test primitive move accessors
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testMoveAccessors() {
+		testBoard.placeTile(3, 1);
+		testBoard.placeTile(1, 2);
+		testBoard.placeTile(5, 1); // Provokes an error, not recorded.
+		testBoard.placeTile(3, 1);
+		assertEquals("should count placed tiles", 3, testBoard.getMoveCount());
+		assertEquals("should return first move", 3, testBoard.getMove(0));
+		assertEquals("should return last move", 3, testBoard.getMove(2));
+		
+		int[] intMoves = new int[16];
+		assertEquals("should copy all moves", 3, testBoard.copyMoves(intMoves));
+		assertArrayEquals("should copy moves in order", new int[] {3, 1, 3}, Arrays.copyOf(intMoves, 3));
+		byte[] byteMoves = new byte[3];
+		assertEquals("should copy all moves", 3, testBoard.copyMoves(byteMoves));
+		assertArrayEquals("should copy moves in order", new byte[] {3, 1, 3}, byteMoves);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetMoveNotYetMade() {
+		testBoard.placeTile(1, 1);
+		testBoard.getMove(1);
+	}
+	
+	// The list from getMoves() is a view that follows later moves.
+	@Test
+	public void testGetMovesView() {
+		List<Integer> moves = testBoard.getMoves();
+		testBoard.placeTile(2, 1);
+		assertEquals("should show moves made after the view was taken", Arrays.asList(2), moves);
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetMovesReadOnly() {
+		testBoard.getMoves().add(1);
+	}
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////	Test undo
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testUndoOnEmptyBoard() {
+		assertFalse("should not undo when no moves have been made", testBoard.undoMove());
+	}
+	
+	@Test
+	public void testUndoRestoresBoard() {
+		testBoard.placeTile(1, 1);
+		String expected = testBoard.toString();
+		testBoard.placeTile(1, 2);
+		assertTrue("should undo the last move", testBoard.undoMove());
+		assertEquals("board should be as before the last move", expected, testBoard.toString());
+		assertEquals("should return the correct list of moves", Arrays.asList(1), testBoard.getMoves());
+	}
+	
+	@Test
+	public void testUndoWinningMove() {
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(2, 2);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(2, 2);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(2, 2);
+		testBoard.placeTile(1, 1);
+		assertTrue("should notice that player 1 has won vertically", testBoard.isWinState(1));
+		testBoard.undoMove();
+		assertFalse("should not report a win after the winning tile is taken back", testBoard.isWinState(1));
+		assertEquals("should report player 2 can now win", Board.Outcome.WIN, testBoard.play(2, 2));
+	}
+	
+	@Test
+	public void testUndoKeepsEarlierWin() {
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(2, 1);
+		testBoard.undoMove();
+		assertTrue("should still report a win made before the undone move", testBoard.isWinState(1));
+	}
+	
+	@Test
+	public void testUndoFilledBoard() {
+		int[] columns = {1, 2, 3, 4, 4, 3, 2, 1, 1, 2, 3, 4, 1, 2, 3, 4};
+		for (int i = 0; i < columns.length; i++) {
+			testBoard.placeTile(columns[i], 1 + i % 2);
+		}
+		testBoard.undoMove();
+		assertFalse("should not report the board is full", testBoard.boardFilled());
+		assertTrue("should be able to play in the freed column", testBoard.placeTile(4, 2));
+	}
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////	Test position hashing and equality
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	// The same tiles placed in a different order give the same position.
+	@Test
+	public void testHashIgnoresMoveOrder() {
+		Board other = new Board();
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(2, 2);
+		testBoard.placeTile(3, 1);
+		other.placeTile(3, 1);
+		other.placeTile(2, 2);
+		other.placeTile(1, 1);
+		assertEquals("should hash the same tiles the same", testBoard.hash(), other.hash());
+		assertEquals("should be equal with the same tiles", testBoard, other);
+		assertEquals("should have equal hash codes when equal", testBoard.hashCode(), other.hashCode());
+	}
+	
+	@Test
+	public void testHashDiffersByPlayer() {
+		Board other = new Board();
+		testBoard.placeTile(1, 1);
+		other.placeTile(1, 2);
+		assertNotEquals("should hash different players' tiles differently", testBoard.hash(), other.hash());
+		assertNotEquals("should not be equal with different tiles", testBoard, other);
+	}
+	
+	@Test
+	public void testHashRestoredByUndo() {
+		long emptyHash = testBoard.hash();
+		testBoard.placeTile(2, 1);
+		long oneTileHash = testBoard.hash();
+		testBoard.placeTile(2, 2);
+		testBoard.undoMove();
+		assertEquals("should return to the hash before the undone move", oneTileHash, testBoard.hash());
+		testBoard.undoMove();
+		assertEquals("should return to the empty board hash", emptyHash, testBoard.hash());
+		assertEquals("should equal an empty board", new Board(), testBoard);
+	}
+	
+	@Test
+	public void testHashDiffersByDimensions() {
+		Board other = new Board(7, 6, 4);
+		assertNotEquals("should hash empty boards of different sizes differently", testBoard.hash(), other.hash());
+		assertNotEquals("should not be equal with different sizes", testBoard, other);
+	}
+	
+	/*
+	 * Rendering tests
+	 */
+	
+	// The drawing of the board follows every tile placed, taken back or cleared.
+	@Test
+	public void testToStringFollowsChanges() {
+		testBoard = new Board();
+		String empty = testBoard.toString();
+		testBoard.placeTile(2, 1);
+		assertEquals("should show a placed tile", "| 0 0 0 0\n| 0 0 0 0\n| 0 0 0 0\n| 0 1 0 0\n+--------\n  1 2 3 4",
+								 testBoard.toString());
+		testBoard.undoMove();
+		assertEquals("should not show a tile taken back", empty, testBoard.toString());
+		testBoard.placeTile(3, 2);
+		testBoard.toString();
+		testBoard.reset();
+		assertEquals("should not show tiles after a reset", empty, testBoard.toString());
+	}
+	
+	// A copy is drawn the same, and drawn again once it changes.
+	@Test
+	public void testToStringOfCopy() {
+		testBoard = new Board(5, 3, 3);
+		testBoard.placeTile(5, 1);
+		String drawn = testBoard.toString();
+		Board copy = new Board(testBoard);
+		assertEquals("should draw the copy the same", drawn, copy.toString());
+		copy.placeTile(5, 2);
+		assertNotEquals("should draw the changed copy differently", drawn, copy.toString());
+		assertEquals("should not change the original's drawing", drawn, testBoard.toString());
+	}
+	
+	// Rendering to an Appendable gives the same as toString.
+	@Test
+	public void testRenderToAppendable() throws IOException {
+		testBoard = new Board(12, 2, 4);
+		testBoard.placeTile(11, 1);
+		StringBuilder out = new StringBuilder("Board:\n");
+		testBoard.render(out);
+		assertEquals("should append the board", "Board:\n" + testBoard.toString(), out.toString());
+		assertTrue("should right align two digit labels", out.toString().endsWith("  9 10 11 12"));
+	}
+	
+	// The kept drawing follows tiles placed and taken back, whatever it is rendered to.
+	@Test
+	public void testRenderAfterChanges() throws IOException {
+		testBoard.placeTile(2, 1);
+		String before = testBoard.toString();
+		testBoard.placeTile(2, 2);
+		StringWriter out = new StringWriter();
+		testBoard.render(out);
+		assertEquals("should draw the new tile", testBoard.toString(), out.toString());
+		assertNotEquals("should not draw the old tiles", before, out.toString());
+		testBoard.undoMove();
+		out = new StringWriter();
+		testBoard.render(out);
+		assertEquals("should draw the tiles left after undoing", before, out.toString());
+	}
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////	Test legal moves
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	// The playable columns follow tiles placed, taken back and cleared.
+	@Test
+	public void testLegalMovesFollowChanges() {
+		for (int i = 0; i < 4; i++) {
+			testBoard.placeTile(2, 1 + i % 2);
+		}
+		assertFalse("should not play a full column", testBoard.isPlayable(2));
+		assertTrue("should play a column with room", testBoard.isPlayable(1));
+		assertFalse("should not play a column off the board", testBoard.isPlayable(5));
+		assertEquals("should report the column's tiles", 4, testBoard.getColumnHeight(2));
+		assertEquals("should mask the columns with room", 0b1101, testBoard.getLegalMoveMask());
+		assertEquals("should copy the columns with room", 0b1101, new Board(testBoard).getLegalMoveMask());
+		int[] columns = new int[4];
+		assertEquals("should list three columns", 3, testBoard.copyLegalMoves(columns));
+		assertArrayEquals("should list them in order", new int[] {1, 3, 4, 0}, columns);
+		testBoard.undoMove();
+		assertTrue("should play a column with a tile taken back", testBoard.isPlayable(2));
+		testBoard.placeTile(2, 1);
+		testBoard.reset();
+		assertEquals("should play every column after a reset", 0b1111, testBoard.getLegalMoveMask());
+	}
+	
+	// Columns past the first 64 are visited too, though they have no mask.
+	@Test
+	public void testLegalMovesOfWideBoard() {
+		testBoard = new Board(70, 1, 1);
+		for (int column = 60; column <= 66; column++) {
+			testBoard.placeTile(column, 1);
+		}
+		List<Integer> columns = new ArrayList<Integer>();
+		for (int column = testBoard.nextLegalMove(0); column != -1; column = testBoard.nextLegalMove(column)) {
+			columns.add(column);
+		}
+		assertEquals("should visit every column with room", 63, columns.size());
+		assertEquals("should skip the full columns", Arrays.asList(58, 59, 67, 68, 69, 70), columns.subList(57, 63));
+		try {
+			testBoard.getLegalMoveMask();
+			fail("should not mask 70 columns");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////	Test mirror images
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	// A position and its mirror image share a canonical key, whichever way round they are.
+	@Test
+	public void testMirrorHash() {
+		testBoard = new Board(7, 6, 4);
+		Board mirror = new Board(7, 6, 4);
+		for (int column : new int[] {1, 2, 2, 5, 7, 3}) {
+			testBoard.placeTile(column, 1 + testBoard.getMoveCount() % 2);
+			mirror.placeTile(8 - column, 1 + mirror.getMoveCount() % 2);
+			assertEquals("should hash the mirror image as the mirrored board", mirror.hash(), testBoard.mirrorHash());
+			assertEquals("should share the canonical key", mirror.canonicalKey(), testBoard.canonicalKey());
+			assertNotEquals("should be canonical one way round only", mirror.isCanonicalMirrored(),
+											testBoard.isCanonicalMirrored());
+		}
+		assertEquals("should map a column to its mirror", 2, testBoard.mirrorColumn(6));
+		assertEquals("should map columns to the same canonical ones", testBoard.canonicalColumn(3),
+								 mirror.canonicalColumn(5));
+		testBoard.undoMove();
+		mirror.undoMove();
+		assertEquals("should restore the mirror hash on undo", mirror.hash(), testBoard.mirrorHash());
+		testBoard.reset();
+		assertEquals("should mirror an empty board to itself", testBoard.hash(), testBoard.mirrorHash());
+	}
 }
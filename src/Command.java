@@ -0,0 +1,218 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A command line of the Connect-Four-Cli text protocol, parsed in place.
+ *
+ * A Command is reused for line after line: parse fills it in from the
+ * characters of a String, or the bytes of a buffer, without creating any
+ * Strings or arrays or throwing on a malformed line. Lines are split into
+ * words at single spaces like String.split(" "), so a command knows how
+ * many words its line had, what the first one was, and the value of the
+ * second if it was a number.
+ */
+public class Command {
+
+	/**
+	 * Command words of the protocol. UNKNOWN is any other first word.
+	 */
+	public enum Type {PUT, GET, BOARD, UNDO, AI, HINT, SAVE, LOAD, STATS, EXIT, CREATE, JOIN, WATCH, UNKNOWN}
+
+	private static final Type[] TYPES = Type.values();
+	private static final byte[][] WORDS = new byte[TYPES.length - 1][];
+	static {
+		for (int i = 0; i < WORDS.length; i++) {
+			WORDS[i] = TYPES[i].name().getBytes();
+		}
+	}
+
+	private final AsciiBuffer bytes = new AsciiBuffer();
+	private CharSequence line;
+	private Type type = Type.UNKNOWN;
+	private int wordCount;
+	private boolean hasNumber;
+	private int number;
+	private int argumentStart;		// the second word, if there is one
+	private int argumentEnd;
+
+	// The bytes of a buffer read as characters, reused for each line parsed from one.
+	private static class AsciiBuffer implements CharSequence {
+		ByteBuffer buffer;
+
+		@Override
+		public char charAt(int index) {
+			return (char) (buffer.get(index) & 0xFF);
+		}
+
+		@Override
+		public int length() {
+			return buffer.capacity();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			StringBuilder text = new StringBuilder(end - start);
+			for (int i = start; i < end; i++) {
+				text.append(charAt(i));
+			}
+			return text;
+		}
+	}
+
+	/**
+	 * Parses the command line held between two positions of a buffer,
+	 * without the line's end. The buffer's position and limit are not used
+	 * or changed.
+	 * @param buffer buffer holding the line as ASCII
+	 * @param start index of the first byte of the line
+	 * @param end index after the last byte of the line
+	 * @return this command
+	 */
+	public Command parse(ByteBuffer buffer, int start, int end) {
+		bytes.buffer = buffer;
+		return parse(bytes, start, end);
+	}
+
+	/**
+	 * Parses a command line, without the line's end.
+	 * @param line the line
+	 * @return this command
+	 */
+	public Command parse(CharSequence line) {
+		return parse(line, 0, line.length());
+	}
+
+	// Parse the line held between start and end of a sequence of characters.
+	private Command parse(CharSequence line, int start, int end) {
+		this.line = line;
+		type = Type.UNKNOWN;
+		hasNumber = false;
+		number = 0;
+		argumentStart = argumentEnd = start;
+
+		// As with String.split, trailing empty words are dropped, unless
+		// the line is empty, when it is a single empty word.
+		int last = end - 1;
+		while (last >= start && line.charAt(last) == ' ') {
+			last--;
+		}
+		if (last < start) {
+			wordCount = (end == start) ? 1 : 0;
+			return this;
+		}
+		end = last + 1;
+
+		int firstEnd = start;
+		while (firstEnd < end && line.charAt(firstEnd) != ' ') {
+			firstEnd++;
+		}
+		wordCount = 1;
+		for (int i = firstEnd; i < end; i++) {
+			if (line.charAt(i) == ' ') {
+				wordCount++;
+			}
+		}
+		type = match(line, start, firstEnd);
+		if (wordCount > 1) {
+			int secondEnd = firstEnd + 1;
+			while (secondEnd < end && line.charAt(secondEnd) != ' ') {
+				secondEnd++;
+			}
+			argumentStart = firstEnd + 1;
+			argumentEnd = secondEnd;
+			parseNumber(line, argumentStart, argumentEnd);
+		}
+		return this;
+	}
+
+	/**
+	 * Reports the first word of the line.
+	 * @return the command word, or UNKNOWN if it is not one
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Reports the number of words in the line, counted as String.split(" ") would.
+	 * @return number of words, 0 for a line of only spaces
+	 */
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * Reports whether the second word of the line is a number that
+	 * Integer.parseInt would accept.
+	 * @return true if getNumber holds the second word's value
+	 */
+	public boolean hasNumber() {
+		return hasNumber;
+	}
+
+	/**
+	 * Reports the value of the second word of the line, if it is a number.
+	 * @return the number, or 0 if hasNumber is false
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Copies the second word of the line, such as the file of a SAVE.
+	 * Only valid until the next line is parsed, since the line's characters
+	 * may change after that.
+	 * @return the second word, or "" if the line has only one word
+	 */
+	public String getArgument() {
+		return line.subSequence(argumentStart, argumentEnd).toString();
+	}
+
+	// The command word held between start and end, or UNKNOWN.
+	private static Type match(CharSequence line, int start, int end) {
+		for (int i = 0; i < WORDS.length; i++) {
+			byte[] word = WORDS[i];
+			if (word.length != end - start) {
+				continue;
+			}
+			int j = 0;
+			while (j < word.length && line.charAt(start + j) == word[j]) {
+				j++;
+			}
+			if (j == word.length) {
+				return TYPES[i];
+			}
+		}
+		return Type.UNKNOWN;
+	}
+
+	// Parse the word between start and end as Integer.parseInt does: an
+	// optional sign then decimal digits, within the range of an int.
+	private void parseNumber(CharSequence line, int start, int end) {
+		boolean negative = false;
+		int i = start;
+		if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+			negative = line.charAt(i) == '-';
+			i++;
+		}
+		if (i == end) {
+			return;
+		}
+		// Accumulate negatively, since the int range reaches one further below zero.
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = line.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return;
+			}
+			value = value * 10 - digit;
+			if (value < Integer.MIN_VALUE) {
+				return;
+			}
+		}
+		if (!negative && value == Integer.MIN_VALUE) {
+			return;
+		}
+		number = (int) (negative ? value : -value);
+		hasNumber = true;
+	}
+}
@@ -0,0 +1,68 @@
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class CommandTest {
+
+	// Lines in the style of the integration test files, including malformed ones.
+	private static final String[] LINES = {
+		"PUT 1", "PUT 12", "PUT -3", "PUT +2", "PUT a", "PUT 1 2", "PUT", "PUT ", "PUT  1", " PUT 1",
+		"GET", "GET ", "GET 1", "BOARD", "UNDO", "AI", "HINT", "EXIT", "CREATE", "JOIN 7", "JOIN x", "WATCH 7",
+		"SAVE game.txt", "LOAD game.txt", "STATS",
+		"", " ", "   ", "put 1", "PUTS 1", "PUT 2147483647", "PUT 2147483648", "PUT -2147483648",
+		"PUT -2147483649", "PUT -", "PUT 1a", "HELLO WORLD AGAIN"
+	};
+
+	// Words are counted, matched and parsed from a buffer as String.split(" ")
+	// and Integer.parseInt would.
+	@Test
+	public void testMatchesSplit() {
+		Command command = new Command();
+		for (String line : LINES) {
+			// Parse from the middle of a larger buffer, as from a read buffer.
+			ByteBuffer buffer = ByteBuffer.wrap(("XX" + line + "\nYY").getBytes());
+			checkMatchesSplit(line, command.parse(buffer, 2, 2 + line.length()));
+		}
+	}
+
+	// Lines given as Strings are parsed the same way.
+	@Test
+	public void testParseString() {
+		Command command = new Command();
+		for (String line : LINES) {
+			checkMatchesSplit(line, command.parse(line));
+		}
+	}
+
+	// Check a parsed line against String.split and Integer.parseInt.
+	private static void checkMatchesSplit(String line, Command command) {
+		String[] tokens = line.split(" ");
+		assertEquals("should count the words of \"" + line + "\"", tokens.length, command.getWordCount());
+		if (tokens.length == 0) {
+			return;
+		}
+		Command.Type expectedType = Command.Type.UNKNOWN;
+		for (Command.Type type : Command.Type.values()) {
+			if (type.name().equals(tokens[0])) {
+				expectedType = type;
+			}
+		}
+		assertEquals("should match the command word of \"" + line + "\"", expectedType, command.getType());
+		if (tokens.length > 1) {
+			assertEquals("should copy the second word of \"" + line + "\"", tokens[1], command.getArgument());
+			Integer expectedNumber = null;
+			try {
+				expectedNumber = Integer.parseInt(tokens[1]);
+			} catch (NumberFormatException e) {
+				// Not a number
+			}
+			assertEquals("should find whether \"" + line + "\" has a number",
+									 expectedNumber != null, command.hasNumber());
+			if (expectedNumber != null) {
+				assertEquals("should parse the number of \"" + line + "\"", (int) expectedNumber, command.getNumber());
+			}
+		}
+	}
+}
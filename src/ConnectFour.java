@@ -1,185 +1,559 @@
 
 
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.*;
+import java.util.function.LongFunction;
 
 public class ConnectFour {
 
-	public static final int NUM_PLAYERS = 2;
-	public static final String ERROR_MESSAGE = "ERROR";
-	public static final String SUCCESS_MESSAGE = "OK";
-	public static final String WIN_MESSAGE = "WIN";
-	public static final String DRAW_MESSAGE = "DRAW";
-	public static final String PLACE_TOKEN_COMMAND = "PUT";
-	public static final String GET_MOVES_COMMAND = "GET";
-	public static final String VIEW_BOARD_COMMAND = "BOARD";
-	public static final String EXIT_GAME_COMMAND = "EXIT";
+	public static final String COLUMNS_OPTION = "--columns";
+	public static final String ROWS_OPTION = "--rows";
+	public static final String CONNECT_OPTION = "--connect";
+	public static final String VS_COMPUTER_OPTION = "--vs-ai";
+	public static final String COMPUTER_TIME_OPTION = "--ai-time";
+	public static final String SOLVE_OPTION = "--solve";
+	public static final String MOVES_OPTION = "--moves";
+	public static final String THREADS_OPTION = "--threads";
+	public static final String SIMULATE_OPTION = "--simulate";
+	public static final String PLAYERS_OPTION = "--players";
+	public static final String SEED_OPTION = "--seed";
+	public static final String SERVER_OPTION = "--server";
+	public static final String NIO_OPTION = "--nio";
+	public static final String SERVER_TABLE_OPTION = "--ai-table-bits";
+	public static final String BATCH_OPTION = "--batch";
+	public static final String COMPARE_OPTION = "--compare";
+	public static final String INDEX_OPTION = "--index";
+	public static final String QUERY_OPTION = "--query";
+	public static final String BOOK_OPTION = "--book";
+	public static final String BUILD_BOOK_OPTION = "--build-book";
+	public static final String BOOK_DEPTH_OPTION = "--book-depth";
+	public static final String OPPONENT_OPTION = "--opponent";
+	public static final String METRICS_OPTION = "--metrics";
+	public static final String RANDOM_PLAYER = "random";
+	public static final String COMPUTER_PLAYER_NAME = "ai";
+	public static final String MCTS_PLAYER_NAME = "mcts";
+	public static final long DEFAULT_COMPUTER_TIME_MILLIS = 1000;
+	public static final int DEFAULT_BOOK_DEPTH = 4;
+	public static final int OUTPUT_BUFFER_SIZE = 8192;
+	public static final int METRICS_INTERVAL_SECONDS = 10;
+	private static GameSession session;
 	private static Board gameBoard;
+	private static boolean vsComputer;
+	private static boolean solveMode;
+	private static int threads;
+	private static long simulatedGames;		// number of games to simulate, 0 if not simulating
+	private static List<LongFunction<Player>> simulatedPlayers;
+	private static long seed;
+	private static long computerTimeMillis;
+	private static int serverPort;		// port to serve games on, -1 if not serving
+	private static boolean nonBlockingServer;
+	private static int serverTableBits;		// each served game's solver table holds 2^serverTableBits results
+	private static String batchPaths;		// command files and directories to play, null if not batching
+	private static boolean compareOutputs;
+	private static String indexedGames;		// game record file to index, null if not indexing
+	private static String queriedGames;		// game record file to search, null if not querying
+	private static OpeningBook openingBook;		// null if there is none
+	private static String bookToBuild;		// opening book file to write, null if not building one
+	private static int bookDepth;
+	private static String opponentName;		// kind of player the computer plays as, see playerFactory
+	private static String metricsFile;		// file to write metrics to, null if not recording them
 	private static Scanner input;
-	private static int currentPlayer;
-	private static int winner;
 	
-	// Run the Connect Four game.
+	// Run the Connect Four game. Board dimensions default to those of Board,
+	// and may be set with "--columns N", "--rows N" and "--connect N".
+	// With "--vs-ai" the computer plays player 2, taking up to "--ai-time MS"
+	// milliseconds per move, as the solver or as "--opponent P". The game may start from a position given with
+	// "--moves C,C,...", the columns played so far. With "--solve" the value
+	// of every move from that position is found instead, on "--threads T" threads.
+	// With "--simulate N" N games are played between computer players given by
+	// "--players P1,P2" (each "random", "ai" or "mcts"), with random choices seeded by "--seed S".
+	// With "--server PORT" games are served over TCP instead, see GameServer,
+	// or with "--nio" as well, from one thread with NioGameServer. Each game
+	// searches with a solver table of 2^B results, set with "--ai-table-bits B".
+	// With "--batch F,F,..." each command file (or "test*.txt" file of a
+	// directory) is played as a game of its own, on "--threads T" threads,
+	// and with "--compare" each output is compared with its expected file.
+	// With "--index GAMES" the positions of a file of game records (see
+	// GameRecord) are indexed on "--threads T" threads, and with "--query GAMES"
+	// the indexed games that reached the "--moves" position are listed.
+	// With "--build-book BOOK" every position up to "--book-depth D" moves is
+	// solved into an opening book, which "--book BOOK" has the computer
+	// player, and "--solve", look positions up in (see OpeningBook).
+	// With "--metrics FILE" the counts and timings of the commands run are
+	// recorded (see Metrics), shown by "STATS" and written to the file every
+	// 10 seconds and on exit.
 	public static void main (String []args) {
-		// Begin a new game. Player 1 goes first. No one has won yet.
+		if (!parseOptions(args)) {
+			printOptionsUsage();
+			return;
+		}
+		if (metricsFile != null) {
+			Metrics.dumpPeriodically(new File(metricsFile), METRICS_INTERVAL_SECONDS);
+		}
+		if (solveMode) {
+			solveMoves();
+			return;
+		}
+		if (simulatedGames > 0) {
+			simulateGames();
+			return;
+		}
+		if (serverPort >= 0) {
+			serveGames();
+			return;
+		}
+		if (batchPaths != null) {
+			runBatch();
+			return;
+		}
+		if (indexedGames != null) {
+			indexGames();
+			return;
+		}
+		if (queriedGames != null) {
+			queryGames();
+			return;
+		}
+		if (bookToBuild != null) {
+			buildBook();
+			return;
+		}
 		// Begin listening for user input
-		currentPlayer = 1;
-		winner = -1;
-		gameBoard = new Board();
 		input = new Scanner(System.in);
 		
+		// Responses are collected in a buffer rather than written piece by
+		// piece. When a person is at the console, they are written out once
+		// each command line has been answered; when commands come from a file
+		// or another program, only when the buffer fills and at the end.
+		boolean interactive = System.console() != null;
+		PrintStream out = new PrintStream(new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE));
+		
 		// Start the game and continue it until user cancels program by keyboard,
-		// or by typing "EXIT"
-		System.out.print(">"); 				// Mark line as an input line 
-		while(input.hasNextLine()) {
-			// Ensure number of arguments from user is expected
-			String line = input.nextLine();
-			String[] tokens = line.split(" ");
-			if (tokens.length > 2 || tokens.length == 0) {
-				printUsage();
-			} 
-			
-			// Process input. Ensure it is valid, and if so,
-			// execute given command.
-			String command = tokens[0];
-			switch(command) {
-			case PLACE_TOKEN_COMMAND:
-				// Check for invalid input, printing usage or error message if not valid.
-				if (tokens.length != 2) {
-					printUsage();
+		// or by typing "EXIT". Both players share the keyboard, so either may
+		// play for whoever's turn it is.
+		if (session.playCommands(input, out, interactive)) {
+			// Exit the game program
+			input.close();
+			System.exit(0);
+		}
+	}
+	
+	// Set up the game board and computer player from the program arguments.
+	// Returns false if the arguments were not valid options or dimensions.
+	public static boolean parseOptions(String[] args) {
+		int columns = Board.NUM_COLUMNS;
+		int rows = Board.NUM_ROWS;
+		int connectLength = Board.CONNECT_LENGTH;
+		computerTimeMillis = DEFAULT_COMPUTER_TIME_MILLIS;
+		String startMoves = "";
+		String players = RANDOM_PLAYER + "," + RANDOM_PLAYER;
+		simulatedGames = 0;
+		seed = System.nanoTime();
+		vsComputer = false;
+		solveMode = false;
+		threads = Runtime.getRuntime().availableProcessors();
+		serverPort = -1;
+		nonBlockingServer = false;
+		serverTableBits = GameRegistry.DEFAULT_SOLVER_TABLE_BITS;
+		batchPaths = null;
+		compareOutputs = false;
+		indexedGames = null;
+		queriedGames = null;
+		openingBook = null;
+		bookToBuild = null;
+		bookDepth = DEFAULT_BOOK_DEPTH;
+		opponentName = COMPUTER_PLAYER_NAME;
+		metricsFile = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case COLUMNS_OPTION:
+					columns = Integer.parseInt(args[++i]);
 					break;
-				}
-				int column = parseTargetColumn(tokens[1], gameBoard.getNumColumns());
-				
-				// If input included a valid column, command as a whole is valid.
-				// First check to see if the game is already over, with a player winning
-				// or a draw. If so, report this to the user and do not try to place a tile.
-				if (winner > 0 || gameBoard.boardFilled()) {
-					System.out.print("Sorry, the game has already finished.");
-					if (winner > 0) {
-						System.out.print(" Player " + winner + " has won.");
-					} else {
-						System.out.print(" The game was a draw.");
+				case ROWS_OPTION:
+					rows = Integer.parseInt(args[++i]);
+					break;
+				case CONNECT_OPTION:
+					connectLength = Integer.parseInt(args[++i]);
+					break;
+				case VS_COMPUTER_OPTION:
+					vsComputer = true;
+					break;
+				case COMPUTER_TIME_OPTION:
+					computerTimeMillis = Long.parseLong(args[++i]);
+					break;
+				case MOVES_OPTION:
+					startMoves = args[++i];
+					break;
+				case SOLVE_OPTION:
+					solveMode = true;
+					break;
+				case SIMULATE_OPTION:
+					simulatedGames = Long.parseLong(args[++i]);
+					if (simulatedGames < 1) {
+						return false;
 					}
-					System.out.println(" No more tiles may be placed.");
 					break;
-				}
-
-				// If the game is still on, try to place a tile for the current player.
-				if (column != -1) {
-					boolean success = gameBoard.placeTile(column, currentPlayer);
-					if (!success) {
-						System.out.println(ERROR_MESSAGE);
-					} else {
-						// Successfully placed a tile. Check current game state
-						// and report it to the user.
-						if (gameBoard.isWinState(currentPlayer)) {
-							winner = currentPlayer;
-							System.out.println(WIN_MESSAGE);
-						} else if (gameBoard.boardFilled()) {
-							System.out.println(DRAW_MESSAGE);
-						} else {
-							System.out.println(SUCCESS_MESSAGE);
-						}
-						// It is the next player's turn since currentPlayer
-						// successfully placed a tile.
-						currentPlayer = advanceToNextPlayer(currentPlayer);
+				case PLAYERS_OPTION:
+					players = args[++i];
+					break;
+				case SEED_OPTION:
+					seed = Long.parseLong(args[++i]);
+					break;
+				case SERVER_OPTION:
+					serverPort = Integer.parseInt(args[++i]);
+					if (serverPort < 0 || serverPort > 65535) {
+						return false;
 					}
-				}
-				break;
-			case GET_MOVES_COMMAND:
-				// Check for invalid input, printing usage or error message if not valid.
-				if (tokens.length != 1) {
-					printUsage();
 					break;
-				}
-				
-				// Print moves made until present in this game.
-				printMoves(gameBoard.getMoves());
-				break;
-			case VIEW_BOARD_COMMAND:
-				// Check for invalid input, printing usage or error message if not valid.
-				if (tokens.length != 1) {
-					printUsage();
+				case NIO_OPTION:
+					nonBlockingServer = true;
+					break;
+				case SERVER_TABLE_OPTION:
+					serverTableBits = Integer.parseInt(args[++i]);
+					if (serverTableBits < 0 || serverTableBits > 30) {
+						return false;
+					}
+					break;
+				case BATCH_OPTION:
+					batchPaths = args[++i];
+					break;
+				case COMPARE_OPTION:
+					compareOutputs = true;
+					break;
+				case INDEX_OPTION:
+					indexedGames = args[++i];
+					break;
+				case QUERY_OPTION:
+					queriedGames = args[++i];
+					break;
+				case BOOK_OPTION:
+					openingBook = new OpeningBook(new File(args[++i]));
 					break;
+				case BUILD_BOOK_OPTION:
+					bookToBuild = args[++i];
+					break;
+				case BOOK_DEPTH_OPTION:
+					bookDepth = Integer.parseInt(args[++i]);
+					if (bookDepth < 0) {
+						return false;
+					}
+					break;
+				case OPPONENT_OPTION:
+					opponentName = args[++i];
+					break;
+				case METRICS_OPTION:
+					// Metrics.ENABLED is read once, when the Metrics class is first
+					// used, and Metrics.PROPERTY is a constant that does not load it, so
+					// this must be set here, before any session runs a command.
+					metricsFile = args[++i];
+					System.setProperty(Metrics.PROPERTY, "true");
+					break;
+				case THREADS_OPTION:
+					threads = Integer.parseInt(args[++i]);
+					if (threads < 1) {
+						return false;
+					}
+					break;
+				default:
+					return false;
+				}
+			}
+			gameBoard = new Board(columns, rows, connectLength);
+			session = new GameSession(gameBoard, vsComputer, computerTimeMillis, true);
+			session.setOpeningBook(openingBook);
+			session.setAnalysisCache(new AnalysisCache(AnalysisCache.DEFAULT_CAPACITY));
+			if (!session.playMoves(startMoves)) {
+				return false;
+			}
+			LongFunction<Player> opponent = playerFactory(opponentName, threads);
+			if (opponent == null) {
+				return false;
+			}
+			if (!opponentName.equals(COMPUTER_PLAYER_NAME)) {
+				session.setOpponent(opponent.apply(seed));
+			}
+			// Games are simulated on every thread, so each player searches on one.
+			simulatedPlayers = new ArrayList<LongFunction<Player>>();
+			for (String name : players.split(",")) {
+				LongFunction<Player> player = playerFactory(name, 1);
+				if (player == null) {
+					return false;
+				}
+				simulatedPlayers.add(player);
+			}
+			if (simulatedPlayers.size() != Board.NUM_PLAYERS) {
+				return false;
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			return false;		// option given without its value
+		} catch (IllegalArgumentException e) {
+			return false;		// value not a number, or dimensions not valid
+		}
+		return true;
+	}
+	
+	// Find and print the exact value of every move from the game board, in
+	// parallel. The search is also timed on a single thread to report how much
+	// faster the parallel one is.
+	private static void solveMoves() {
+		if (session.reportIfGameFinished(System.out)) {
+			return;
+		}
+		if (openingBook != null && printBookScores()) {
+			return;
+		}
+		long singleThreadNanos = 0;
+		if (threads > 1) {
+			singleThreadNanos = timeSolve(1, false);
+		}
+		long nanos = timeSolve(threads, true);
+		if (threads > 1) {
+			System.out.printf("Speedup versus 1 thread: %.2f%n", (double) singleThreadNanos / nanos);
+		}
+	}
+	
+	// Solve the moves from the game board on the given number of threads,
+	// printing statistics, and the scores if asked. Returns the time taken.
+	private static long timeSolve(int solverThreads, boolean printScores) {
+		ParallelSolver solver = new ParallelSolver(solverThreads);
+		long start = System.nanoTime();
+		int[] scores = solver.solveMoves(gameBoard, session.getCurrentPlayer());
+		long nanos = System.nanoTime() - start;
+		solver.shutdown();
+		if (printScores) {
+			for (int i = 0; i < scores.length; i++) {
+				if (scores[i] == ParallelSolver.ILLEGAL_MOVE) {
+					System.out.println("Column " + (i + 1) + ": full");
+				} else {
+					System.out.println("Column " + (i + 1) + ": " + scores[i] + " (" + describeScore(scores[i]) + ")");
 				}
-				
-				// Print the current board layout
-				System.out.println(gameBoard.toString());
-				break;
-			case EXIT_GAME_COMMAND:
-				// Exit the game program
-				input.close();
-				System.exit(0);
-			default:
-				// Command invalid; no valid command word included
-				printUsage();
-				break;
 			}
-
-			// Mark the start of the next input line. This line has been processed.
-			System.out.print(">");				
 		}
+		long nodes = solver.getNodeCount();
+		System.out.printf("Solved on %d thread%s in %.1f ms: %d nodes, %.0f nodes/sec%n", solverThreads,
+											solverThreads == 1 ? "" : "s", nanos / 1e6, nodes, nodes / (nanos / 1e9));
+		return nanos;
 	}
 	
-	// Extract target column from user's argument. Returns the
-	// column number if present, or -1 if the input was invalid.
-	// If user's input column was invalid, appropriate error message
-	// is printed to the user.
-	public static int parseTargetColumn(String arg, int totalColumns) {
-		int targetColumn = -1;
+	// Print the value of every move from the game board as found in the
+	// opening book, if every position they lead to is in it. Returns false,
+	// printing nothing, if one is not.
+	private static boolean printBookScores() {
+		int player = session.getCurrentPlayer();
+		String[] lines = new String[gameBoard.getNumColumns()];
+		for (int column = 1; column <= gameBoard.getNumColumns(); column++) {
+			Board child = new Board(gameBoard);
+			Board.Outcome outcome = child.play(column, player);
+			int score;
+			if (outcome == Board.Outcome.ILLEGAL) {
+				lines[column - 1] = "Column " + column + ": full";
+				continue;
+			} else if (outcome == Board.Outcome.WIN) {
+				score = gameBoard.getNumColumns() * gameBoard.getNumRows() - gameBoard.getMoveCount();
+			} else if (outcome == Board.Outcome.DRAW) {
+				score = 0;
+			} else if (player == 1 + gameBoard.getMoveCount() % Board.NUM_PLAYERS && openingBook.contains(child)) {
+				score = -openingBook.getScore(child);
+			} else {
+				return false;
+			}
+			lines[column - 1] = "Column " + column + ": " + score + " (" + describeScore(score) + ")";
+		}
+		for (String line : lines) {
+			System.out.println(line);
+		}
+		System.out.println("From the opening book.");
+		return true;
+	}
+	
+	// Solve every position up to the book depth from the game board's size
+	// and write them to the opening book file.
+	private static void buildBook() {
+		long start = System.nanoTime();
 		try {
-			targetColumn = Integer.parseInt(arg);
-		} catch (NumberFormatException e) {
-			printUsage();
-			return -1;
+			long positions = OpeningBook.build(gameBoard.getNumColumns(), gameBoard.getNumRows(),
+																				 gameBoard.getConnectLength(), bookDepth, new File(bookToBuild), threads);
+			System.out.printf("Solved %d positions up to move %d in %.1f ms on %d thread%s%n", positions, bookDepth,
+												(System.nanoTime() - start) / 1e6, threads, threads == 1 ? "" : "s");
+		} catch (IOException e) {
+			System.out.println("Could not write " + bookToBuild + ": " + e.getMessage());
 		}
-		
-		// Check to see if column exists on this board, printing an error message if not.
-		if (targetColumn < 1 || targetColumn > totalColumns) {
-			printColumnOutOfBounds(totalColumns);
-			return -1;
+	}
+	
+	// Describes a Solver score for the player to move.
+	private static String describeScore(int score) {
+		if (score > 0) {
+			return "win";
+		} else if (score < 0) {
+			return "loss";
+		}
+		return "draw";
+	}
+	
+	// Returns a way of creating the named kind of computer player from a seed,
+	// searching on the given number of threads if it can, or null if there
+	// is no such kind of player.
+	private static LongFunction<Player> playerFactory(String name, int searchThreads) {
+		switch (name) {
+		case RANDOM_PLAYER:
+			return playerSeed -> new RandomPlayer(playerSeed);
+		case COMPUTER_PLAYER_NAME:
+			return playerSeed -> {
+				Solver solver = new Solver(computerTimeMillis);
+				solver.setOpeningBook(openingBook);
+				return solver;
+			};
+		case MCTS_PLAYER_NAME:
+			return playerSeed -> new MctsPlayer(computerTimeMillis, Long.MAX_VALUE, searchThreads, MctsPlayer.DEFAULT_NODES,
+																					playerSeed);
+		default:
+			return null;
 		}
-		
-		// Return valid target column.
-		return targetColumn;
 	}
 	
+	// Play the requested number of games between computer players on boards of
+	// the game board's size, and print statistics about them.
+	private static void simulateGames() {
+		Simulator simulator = new Simulator(gameBoard.getNumColumns(), gameBoard.getNumRows(),
+																				gameBoard.getConnectLength(), simulatedPlayers.get(0),
+																				simulatedPlayers.get(1), threads, seed);
+		Simulator.Result result = simulator.run(simulatedGames);
+		System.out.printf("Played %d games in %.1f ms on %d thread%s with seed %d: %.0f games/sec%n",
+											result.games, result.nanos / 1e6, threads, threads == 1 ? "" : "s", seed,
+											result.gamesPerSecond());
+		printRate("Player 1 wins", result.player1Wins, result.games);
+		printRate("Player 2 wins", result.player2Wins, result.games);
+		printRate("Draws", result.draws, result.games);
+		System.out.printf("Game length: %.1f moves on average, shortest %d, longest %d%n",
+											result.averageGameLength(), result.shortestGame, result.longestGame);
+	}
 	
-	// Prints usage if there is an error in user's command.
-	public static void printUsage() {
-		System.out.println("Unrecognized command. Please choose from the following:");
-		System.out.println("\"PUT X\" - place a tile in column x of the board");
-		System.out.println("\"GET\" - get a list of moves made so far");
-		System.out.println("\"BOARD\" - display current board and locations of tiles");
-		System.out.println("\"EXIT\" - exit the game");
+	// Prints a count and the percentage of the total it makes up.
+	private static void printRate(String label, long count, long total) {
+		System.out.printf("%s: %d (%.1f%%)%n", label, count, 100.0 * count / total);
 	}
 	
-	// Prints an error message that the column was out of bounds for the
-	// place tile command.
-	public static void printColumnOutOfBounds(int totalColumns) {
-		System.out.println("Column out of bounds. Please enter a value between 1 and "
-												+ totalColumns + ".");
+	// Serve games on boards of the game board's size over TCP until the
+	// program is stopped.
+	private static void serveGames() {
+		try {
+			int port;
+			if (nonBlockingServer) {
+				NioGameServer server = new NioGameServer(serverPort, gameBoard.getNumColumns(), gameBoard.getNumRows(),
+																								 gameBoard.getConnectLength(), computerTimeMillis, serverTableBits);
+				server.start();
+				port = server.getPort();
+			} else {
+				GameServer server = new GameServer(serverPort, gameBoard.getNumColumns(), gameBoard.getNumRows(),
+																					 gameBoard.getConnectLength(), computerTimeMillis, serverTableBits);
+				server.start();
+				port = server.getPort();
+			}
+			System.out.println("Serving games on port " + port + ".");
+		} catch (IOException e) {
+			System.out.println("Could not serve games on port " + serverPort + ": " + e.getMessage());
+		}
+	}
+	
+	// Play every command file given with the batch option, in parallel, and
+	// report how each output compares with its expected file if asked.
+	// Exits with status 1 if any output differs from what was expected.
+	private static void runBatch() {
+		BatchRunner runner = new BatchRunner(gameBoard.getNumColumns(), gameBoard.getNumRows(),
+																				 gameBoard.getConnectLength(), vsComputer, computerTimeMillis,
+																				 threads, null);
+		List<BatchRunner.Result> results;
+		long start = System.nanoTime();
+		try {
+			results = runner.run(BatchRunner.findInputs(batchPaths), compareOutputs);
+		} catch (IOException e) {
+			System.out.println("Could not play the command files: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		long nanos = System.nanoTime() - start;
+		int failures = 0;
+		for (BatchRunner.Result result : results) {
+			if (!compareOutputs) {
+				System.out.println(result.input.getPath() + ": wrote " + result.output.getPath());
+			} else if (!result.compared) {
+				System.out.println(result.input.getPath() + ": no " + result.expected.getPath() + " to compare with");
+			} else if (result.matched()) {
+				System.out.println(result.input.getPath() + ": OK");
+			} else {
+				System.out.println(result.input.getPath() + ": differs from " + result.expected.getPath()
+													 + " at line " + result.differentLine);
+				failures++;
+			}
+		}
+		System.out.printf("Played %d file%s in %.1f ms on %d thread%s%s%n", results.size(),
+											results.size() == 1 ? "" : "s", nanos / 1e6, threads, threads == 1 ? "" : "s",
+											compareOutputs ? ", " + failures + " differ" : "");
+		if (failures > 0) {
+			System.exit(1);
+		}
 	}
 	
-	// Upon the completion of a turn, advance current player to the next
-	// in the game.
-	public static int advanceToNextPlayer(int currentPlayer) {
-		int nextPlayer = currentPlayer + 1;
-		// If we have cycled through all the players,
-		// restart at the first.
-		if (nextPlayer > NUM_PLAYERS) {
-			nextPlayer = 1;
-		}
-		return nextPlayer;
+	// Index the positions of the games in the file given with the index
+	// option, writing the index next to it.
+	private static void indexGames() {
+		File games = new File(indexedGames);
+		long start = System.nanoTime();
+		try {
+			long positions = GameIndex.build(games, GameIndex.indexFileOf(games), threads);
+			System.out.printf("Indexed %d positions in %.1f ms on %d thread%s%n", positions,
+												(System.nanoTime() - start) / 1e6, threads, threads == 1 ? "" : "s");
+		} catch (IOException e) {
+			System.out.println("Could not index " + games + ": " + e.getMessage());
+		}
 	}
 	
-	// Prints the moves to present in this game, one per line.
-	// Moves are columns where players put their tiles. 
-	// Moves are printed in order.
-	public static void printMoves(List<Integer> moves) {
-		for (int i = 0; i < moves.size(); i++) {
-			System.out.println(moves.get(i));
+	// Print the moves of every indexed game in the file given with the query
+	// option that reached the game board's position, one game per line.
+	private static void queryGames() {
+		File games = new File(queriedGames);
+		try (GameRecordReader reader = new GameRecordReader(games);
+				 GameIndex index = new GameIndex(GameIndex.indexFileOf(games))) {
+			if (index.getGamesLength() != reader.size()) {
+				System.out.println("The index of " + games + " is out of date; games added since are not searched.");
+			}
+			List<Long> found = index.findGames(reader, gameBoard);
+			for (long offset : found) {
+				reader.seek(offset);
+				StringBuilder moves = new StringBuilder();
+				for (int i = 0; i < reader.getMoveCount(); i++) {
+					moves.append(i == 0 ? "" : ",").append(reader.getMove(i));
+				}
+				System.out.println(offset + ": " + moves);
+			}
+			System.out.println(found.size() + " game" + (found.size() == 1 ? "" : "s") + " reached the position.");
+		} catch (IOException e) {
+			System.out.println("Could not search " + games + ": " + e.getMessage());
 		}
 	}
+	
+	// Prints usage if the program arguments could not be used to create a board.
+	public static void printOptionsUsage() {
+		System.out.println("Usage: ConnectFour [" + COLUMNS_OPTION + " N] [" + ROWS_OPTION + " N] ["
+											 + CONNECT_OPTION + " N] [" + VS_COMPUTER_OPTION + " [" + OPPONENT_OPTION + " P]] ["
+											 + COMPUTER_TIME_OPTION + " MS]");
+		System.out.println("                   [" + MOVES_OPTION + " C,C,...] [" + SOLVE_OPTION + " [" + THREADS_OPTION + " T]]");
+		System.out.println("                   [" + SIMULATE_OPTION + " N [" + PLAYERS_OPTION + " P1,P2] ["
+											 + THREADS_OPTION + " T] [" + SEED_OPTION + " S]]");
+		System.out.println("                   [" + SERVER_OPTION + " PORT [" + NIO_OPTION + "] [" + SERVER_TABLE_OPTION + " B]]");
+		System.out.println("                   [" + BATCH_OPTION + " F,F,...|DIR [" + COMPARE_OPTION + "] ["
+											 + THREADS_OPTION + " T]]");
+		System.out.println("                   [" + INDEX_OPTION + " GAMES [" + THREADS_OPTION + " T]] ["
+											 + QUERY_OPTION + " GAMES " + MOVES_OPTION + " C,C,...]");
+		System.out.println("                   [" + BUILD_BOOK_OPTION + " BOOK [" + BOOK_DEPTH_OPTION + " D] ["
+											 + THREADS_OPTION + " T]] [" + BOOK_OPTION + " BOOK] [" + METRICS_OPTION + " FILE]");
+		System.out.println("where players are \"" + RANDOM_PLAYER + "\", \"" + COMPUTER_PLAYER_NAME + "\" or \"" + MCTS_PLAYER_NAME
+											 + "\",");
+		System.out.println("and the connect length is no longer than the longest side of the board.");
+	}
 }
@@ -33,6 +33,20 @@ import java.io.PrintStream;
  * 			- display board
  * 	 - EXIT:
  * 			- closes the program, tested implicitly.
+ *
+ * testFileUndo.txt tests:
+ * 	 - UNDO:
+ * 			- the ERROR message when no tiles have been placed
+ * 			- taking back a winning tile lets the game continue
+ * 			- the same player plays again after their tile is taken back
+ * 			- prints usage when given an argument
+ *
+ * testFileComputer.txt tests:
+ * 	 - AI:
+ * 			- the computer's column and the OK message
+ * 			- prints usage when given an argument
+ * 	 - UNDO:
+ * 			- takes back the computer's tile
  * @param input file name - must exist in the connect-four-cli repository
  * @param output file name
  */
@@ -0,0 +1,279 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live feed of one game's moves to any number of spectators.
+ *
+ * Each move is published once, as an event packed into a long, to a ring
+ * of the game's latest events that all its spectators read from. Every
+ * spectator keeps its own place in the ring, so the ring is each one's
+ * bounded queue, and publishing costs the same however many are
+ * watching. A spectator that falls a whole ring behind, because it is
+ * slow to take its events, skips the ones it missed and is sent the
+ * board as it is now instead, then follows on from there. A spectator is
+ * sent the board when it starts watching too.
+ *
+ * Events are published by the game's session holding its lock, so one at
+ * a time. Spectators may read on any threads, each spectator on one.
+ */
+public class GameBroadcast {
+
+	// Default number of events a spectator may fall behind before it is sent the board instead.
+	public static final int DEFAULT_CAPACITY = 64;
+
+	// Kinds of event.
+	public static final int MOVE = 1;				// a tile was placed
+	public static final int UNDO = 2;				// the last tile was taken back
+	public static final int BOARD = 3;			// the spectator must be sent the whole board
+
+	// Returned by Spectator.next when there is no new event.
+	public static final long NO_EVENT = 0;
+
+	// Lines sent to spectators.
+	public static final String MOVE_MESSAGE = "MOVE";
+	public static final String UNDO_MESSAGE = "UNDO";
+	public static final String MOVES_MESSAGE = "MOVES";
+
+	// Layout of an event: kind in the low 8 bits, then 8 bits of player,
+	// 8 bits of the move's Board.Outcome, and the column in the top 32 bits.
+	private static final int PLAYER_SHIFT = 8;
+	private static final int OUTCOME_SHIFT = 16;
+	private static final int COLUMN_SHIFT = 32;
+
+	private static final Board.Outcome[] OUTCOMES = Board.Outcome.values();
+	private static final long BOARD_EVENT = BOARD;
+
+	private final AtomicLongArray events;		// read and written atomically, so a reader sees whether it was lapped
+	private final int mask;
+	private volatile long published;		// number of events published, the latest at (published - 1) & mask
+	private volatile int waiting;				// spectators waiting in await, changed holding this
+	private final List<Spectator> spectators = new CopyOnWriteArrayList<Spectator>();
+
+	/**
+	 * A follower of the game's events.
+	 */
+	public class Spectator {
+		private final Object attachment;
+		private long cursor;						// number of the next event to read
+		private boolean behind = true;	// must be sent the board before any more events
+
+		private Spectator(Object attachment) {
+			this.attachment = attachment;
+		}
+
+		/**
+		 * Takes the next event for this spectator.
+		 * @return the event, read with kindOf, playerOf, columnOf and outcomeOf,
+		 * 				 or NO_EVENT if there is none yet. An event of kind BOARD
+		 * 				 means the spectator must be sent the whole board, and
+		 * 				 catchUp called, before it is given any more events.
+		 */
+		public long next() {
+			if (behind) {
+				return BOARD_EVENT;
+			}
+			if (cursor == published) {
+				return NO_EVENT;
+			}
+			long event = events.get((int) cursor & mask);
+			// The event is only good if it was not written over while being read.
+			if (published - cursor > mask) {
+				behind = true;
+				return BOARD_EVENT;
+			}
+			cursor++;
+			return event;
+		}
+
+		/**
+		 * Marks this spectator as having been sent the board as it is now,
+		 * so that it follows on from the next event published. Must be called
+		 * holding the game session's lock, under which the board was read, so
+		 * that no event is published in between.
+		 */
+		public void catchUp() {
+			cursor = published;
+			behind = false;
+		}
+
+		/**
+		 * Waits until there is an event for this spectator, or the time is up.
+		 * @param timeoutMillis most time to wait, in milliseconds
+		 * @return true if there is an event
+		 * @throws InterruptedException if the thread is interrupted while waiting
+		 */
+		public boolean await(long timeoutMillis) throws InterruptedException {
+			synchronized (GameBroadcast.this) {
+				// Counted as waiting before checking, so a publisher that
+				// misses the check sees the count and wakes this spectator.
+				waiting++;
+				try {
+					if (!behind && cursor == published) {
+						GameBroadcast.this.wait(timeoutMillis);
+					}
+				} finally {
+					waiting--;
+				}
+			}
+			return behind || cursor != published;
+		}
+
+		/**
+		 * Stops this spectator following the game.
+		 */
+		public void close() {
+			spectators.remove(this);
+		}
+
+		/**
+		 * Reports the object given when this spectator subscribed.
+		 * @return the attachment
+		 */
+		public Object getAttachment() {
+			return attachment;
+		}
+	}
+
+	/**
+	 * Creates a broadcast with room for the default number of events.
+	 */
+	public GameBroadcast() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a broadcast.
+	 * @param capacity number of events a spectator may fall behind before it
+	 * 				 is sent the board instead, rounded up to a power of 2
+	 */
+	public GameBroadcast(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30, was " + capacity);
+		}
+		int length = 1;
+		while (length < capacity) {
+			length <<= 1;
+		}
+		events = new AtomicLongArray(length);
+		mask = length - 1;
+	}
+
+	/**
+	 * Starts a spectator following the game. Its first event is BOARD.
+	 * @param attachment object to keep with the spectator, such as its connection
+	 * @return the new spectator
+	 */
+	public Spectator subscribe(Object attachment) {
+		Spectator spectator = new Spectator(attachment);
+		spectators.add(spectator);
+		return spectator;
+	}
+
+	/**
+	 * Reports the spectators following the game. The list may be read while
+	 * spectators come and go.
+	 * @return the spectators
+	 */
+	public List<Spectator> getSpectators() {
+		return spectators;
+	}
+
+	/**
+	 * Reports the number of events published so far.
+	 * @return event count
+	 */
+	public long getPublished() {
+		return published;
+	}
+
+	/**
+	 * Publishes a tile placed on the game's board.
+	 * @param player player who placed it
+	 * @param column column it was placed in
+	 * @param outcome outcome of placing it
+	 */
+	public void publishMove(int player, int column, Board.Outcome outcome) {
+		publish(MOVE | (long) player << PLAYER_SHIFT | (long) outcome.ordinal() << OUTCOME_SHIFT
+						| (long) column << COLUMN_SHIFT);
+	}
+
+	/**
+	 * Publishes the last tile being taken back.
+	 */
+	public void publishUndo() {
+		publish(UNDO);
+	}
+
+	/**
+	 * Publishes the board being replaced, so that every spectator is sent it whole.
+	 */
+	public void publishBoard() {
+		publish(BOARD_EVENT);
+	}
+
+	public static int kindOf(long event) {
+		return (int) event & 0xFF;
+	}
+
+	public static int playerOf(long event) {
+		return (int) (event >>> PLAYER_SHIFT) & 0xFF;
+	}
+
+	public static Board.Outcome outcomeOf(long event) {
+		return OUTCOMES[(int) (event >>> OUTCOME_SHIFT) & 0xFF];
+	}
+
+	public static int columnOf(long event) {
+		return (int) (event >>> COLUMN_SHIFT);
+	}
+
+	/**
+	 * Describes a MOVE or UNDO event as the line sent to spectators:
+	 * "MOVE player column", followed by " WIN" or " DRAW" if the move ended
+	 * the game, or "UNDO".
+	 * @param event event of kind MOVE or UNDO
+	 * @return the line, without its end
+	 */
+	public static String describe(long event) {
+		if (kindOf(event) == UNDO) {
+			return UNDO_MESSAGE;
+		}
+		String line = MOVE_MESSAGE + " " + playerOf(event) + " " + columnOf(event);
+		switch (outcomeOf(event)) {
+		case WIN:
+			return line + " " + GameSession.WIN_MESSAGE;
+		case DRAW:
+			return line + " " + GameSession.DRAW_MESSAGE;
+		default:
+			return line;
+		}
+	}
+
+	/**
+	 * Describes a board as the line sent to a spectator in place of the
+	 * events it missed: "MOVES" followed by the columns played so far,
+	 * separated by commas.
+	 * @param board board to describe, read holding its session's lock
+	 * @return the line, without its end
+	 */
+	public static String describe(Board board) {
+		StringBuilder line = new StringBuilder(MOVES_MESSAGE);
+		for (int i = 0; i < board.getMoveCount(); i++) {
+			line.append(i == 0 ? ' ' : ',').append(board.getMove(i));
+		}
+		return line.toString();
+	}
+
+	// Write the event to the ring, then make it visible to spectators and
+	// wake any waiting for it.
+	private void publish(long event) {
+		events.set((int) published & mask, event);
+		published = published + 1;		// only one publisher at a time
+		if (waiting > 0) {
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class GameBroadcastTest {
+
+	// A spectator is sent the board first, then each event in order.
+	@Test
+	public void testEventsInOrder() {
+		GameBroadcast broadcast = new GameBroadcast(4);
+		GameBroadcast.Spectator spectator = broadcast.subscribe(null);
+		assertEquals("should start with the board", GameBroadcast.BOARD, GameBroadcast.kindOf(spectator.next()));
+		spectator.catchUp();
+		assertEquals("should have no events yet", GameBroadcast.NO_EVENT, spectator.next());
+
+		broadcast.publishMove(1, 3, Board.Outcome.ONGOING);
+		broadcast.publishUndo();
+		broadcast.publishMove(2, 7, Board.Outcome.WIN);
+		long event = spectator.next();
+		assertEquals("should be a move", GameBroadcast.MOVE, GameBroadcast.kindOf(event));
+		assertEquals("should be player 1's", 1, GameBroadcast.playerOf(event));
+		assertEquals("should be in column 3", 3, GameBroadcast.columnOf(event));
+		assertEquals("should describe the move", "MOVE 1 3", GameBroadcast.describe(event));
+		assertEquals("should describe the undo", "UNDO", GameBroadcast.describe(spectator.next()));
+		assertEquals("should describe the win", "MOVE 2 7 WIN", GameBroadcast.describe(spectator.next()));
+		assertEquals("should have no more events", GameBroadcast.NO_EVENT, spectator.next());
+	}
+
+	// A spectator that falls a whole ring behind is sent the board instead,
+	// and follows on from there; one keeping up is not held back by it.
+	@Test
+	public void testSlowSpectatorSentBoard() {
+		GameBroadcast broadcast = new GameBroadcast(4);
+		GameBroadcast.Spectator slow = broadcast.subscribe(null);
+		GameBroadcast.Spectator fast = broadcast.subscribe(null);
+		slow.next();
+		slow.catchUp();
+		fast.next();
+		fast.catchUp();
+		for (int column = 1; column <= 6; column++) {
+			broadcast.publishMove(1, column, Board.Outcome.ONGOING);
+			assertEquals("should keep up", column, GameBroadcast.columnOf(fast.next()));
+		}
+		assertEquals("should be sent the board", GameBroadcast.BOARD, GameBroadcast.kindOf(slow.next()));
+		assertEquals("should be sent the board until caught up", GameBroadcast.BOARD, GameBroadcast.kindOf(slow.next()));
+		slow.catchUp();
+		broadcast.publishMove(2, 7, Board.Outcome.DRAW);
+		assertEquals("should follow on after the board", "MOVE 2 7 DRAW", GameBroadcast.describe(slow.next()));
+	}
+
+	// A waiting spectator is woken by an event, and a closed one is dropped.
+	@Test
+	public void testAwaitAndClose() throws InterruptedException {
+		GameBroadcast broadcast = new GameBroadcast();
+		GameBroadcast.Spectator spectator = broadcast.subscribe("watcher");
+		spectator.next();
+		spectator.catchUp();
+		assertFalse("should time out with no events", spectator.await(1));
+		Thread publisher = new Thread(() -> broadcast.publishUndo());
+		publisher.start();
+		while (!spectator.await(1000)) {
+			// Wait for the event
+		}
+		publisher.join();
+		assertEquals("should take the event", GameBroadcast.UNDO, GameBroadcast.kindOf(spectator.next()));
+		assertEquals("should keep the attachment", "watcher", spectator.getAttachment());
+		spectator.close();
+		assertTrue("should be dropped", broadcast.getSpectators().isEmpty());
+	}
+
+	// The board is described by the columns played on it.
+	@Test
+	public void testDescribeBoard() {
+		Board board = new Board();
+		assertEquals("should describe an empty board", "MOVES", GameBroadcast.describe(board));
+		board.play(4, 1);
+		board.play(3, 2);
+		assertEquals("should list the columns played", "MOVES 4,3", GameBroadcast.describe(board));
+	}
+}
@@ -0,0 +1,469 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On-disk index of a game record file, from each position reached in its
+ * games to the offsets of the games that reached it, read from a
+ * memory-mapped file.
+ *
+ * Positions are keyed by Board.hash. The keys are split by their top bits
+ * into partitions, each an open addressing hash table of slots holding a
+ * key, where its games start in the list of game offsets that follows the
+ * tables, and how many there are. Finding the games of a position takes
+ * one probe of its table, or a few more when slots nearby are taken, and
+ * one read of their offsets.
+ *
+ * The index is built in three passes, each streaming through the games or
+ * a partition rather than holding the whole index in memory: the games are
+ * scanned for their number of moves, then replayed in parallel, each
+ * position's key and game offset written to a temporary file for its
+ * partition, and finally each partition's table and offsets are filled in
+ * from its file, also in parallel.
+ *
+ * File layout, all numbers big endian:
+ *   "C4GI", version, partition bits, unused     4 ints
+ *   number of game offsets                      long
+ *   position of the game offsets                long
+ *   length of the game record file indexed      long
+ *   for each partition:                         position of its table, number of slots
+ *   tables:                                     slots of key, first game offset, count
+ *   game offsets
+ */
+public class GameIndex implements Closeable {
+
+	public static final byte[] MAGIC = {'C', '4', 'G', 'I'};
+	public static final int VERSION = 1;
+	public static final String FILE_SUFFIX = ".index";
+
+	// Most positions put in one partition, which is held in memory while its table is filled.
+	public static final int POSITIONS_PER_PARTITION = 1 << 21;
+
+	private static final int HEADER_LENGTH = 40;
+	private static final int PARTITION_LENGTH = 16;
+	private static final int SLOT_LENGTH = 24;
+	private static final int OFFSET_LENGTH = 8;
+
+	// Games replayed by a thread at a time while building, and positions it
+	// collects for a partition before writing them to its file.
+	private static final int GAMES_PER_CHUNK = 1 << 12;
+	private static final int POSITIONS_PER_WRITE = 1 << 10;
+
+	private final MappedFile file;
+	private final int partitionBits;
+	private final long offsetCount;
+	private final long gamesLength;
+
+	/**
+	 * Opens an index for reading.
+	 * @param indexFile index file, as written by build
+	 * @throws IOException if the file could not be read or is not an index
+	 */
+	public GameIndex(File indexFile) throws IOException {
+		file = new MappedFile(indexFile);
+		try {
+			boolean valid = file.size() >= HEADER_LENGTH;
+			for (int i = 0; valid && i < MAGIC.length; i++) {
+				valid = file.get(i) == MAGIC[i];
+			}
+			if (!valid || file.getInt(4) != VERSION) {
+				throw new IOException(indexFile + " is not a game index");
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		partitionBits = file.getInt(8);
+		offsetCount = file.getLong(16);
+		gamesLength = file.getLong(32);
+	}
+
+	/**
+	 * Names the index file of a game record file, next to it.
+	 * @param games game record file
+	 * @return its index file
+	 */
+	public static File indexFileOf(File games) {
+		return new File(games.getPath() + FILE_SUFFIX);
+	}
+
+	/**
+	 * Reports the number of positions indexed, counting a position once for each game reaching it.
+	 * @return number of game offsets in the index
+	 */
+	public long getPositionCount() {
+		return offsetCount;
+	}
+
+	/**
+	 * Reports the length of the game record file when it was indexed. If
+	 * games have been added to it since, they are not in the index.
+	 * @return length in bytes
+	 */
+	public long getGamesLength() {
+		return gamesLength;
+	}
+
+	/**
+	 * Finds the games that reached a position with the given key. Rarely, a
+	 * game that reached another position with the same key may be among them.
+	 * @param key Board.hash of the position
+	 * @return offsets of the games in the game record file, in order
+	 */
+	public long[] lookup(long key) {
+		long partition = HEADER_LENGTH + (long) partitionOf(key, partitionBits) * PARTITION_LENGTH;
+		long table = file.getLong(partition);
+		long mask = file.getLong(partition + 8) - 1;
+		for (long slot = key & mask; ; slot = (slot + 1) & mask) {
+			long position = table + slot * SLOT_LENGTH;
+			long count = file.getLong(position + 16);
+			if (count == 0) {
+				return new long[0];
+			}
+			if (file.getLong(position) == key) {
+				long first = file.getLong(position + 8);
+				long[] offsets = new long[(int) count];
+				for (int i = 0; i < offsets.length; i++) {
+					offsets[i] = file.getLong(first + (long) i * OFFSET_LENGTH);
+				}
+				return offsets;
+			}
+		}
+	}
+
+	/**
+	 * Finds the games that reached the position on a board, whatever order
+	 * its tiles were placed in, checking each by replaying it.
+	 * @param games reader of the indexed game record file
+	 * @param position board holding the position
+	 * @return offsets of the games in the game record file, in order
+	 * @throws IOException if a game could not be read
+	 */
+	public List<Long> findGames(GameRecordReader games, Board position) throws IOException {
+		List<Long> found = new ArrayList<Long>();
+		int ply = position.getMoveCount();
+		Board replayed = null;
+		for (long offset : lookup(position.hash())) {
+			games.seek(offset);
+			if (games.getNumColumns() != position.getNumColumns() || games.getNumRows() != position.getNumRows()
+					|| games.getConnectLength() != position.getConnectLength() || games.getMoveCount() < ply) {
+				continue;
+			}
+			if (replayed == null) {
+				replayed = new Board(position.getNumColumns(), position.getNumRows(), position.getConnectLength());
+			}
+			replayed.reset();
+			for (int i = 0; i < ply; i++) {
+				replayed.placeTile(games.getMove(i), 1 + i % Board.NUM_PLAYERS);
+			}
+			if (replayed.equals(position)) {
+				found.add(offset);
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Builds the index of a game record file, replacing any index file
+	 * already there. Every position after each move of each game is indexed.
+	 * @param games game record file
+	 * @param indexFile index file to write
+	 * @param threads number of threads to replay games and fill tables on
+	 * @return number of positions indexed, counting a position once for each game reaching it
+	 * @throws IOException if a file could not be read or written, or a game
+	 * 				 record is not valid
+	 */
+	public static long build(File games, File indexFile, int threads) throws IOException {
+		return build(games, indexFile, threads, POSITIONS_PER_PARTITION);
+	}
+
+	// Build an index with at most about the given number of positions in
+	// each partition, which tests make small.
+	static long build(File games, File indexFile, int threads, int positionsPerPartition) throws IOException {
+		// Pass 1: find where each chunk of games starts, and count the positions.
+		List<Long> chunks = new ArrayList<Long>();
+		long positions = 0;
+		long gamesLength;
+		try (GameRecordReader reader = new GameRecordReader(games)) {
+			gamesLength = reader.size();
+			for (long game = 0; reader.next(); game++) {
+				if (game % GAMES_PER_CHUNK == 0) {
+					chunks.add(reader.getOffset());
+				}
+				positions += reader.getMoveCount();
+			}
+		}
+		int partitionBits = partitionBitsFor(positions, positionsPerPartition);
+
+		File directory = indexFile.getAbsoluteFile().getParentFile();
+		Spill[] spills = new Spill[1 << partitionBits];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i < spills.length; i++) {
+				spills[i] = new Spill(File.createTempFile(indexFile.getName() + "-", ".tmp", directory));
+			}
+
+			// Pass 2: replay the games, writing each position's key and game
+			// offset to its partition's file.
+			AtomicInteger nextChunk = new AtomicInteger();
+			List<Callable<Void>> replays = new ArrayList<Callable<Void>>();
+			for (int i = 0; i < threads; i++) {
+				replays.add(() -> {
+					spillPositions(games, chunks, nextChunk, spills, partitionBits);
+					return null;
+				});
+			}
+			runAll(executor, replays);
+			for (Spill spill : spills) {
+				spill.out.close();
+			}
+
+			// Lay out the file: a table for each partition, at most three
+			// quarters full, then the game offsets of each partition in turn.
+			long[] tables = new long[spills.length];
+			long[] slotCounts = new long[spills.length];
+			long[] firstOffsets = new long[spills.length];
+			long position = HEADER_LENGTH + (long) spills.length * PARTITION_LENGTH;
+			for (int i = 0; i < spills.length; i++) {
+				tables[i] = position;
+				slotCounts[i] = Long.highestOneBit(Math.max(1, spills[i].count * 4 / 3)) << 1;
+				position += slotCounts[i] * SLOT_LENGTH;
+			}
+			long offsetsStart = position;
+			for (int i = 0; i < spills.length; i++) {
+				firstOffsets[i] = position;
+				position += spills[i].count * OFFSET_LENGTH;
+			}
+
+			try (MappedFile index = new MappedFile(indexFile, position)) {
+				index.putInt(4, VERSION);
+				index.putInt(8, partitionBits);
+				index.putLong(16, positions);
+				index.putLong(24, offsetsStart);
+				index.putLong(32, gamesLength);
+				for (int i = 0; i < spills.length; i++) {
+					index.putLong(HEADER_LENGTH + (long) i * PARTITION_LENGTH, tables[i]);
+					index.putLong(HEADER_LENGTH + (long) i * PARTITION_LENGTH + 8, slotCounts[i]);
+				}
+
+				// Pass 3: fill in each partition's table and game offsets from its file.
+				List<Callable<Void>> fills = new ArrayList<Callable<Void>>();
+				for (int i = 0; i < spills.length; i++) {
+					int partition = i;
+					fills.add(() -> {
+						fillPartition(index, spills[partition], tables[partition], slotCounts[partition],
+													firstOffsets[partition]);
+						return null;
+					});
+				}
+				runAll(executor, fills);
+
+				// Written last, so that an index left unfinished is not mistaken for a whole one.
+				index.putInt(0, (MAGIC[0] << 24) | (MAGIC[1] << 16) | (MAGIC[2] << 8) | MAGIC[3]);
+				index.force();
+			}
+		} finally {
+			executor.shutdown();
+			for (Spill spill : spills) {
+				if (spill != null) {
+					spill.out.close();
+					spill.file.delete();
+				}
+			}
+		}
+		return positions;
+	}
+
+	// The number of top bits of the keys to split them into partitions of
+	// at most the given number of positions, if the keys are spread evenly.
+	private static int partitionBitsFor(long positions, int positionsPerPartition) {
+		int partitionBits = 0;
+		while (((long) positionsPerPartition << partitionBits) < positions) {
+			partitionBits++;
+		}
+		return partitionBits;
+	}
+
+	// The partition of a key: its top bits.
+	private static int partitionOf(long key, int partitionBits) {
+		return partitionBits == 0 ? 0 : (int) (key >>> (Long.SIZE - partitionBits));
+	}
+
+	// Run tasks on the executor and wait for them all, passing on the first failure.
+	private static void runAll(ExecutorService executor, List<Callable<Void>> tasks) throws IOException {
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Indexing interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Indexing failed", e.getCause());
+		}
+	}
+
+	// Replay chunks of games until there are none left, writing the key of
+	// each position reached, with the offset of its game, to the partition's
+	// file. Positions are collected per partition and written a batch at a time.
+	private static void spillPositions(File games, List<Long> chunks, AtomicInteger nextChunk, Spill[] spills,
+																		 int partitionBits) throws IOException {
+		long[][] batches = new long[spills.length][2 * POSITIONS_PER_WRITE];
+		int[] batchSizes = new int[spills.length];
+		Board board = null;
+		try (GameRecordReader reader = new GameRecordReader(games)) {
+			for (int chunk = nextChunk.getAndIncrement(); chunk < chunks.size(); chunk = nextChunk.getAndIncrement()) {
+				long end = chunk + 1 < chunks.size() ? chunks.get(chunk + 1) : reader.size();
+				reader.seek(chunks.get(chunk));
+				do {
+					if (board == null || board.getNumColumns() != reader.getNumColumns()
+							|| board.getNumRows() != reader.getNumRows()
+							|| board.getConnectLength() != reader.getConnectLength()) {
+						board = reader.toBoard();
+					} else {
+						reader.replay(board);
+					}
+
+					// Visit the positions from the last back to the first.
+					long offset = reader.getOffset();
+					while (board.getMoveCount() > 0) {
+						long key = board.hash();
+						int partition = partitionOf(key, partitionBits);
+						long[] batch = batches[partition];
+						batch[batchSizes[partition]++] = key;
+						batch[batchSizes[partition]++] = offset;
+						if (batchSizes[partition] == batch.length) {
+							spills[partition].write(batch, batchSizes[partition]);
+							batchSizes[partition] = 0;
+						}
+						board.undoMove();
+					}
+				} while (reader.next() && reader.getOffset() < end);
+			}
+		}
+		for (int i = 0; i < spills.length; i++) {
+			spills[i].write(batches[i], batchSizes[i]);
+		}
+	}
+
+	// Fill in a partition's table from its file of keys and game offsets:
+	// count the games of each key, give each key its share of the
+	// partition's game offsets, then write the game offsets in.
+	private static void fillPartition(MappedFile index, Spill spill, long table, long slotCount, long firstOffset)
+			throws IOException {
+		long[] keys = new long[(int) spill.count];
+		long[] offsets = new long[keys.length];
+		spill.read(keys, offsets);
+		long mask = slotCount - 1;
+		for (long key : keys) {
+			long slot = findSlot(index, table, mask, key);
+			index.putLong(slot, key);
+			index.putLong(slot + 16, index.getLong(slot + 16) + 1);
+		}
+
+		// While the offsets are written, each slot holds where its next one goes.
+		long next = firstOffset;
+		for (long slot = 0; slot <= mask; slot++) {
+			long position = table + slot * SLOT_LENGTH;
+			long count = index.getLong(position + 16);
+			if (count > 0) {
+				index.putLong(position + 8, next);
+				next += count * OFFSET_LENGTH;
+			}
+		}
+		for (int i = 0; i < keys.length; i++) {
+			long slot = findSlot(index, table, mask, keys[i]);
+			long position = index.getLong(slot + 8);
+			index.putLong(position, offsets[i]);
+			index.putLong(slot + 8, position + OFFSET_LENGTH);
+		}
+
+		// Put each slot back to where its offsets start, and sort them so that
+		// they need not be sorted on every lookup.
+		long[] sorted = new long[0];
+		for (long slot = 0; slot <= mask; slot++) {
+			long position = table + slot * SLOT_LENGTH;
+			int count = (int) index.getLong(position + 16);
+			long first = index.getLong(position + 8) - (long) count * OFFSET_LENGTH;
+			index.putLong(position + 8, first);
+			if (count > 1) {
+				if (sorted.length < count) {
+					sorted = new long[count];
+				}
+				for (int i = 0; i < count; i++) {
+					sorted[i] = index.getLong(first + (long) i * OFFSET_LENGTH);
+				}
+				Arrays.sort(sorted, 0, count);
+				for (int i = 0; i < count; i++) {
+					index.putLong(first + (long) i * OFFSET_LENGTH, sorted[i]);
+				}
+			}
+		}
+	}
+
+	// Position of the slot holding a key, or of the empty slot where it belongs.
+	private static long findSlot(MappedFile index, long table, long mask, long key) {
+		for (long slot = key & mask; ; slot = (slot + 1) & mask) {
+			long position = table + slot * SLOT_LENGTH;
+			if (index.getLong(position + 16) == 0 || index.getLong(position) == key) {
+				return position;
+			}
+		}
+	}
+
+	// Temporary file of the keys and game offsets of one partition, written
+	// to by every thread replaying games.
+	private static class Spill {
+		final File file;
+		final FileChannel out;
+		final ByteBuffer bytes = ByteBuffer.allocate(2 * POSITIONS_PER_WRITE * Long.BYTES);
+		long count;
+
+		Spill(File file) throws IOException {
+			this.file = file;
+			out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+		}
+
+		synchronized void write(long[] pairs, int length) throws IOException {
+			bytes.clear();
+			bytes.asLongBuffer().put(pairs, 0, length);
+			bytes.limit(length * Long.BYTES);
+			while (bytes.hasRemaining()) {
+				out.write(bytes);
+			}
+			count += length / 2;
+		}
+
+		// Read the keys and game offsets back.
+		void read(long[] keys, long[] offsets) throws IOException {
+			try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				LongBuffer pairs = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size()).asLongBuffer();
+				for (int i = 0; i < keys.length; i++) {
+					keys[i] = pairs.get();
+					offsets[i] = pairs.get();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GameIndexTest {
+
+	private static final int GAMES = 2000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// Every position of every game is found in the index, built on several
+	// threads, with the positions split between many partitions.
+	@Test
+	public void testEveryPositionFound() throws IOException {
+		File games = folder.newFile("games.c4g");
+		List<Board> boards = writeRandomGames(games, GAMES, 1);
+		File indexFile = GameIndex.indexFileOf(games);
+		long positions = GameIndex.build(games, indexFile, 3, 1000);
+
+		long moves = 0;
+		try (GameRecordReader reader = new GameRecordReader(games); GameRecordReader searched = new GameRecordReader(games);
+				 GameIndex index = new GameIndex(indexFile)) {
+			assertEquals("should report the positions indexed", positions, index.getPositionCount());
+			assertEquals("should record the games file length", games.length(), index.getGamesLength());
+			for (Board board : boards) {
+				assertTrue("should read the game", reader.next());
+				long offset = reader.getOffset();
+				Board position = new Board(7, 6, 4);
+				for (int move : board.getMoves()) {
+					position.placeTile(move, 1 + position.getMoveCount() % 2);
+					assertTrue("should find the game from its position after move " + position.getMoveCount(),
+										 index.findGames(searched, position).contains(offset));
+					moves++;
+				}
+			}
+		}
+		assertEquals("should index a position per move", moves, positions);
+	}
+
+	// Games reaching a position by other orders of moves are found, and
+	// games that never reached it are not.
+	@Test
+	public void testTranspositions() throws IOException {
+		File games = folder.newFile("games.c4g");
+		try (GameRecordWriter writer = new GameRecordWriter(games, false)) {
+			writer.write(played("1,2,3,4"));
+			writer.write(played("3,4,1,2"));
+			writer.write(played("3,2,1,4"));
+			writer.write(played("1,2,3"));
+		}
+		File indexFile = GameIndex.indexFileOf(games);
+		GameIndex.build(games, indexFile, 1);
+		try (GameRecordReader reader = new GameRecordReader(games); GameIndex index = new GameIndex(indexFile)) {
+			assertEquals("should find the games reaching the position in any order", 3,
+									 index.findGames(reader, played("3,2,1,4")).size());
+			assertEquals("should find the games with the same first three moves", 3,
+									 index.findGames(reader, played("3,2,1")).size());
+			assertEquals("should find no games for an unplayed position", 0,
+									 index.findGames(reader, played("4,4,4")).size());
+		}
+	}
+
+	// A file larger than a segment is read and written across segment boundaries.
+	@Test
+	public void testSegments() throws IOException {
+		File file = folder.newFile("segments");
+		try (MappedFile mapped = new MappedFile(file, 100, 4)) {
+			for (long position = 4; position + 8 <= 100; position += 8) {
+				mapped.putLong(position, position * 0x0101010101010101L);
+			}
+		}
+		try (MappedFile mapped = new MappedFile(file, -1, 4)) {
+			assertEquals("should map the whole file", 100, mapped.size());
+			for (long position = 4; position + 8 <= 100; position += 8) {
+				assertEquals("should read the long at " + position, position * 0x0101010101010101L,
+										 mapped.getLong(position));
+			}
+		}
+	}
+
+	// Board of the default 7x6 game with the given comma separated moves played.
+	private static Board played(String columns) {
+		Board board = new Board(7, 6, 4);
+		for (String column : columns.split(",")) {
+			board.placeTile(Integer.parseInt(column), 1 + board.getMoveCount() % 2);
+		}
+		return board;
+	}
+
+	// Write random 7x6 games to a file, returning their boards.
+	private static List<Board> writeRandomGames(File file, int count, long seed) throws IOException {
+		Random random = new Random(seed);
+		RandomPlayer player = new RandomPlayer(seed);
+		List<Board> boards = new ArrayList<Board>();
+		try (GameRecordWriter writer = new GameRecordWriter(file, false)) {
+			for (int i = 0; i < count; i++) {
+				Board board = new Board(7, 6, 4);
+				int moves = 1 + random.nextInt(42);
+				while (board.getMoveCount() < moves && GameRecord.outcomeOf(board) == GameRecord.ONGOING) {
+					int current = 1 + board.getMoveCount() % 2;
+					board.placeTile(player.chooseMove(board, current), current);
+				}
+				writer.write(board);
+				boards.add(board);
+			}
+		}
+		return boards;
+	}
+}
@@ -0,0 +1,97 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Binary format for storing Connect-Four-Cli games, many to a file.
+ *
+ * A game record file starts with the four bytes "C4GR" and a version
+ * byte, followed by any number of records, one per game:
+ *   byte 0      number of columns
+ *   byte 1      number of rows
+ *   byte 2      connect length
+ *   byte 3      outcome: ONGOING, PLAYER_1_WIN, PLAYER_2_WIN or DRAW
+ *   bytes 4-5   number of moves, big endian
+ *   bytes 6-    the column of each move, two to a byte (first move in the
+ *               high half) on boards of up to 15 columns, otherwise one
+ *               to a byte
+ * A game of 42 moves on a 7x6 board takes 27 bytes.
+ *
+ * Records are written with GameRecordWriter and read with GameRecordReader.
+ */
+public class GameRecord {
+
+	public static final byte[] MAGIC = {'C', '4', 'G', 'R'};
+	public static final int VERSION = 1;
+	public static final int FILE_HEADER_LENGTH = MAGIC.length + 1;
+	public static final int RECORD_HEADER_LENGTH = 6;
+
+	// Outcomes of a recorded game.
+	public static final int ONGOING = 0;
+	public static final int PLAYER_1_WIN = 1;
+	public static final int PLAYER_2_WIN = 2;
+	public static final int DRAW = 3;
+
+	// Largest dimensions and number of moves that fit in a record.
+	public static final int MAX_DIMENSION = 0xFF;
+	public static final int MAX_MOVES = 0xFFFF;
+
+	// Boards with up to this many columns store two moves per byte.
+	public static final int MAX_PACKED_COLUMNS = 15;
+
+	private GameRecord() {
+	}
+
+	/**
+	 * Reports the outcome of the game on a board, as it is recorded.
+	 * @param board board to check
+	 * @return PLAYER_1_WIN or PLAYER_2_WIN if a player has won, DRAW if
+	 * 				 the board is full otherwise, or ONGOING
+	 */
+	public static int outcomeOf(Board board) {
+		if (board.isWinState(1)) {
+			return PLAYER_1_WIN;
+		} else if (board.isWinState(2)) {
+			return PLAYER_2_WIN;
+		}
+		return board.boardFilled() ? DRAW : ONGOING;
+	}
+
+	/**
+	 * Reports the number of bytes taken by the moves of a record.
+	 * @param numColumns number of columns of the board
+	 * @param moveCount number of moves
+	 * @return length of the moves
+	 */
+	public static int movesLength(int numColumns, int moveCount) {
+		return numColumns <= MAX_PACKED_COLUMNS ? (moveCount + 1) / 2 : moveCount;
+	}
+
+	/**
+	 * Saves the game on a board as the only record of a new file,
+	 * replacing any file already there.
+	 * @param board board to save
+	 * @param file file to write
+	 * @throws IOException if the file could not be written
+	 * @throws IllegalArgumentException if the board is too large to record
+	 */
+	public static void save(Board board, File file) throws IOException {
+		try (GameRecordWriter writer = new GameRecordWriter(file, false)) {
+			writer.write(board);
+		}
+	}
+
+	/**
+	 * Loads the first game of a record file onto a new board.
+	 * @param file file to read
+	 * @return board with the recorded moves played on it
+	 * @throws IOException if the file could not be read, or holds no valid game
+	 */
+	public static Board load(File file) throws IOException {
+		try (GameRecordReader reader = new GameRecordReader(file)) {
+			if (!reader.next()) {
+				throw new IOException(file + " holds no games");
+			}
+			return reader.toBoard();
+		}
+	}
+}
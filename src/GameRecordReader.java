@@ -0,0 +1,172 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Reads games in the GameRecord format from a memory-mapped file.
+ *
+ * The reader moves from record to record with next, or to a known record
+ * with seek, and reads the fields of the current record straight from the
+ * mapped file, without copying its moves anywhere. Readers of the same
+ * file may be used on different threads.
+ */
+public class GameRecordReader implements Closeable {
+
+	private final MappedFile buffer;
+	private long record = -1;					// offset of the current record, -1 before the first
+	private long nextRecord = GameRecord.FILE_HEADER_LENGTH;
+
+	/**
+	 * Opens a game record file for reading.
+	 * @param file file to read
+	 * @throws IOException if the file could not be read or is not a game record file
+	 */
+	public GameRecordReader(File file) throws IOException {
+		buffer = new MappedFile(file);
+		try {
+			boolean valid = buffer.size() >= GameRecord.FILE_HEADER_LENGTH;
+			for (int i = 0; valid && i < GameRecord.MAGIC.length; i++) {
+				valid = buffer.get(i) == GameRecord.MAGIC[i];
+			}
+			if (!valid || buffer.get(GameRecord.MAGIC.length) != GameRecord.VERSION) {
+				throw new IOException(file + " is not a game record file");
+			}
+		} catch (IOException e) {
+			buffer.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Moves to the next record.
+	 * @return false if there are no more records
+	 * @throws IOException if the next record runs past the end of the file
+	 */
+	public boolean next() throws IOException {
+		if (nextRecord >= buffer.size()) {
+			return false;
+		}
+		seek(nextRecord);
+		return true;
+	}
+
+	/**
+	 * Moves to the record at the given offset, as returned by
+	 * GameRecordWriter.write or getOffset.
+	 * @param offset offset of a record in the file
+	 * @throws IOException if there is no whole record at the offset
+	 */
+	public void seek(long offset) throws IOException {
+		if (offset < GameRecord.FILE_HEADER_LENGTH || offset + GameRecord.RECORD_HEADER_LENGTH > buffer.size()) {
+			throw new IOException("No record at offset " + offset);
+		}
+		long start = offset;
+		long end = start + GameRecord.RECORD_HEADER_LENGTH
+				+ GameRecord.movesLength(buffer.get(start) & 0xFF, buffer.getShort(start + 4) & 0xFFFF);
+		if (end > buffer.size()) {
+			throw new IOException("Record at offset " + offset + " runs past the end of the file");
+		}
+		record = start;
+		nextRecord = end;
+	}
+
+	/**
+	 * Reports the offset of the current record in the file.
+	 * @return offset of the record
+	 */
+	public long getOffset() {
+		return record;
+	}
+
+	public int getNumColumns() {
+		return buffer.get(record) & 0xFF;
+	}
+
+	public int getNumRows() {
+		return buffer.get(record + 1) & 0xFF;
+	}
+
+	public int getConnectLength() {
+		return buffer.get(record + 2) & 0xFF;
+	}
+
+	/**
+	 * Reports the recorded outcome of the game.
+	 * @return GameRecord.ONGOING, PLAYER_1_WIN, PLAYER_2_WIN or DRAW
+	 */
+	public int getOutcome() {
+		return buffer.get(record + 3);
+	}
+
+	public int getMoveCount() {
+		return buffer.getShort(record + 4) & 0xFFFF;
+	}
+
+	/**
+	 * Reads a move of the current record.
+	 * @param index position of the move in the game, starting at 0
+	 * @return the column played
+	 * @throws IndexOutOfBoundsException if index is not less than the move count
+	 */
+	public int getMove(int index) {
+		if (index < 0 || index >= getMoveCount()) {
+			throw new IndexOutOfBoundsException("Move " + index + " of " + getMoveCount());
+		}
+		long movesStart = record + GameRecord.RECORD_HEADER_LENGTH;
+		if (getNumColumns() <= GameRecord.MAX_PACKED_COLUMNS) {
+			int packed = buffer.get(movesStart + index / 2);
+			return (index % 2 == 0) ? (packed >>> 4) & 0xF : packed & 0xF;
+		}
+		return buffer.get(movesStart + index) & 0xFF;
+	}
+
+	/**
+	 * Plays the moves of the current record on a new board, players alternating from player 1.
+	 * @return board holding the recorded game
+	 * @throws IOException if the record does not hold a valid game
+	 */
+	public Board toBoard() throws IOException {
+		Board board;
+		try {
+			board = new Board(getNumColumns(), getNumRows(), getConnectLength());
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Record at offset " + record + " has invalid dimensions", e);
+		}
+		replay(board);
+		return board;
+	}
+
+	/**
+	 * Clears a board and plays the moves of the current record on it,
+	 * players alternating from player 1.
+	 * @param board board of the record's dimensions
+	 * @throws IOException if the record does not hold a valid game for the board
+	 */
+	public void replay(Board board) throws IOException {
+		if (board.getNumColumns() != getNumColumns() || board.getNumRows() != getNumRows()
+				|| board.getConnectLength() != getConnectLength()) {
+			throw new IOException("Record at offset " + record + " is not of a " + board.getNumColumns() + "x"
+														+ board.getNumRows() + " board");
+		}
+		board.reset();
+		int moveCount = getMoveCount();
+		for (int i = 0; i < moveCount; i++) {
+			if (!board.placeTile(getMove(i), 1 + i % Board.NUM_PLAYERS)) {
+				throw new IOException("Record at offset " + record + " has an illegal move " + (i + 1));
+			}
+		}
+	}
+
+	/**
+	 * Reports the size of the file.
+	 * @return size in bytes
+	 */
+	public long size() {
+		return buffer.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer.close();
+	}
+}
@@ -0,0 +1,142 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GameRecordTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// Games written to a file are read back with the same moves and outcomes.
+	@Test
+	public void testRoundTrip() throws IOException {
+		File file = folder.newFile("games.c4g");
+		Random random = new Random(1);
+		Board[] boards = new Board[100];
+		long[] offsets = new long[boards.length];
+		try (GameRecordWriter writer = new GameRecordWriter(file, false)) {
+			for (int i = 0; i < boards.length; i++) {
+				// Wide boards store a move per byte, narrow ones two.
+				boards[i] = new Board(i % 2 == 0 ? 7 : 20, 6, 4);
+				RandomPlayer player = new RandomPlayer(random.nextLong());
+				int moves = random.nextInt(20);
+				for (int move = 0; move < moves && GameRecord.outcomeOf(boards[i]) == GameRecord.ONGOING; move++) {
+					int current = 1 + move % 2;
+					boards[i].placeTile(player.chooseMove(boards[i], current), current);
+				}
+				offsets[i] = writer.write(boards[i]);
+			}
+		}
+
+		try (GameRecordReader reader = new GameRecordReader(file)) {
+			for (int i = 0; i < boards.length; i++) {
+				assertTrue("should read game " + i, reader.next());
+				assertEquals("should be at its offset", offsets[i], reader.getOffset());
+				assertEquals("should keep the columns", boards[i].getNumColumns(), reader.getNumColumns());
+				assertEquals("should keep the outcome", GameRecord.outcomeOf(boards[i]), reader.getOutcome());
+				assertEquals("should keep the moves", boards[i].getMoves(), reader.toBoard().getMoves());
+			}
+			assertFalse("should have no more games", reader.next());
+
+			reader.seek(offsets[42]);
+			assertEquals("should seek to a game", boards[42], reader.toBoard());
+		}
+	}
+
+	// A full 7x6 game takes two moves to a byte after a 6 byte header.
+	@Test
+	public void testPackedLength() throws IOException {
+		Board board = new Board(7, 6, 4);
+		String columns = "1,2,3,4,5,6,7,1,2,3,4,5,6,7,2,1,4,3,6,5,7,1,2,3,4,5,6,7,1,2,3,4,5,6,7,2,1,4,3,6,5,7";
+		for (String column : columns.split(",")) {
+			board.placeTile(Integer.parseInt(column), 1 + board.getMoveCount() % 2);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GameRecordWriter writer = new GameRecordWriter(bytes)) {
+			writer.write(board);
+		}
+		assertEquals("should take 27 bytes", GameRecord.FILE_HEADER_LENGTH + 27, bytes.size());
+	}
+
+	// Records appended to a file follow the ones already in it.
+	@Test
+	public void testAppend() throws IOException {
+		File file = folder.newFile("games.c4g");
+		Board board = new Board(4, 4, 4);
+		board.placeTile(2, 1);
+		GameRecord.save(board, file);
+		board.placeTile(3, 2);
+		try (GameRecordWriter writer = new GameRecordWriter(file, true)) {
+			assertEquals("should start after the first game", file.length(), writer.write(board));
+		}
+		try (GameRecordReader reader = new GameRecordReader(file)) {
+			assertTrue(reader.next());
+			assertEquals("first game should have one move", 1, reader.getMoveCount());
+			assertTrue(reader.next());
+			assertEquals("second game should have two moves", 2, reader.getMoveCount());
+			assertEquals("should read the second move", 3, reader.getMove(1));
+		}
+	}
+
+	// Files that are not game records, or hold illegal games, are not loaded.
+	@Test
+	public void testInvalidFiles() throws IOException {
+		File text = folder.newFile("moves.txt");
+		Files.write(text.toPath(), "1\n2\n".getBytes());
+		try {
+			GameRecord.load(text);
+			fail("should not load a text file");
+		} catch (IOException e) {
+			// expected
+		}
+
+		// Five tiles in a column of four rows.
+		File illegal = folder.newFile("illegal.c4g");
+		Files.write(illegal.toPath(), new byte[] {'C', '4', 'G', 'R', 1, 4, 4, 4, 0, 0, 5, 0x11, 0x11, 0x10});
+		try {
+			GameRecord.load(illegal);
+			fail("should not load an illegal game");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	// SAVE and LOAD resume a game with the same player to move, and are
+	// not available unless the session allows files.
+	@Test
+	public void testSaveAndLoadCommands() throws IOException {
+		String path = new File(folder.getRoot(), "game.c4g").getPath();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes);
+		GameSession session = new GameSession(new Board(), false, 0, true);
+		session.execute("PUT 1", GameSession.ANY_PLAYER, out);
+		session.execute("PUT 2", GameSession.ANY_PLAYER, out);
+		session.execute("PUT 1", GameSession.ANY_PLAYER, out);
+		session.execute("SAVE " + path, GameSession.ANY_PLAYER, out);
+		session.execute("PUT 3", GameSession.ANY_PLAYER, out);
+		session.execute("LOAD " + path, GameSession.ANY_PLAYER, out);
+		assertEquals("should report each command", "OK\nOK\nOK\nOK\nOK\nOK\n", bytes.toString());
+		assertEquals("should resume the saved moves", 3, session.getBoard().getMoveCount());
+		assertEquals("should resume with player 2 to move", 2, session.getCurrentPlayer());
+
+		GameSession wide = new GameSession(new Board(5, 4, 4), false, 0, true);
+		bytes.reset();
+		wide.execute("LOAD " + path, GameSession.ANY_PLAYER, out);
+		assertEquals("should not load a game of another board", "ERROR\n", bytes.toString());
+
+		GameSession remote = new GameSession(new Board(), false, 0);
+		bytes.reset();
+		remote.execute("LOAD " + path, GameSession.ANY_PLAYER, out);
+		assertTrue("should print usage without files", bytes.toString().startsWith("Unrecognized command."));
+		assertEquals("should not load without files", 0, remote.getBoard().getMoveCount());
+	}
+}
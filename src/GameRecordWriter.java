@@ -0,0 +1,103 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes games to a stream in the GameRecord format, one record per
+ * game, through a buffer.
+ */
+public class GameRecordWriter implements Closeable {
+
+	private final DataOutputStream out;
+	private long position;					// offset in the file of the next record
+	private byte[] moves = new byte[0];
+
+	/**
+	 * Creates a writer to a file.
+	 * @param file file to write
+	 * @param append whether to add records to the end of the file if it
+	 * 				 exists and is not empty, rather than replace it
+	 * @throws IOException if the file could not be opened
+	 */
+	public GameRecordWriter(File file, boolean append) throws IOException {
+		boolean continuing = append && file.length() > 0;
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, continuing)));
+		if (continuing) {
+			position = file.length();
+		} else {
+			writeFileHeader();
+		}
+	}
+
+	/**
+	 * Creates a writer to a stream, starting a new file.
+	 * @param stream stream to write to
+	 * @throws IOException if the file header could not be written
+	 */
+	public GameRecordWriter(OutputStream stream) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(stream));
+		writeFileHeader();
+	}
+
+	/**
+	 * Writes the game on a board as the next record.
+	 * @param board board holding the game
+	 * @return offset of the record in the file
+	 * @throws IOException if the record could not be written
+	 * @throws IllegalArgumentException if the board is too large to record
+	 */
+	public long write(Board board) throws IOException {
+		int numColumns = board.getNumColumns();
+		int moveCount = board.getMoveCount();
+		if (numColumns > GameRecord.MAX_DIMENSION || board.getNumRows() > GameRecord.MAX_DIMENSION
+				|| moveCount > GameRecord.MAX_MOVES) {
+			throw new IllegalArgumentException("A " + numColumns + "x" + board.getNumRows() + " board with "
+																				 + moveCount + " moves is too large to record");
+		}
+		if (moves.length < moveCount) {
+			moves = new byte[moveCount];
+		}
+		board.copyMoves(moves);
+
+		long offset = position;
+		out.writeByte(numColumns);
+		out.writeByte(board.getNumRows());
+		out.writeByte(board.getConnectLength());
+		out.writeByte(GameRecord.outcomeOf(board));
+		out.writeShort(moveCount);
+		if (numColumns <= GameRecord.MAX_PACKED_COLUMNS) {
+			// Two moves to a byte, the first in the high half.
+			for (int i = 0; i < moveCount; i += 2) {
+				int second = (i + 1 < moveCount) ? moves[i + 1] : 0;
+				out.writeByte(moves[i] << 4 | second);
+			}
+		} else {
+			out.write(moves, 0, moveCount);
+		}
+		position += GameRecord.RECORD_HEADER_LENGTH + GameRecord.movesLength(numColumns, moveCount);
+		return offset;
+	}
+
+	/**
+	 * Writes any buffered records to the stream.
+	 * @throws IOException if they could not be written
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void writeFileHeader() throws IOException {
+		out.write(GameRecord.MAGIC);
+		out.writeByte(GameRecord.VERSION);
+		position = GameRecord.FILE_HEADER_LENGTH;
+	}
+}
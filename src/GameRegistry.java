@@ -0,0 +1,182 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The games being served by a game server, by id.
+ *
+ * A game is created by its first player and joined once by its second,
+ * and may be watched by any number of spectators. It is forgotten once
+ * both players have left, and cannot be joined or watched after that.
+ */
+public class GameRegistry {
+
+	// Default time the computer may take per move, for AI and HINT, in milliseconds.
+	public static final long DEFAULT_COMPUTER_TIME_MILLIS = 1000;
+
+	// Default size of each game's solver table, 2^14 entries of 16 bytes,
+	// 256 KiB, so that thousands of games searching fit in memory.
+	public static final int DEFAULT_SOLVER_TABLE_BITS = 14;
+
+	private final int numColumns;
+	private final int numRows;
+	private final int connectLength;
+	private final long computerTimeMillis;
+	private final int solverTableBits;
+	private final ConcurrentHashMap<Integer, Game> games = new ConcurrentHashMap<Integer, Game>();
+	private final AtomicInteger nextGameId = new AtomicInteger(1);
+	private final AnalysisCache analysisCache = new AnalysisCache(AnalysisCache.DEFAULT_CAPACITY);
+
+	/**
+	 * A game being served, with the number of its players still connected.
+	 */
+	public static class Game {
+		private final int id;
+		private final GameSession session;
+		private final GameBroadcast broadcast = new GameBroadcast();
+		private int players = 1;				// guarded by this
+		private boolean joined;					// whether player 2 has joined, guarded by this
+
+		Game(int id, GameSession session) {
+			this.id = id;
+			this.session = session;
+			session.setBroadcast(broadcast);
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public GameSession getSession() {
+			return session;
+		}
+
+		public GameBroadcast getBroadcast() {
+			return broadcast;
+		}
+	}
+
+	/**
+	 * Creates a registry of games on boards of the given size, whose
+	 * computer player takes the default time per move.
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @throws IllegalArgumentException if the dimensions are not valid
+	 */
+	public GameRegistry(int numColumns, int numRows, int connectLength) {
+		this(numColumns, numRows, connectLength, DEFAULT_COMPUTER_TIME_MILLIS);
+	}
+
+	/**
+	 * Creates a registry of games on boards of the given size.
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param computerTimeMillis time the computer may take per move, for AI
+	 * 				 and HINT, in milliseconds
+	 * @throws IllegalArgumentException if the dimensions are not valid
+	 */
+	public GameRegistry(int numColumns, int numRows, int connectLength, long computerTimeMillis) {
+		this(numColumns, numRows, connectLength, computerTimeMillis, DEFAULT_SOLVER_TABLE_BITS);
+	}
+
+	/**
+	 * Creates a registry of games on boards of the given size.
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param computerTimeMillis time the computer may take per move, for AI
+	 * 				 and HINT, in milliseconds
+	 * @param solverTableBits each game's solver table holds 2^solverTableBits
+	 * 				 results, made when the game first searches
+	 * @throws IllegalArgumentException if the dimensions or table size are not valid
+	 */
+	public GameRegistry(int numColumns, int numRows, int connectLength, long computerTimeMillis,
+											int solverTableBits) {
+		// Check the dimensions and table size now rather than on every game.
+		new Board(numColumns, numRows, connectLength);
+		if (solverTableBits < 0 || solverTableBits > 30) {
+			throw new IllegalArgumentException("Table size bits must be between 0 and 30, was " + solverTableBits);
+		}
+		this.numColumns = numColumns;
+		this.numRows = numRows;
+		this.connectLength = connectLength;
+		this.computerTimeMillis = computerTimeMillis;
+		this.solverTableBits = solverTableBits;
+	}
+
+	/**
+	 * Starts a new game, with its creator as player 1.
+	 * @return the new game
+	 */
+	public Game create() {
+		int id = nextGameId.getAndIncrement();
+		GameSession session = new GameSession(new Board(numColumns, numRows, connectLength), false,
+																				computerTimeMillis);
+		session.setSolverTableBits(solverTableBits);
+		session.setAnalysisCache(analysisCache);
+		Game game = new Game(id, session);
+		games.put(id, game);
+		return game;
+	}
+
+	/**
+	 * Joins the game with the given id as player 2.
+	 * @param id id of the game
+	 * @return the game, or null if there is no such game or it already has two players
+	 */
+	public Game join(int id) {
+		Game game = games.get(id);
+		if (game == null) {
+			return null;
+		}
+		synchronized (game) {
+			// Player 2's place is taken only once, and a game whose
+			// players have all left cannot be joined.
+			if (game.joined || game.players == 0) {
+				return null;
+			}
+			game.joined = true;
+			game.players++;
+		}
+		return game;
+	}
+
+	/**
+	 * Finds a game to watch.
+	 * @param id id of the game
+	 * @return the game, or null if there is no such game
+	 */
+	public Game watch(int id) {
+		return games.get(id);
+	}
+
+	/**
+	 * Removes a player from a game, forgetting the game once no one is left.
+	 * @param game game the player leaves
+	 */
+	public void leave(Game game) {
+		synchronized (game) {
+			game.players--;
+			if (game.players == 0) {
+				games.remove(game.id);
+			}
+		}
+	}
+
+	/**
+	 * Reports the cache of hints shared by the games.
+	 * @return the analysis cache
+	 */
+	public AnalysisCache getAnalysisCache() {
+		return analysisCache;
+	}
+
+	/**
+	 * Reports the number of games with at least one player connected.
+	 * @return number of games
+	 */
+	public int size() {
+		return games.size();
+	}
+}
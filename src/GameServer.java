@@ -0,0 +1,328 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves Connect-Four-Cli games over TCP, so that two players may play
+ * each other from different machines.
+ *
+ * Each connection speaks the command line game's protocol: the server
+ * writes ">" when it is ready for a command, and the response to each
+ * command line is written before the next ">". A connection first starts
+ * a game with "CREATE", to which the server replies "GAME <id>" and the
+ * connection plays player 1, or joins one with "JOIN <id>", playing
+ * player 2. After that the game commands are those of GameSession, and
+ * a player may only place a tile on their own turn. "EXIT" closes the
+ * connection, and a game is forgotten once both players have left.
+ *
+ * A connection may instead watch a game with "WATCH <id>". It is sent
+ * "OK", then no more prompts, only the game's moves as they are made
+ * (see GameBroadcast): first "MOVES" with the columns played so far,
+ * then "MOVE <player> <column>", with " WIN" or " DRAW" if the move ended
+ * the game, and "UNDO" when a tile is taken back. A spectator too slow to
+ * keep up is sent "MOVES" again in place of the moves it missed. It
+ * leaves with "EXIT".
+ *
+ * Each connection is served by its own thread, blocking on its socket.
+ * Statistics of the commands served are written to standard error at a
+ * fixed interval.
+ */
+public class GameServer {
+
+	public static final String CREATE_GAME_COMMAND = "CREATE";
+	public static final String JOIN_GAME_COMMAND = "JOIN";
+	public static final String WATCH_GAME_COMMAND = "WATCH";
+	public static final String GAME_MESSAGE = "GAME";
+	public static final String NO_GAME_MESSAGE = "Please CREATE or JOIN a game first.";
+	public static final String PROMPT = ">";
+
+	// Seconds between statistics reports.
+	public static final int STATS_INTERVAL_SECONDS = 10;
+
+	// Milliseconds a spectator's thread waits for an event before checking
+	// whether the spectator has left, and then waits for it to say so.
+	private static final int WATCH_POLL_MILLIS = 1000;
+
+	private final ServerSocket serverSocket;
+	private final GameRegistry games;
+	private final ExecutorService connectionThreads = Executors.newCachedThreadPool();
+	private final ScheduledExecutorService statsReporter = Executors.newSingleThreadScheduledExecutor();
+	private final AtomicInteger connections = new AtomicInteger();
+	private final ServerStats stats = new ServerStats();
+
+	/**
+	 * Creates a server for games on boards of the given size.
+	 * Call start to begin serving.
+	 * @param port port to listen on, or 0 for any free port
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @throws IOException if the port cannot be listened on
+	 * @throws IllegalArgumentException if the dimensions are not valid
+	 */
+	public GameServer(int port, int numColumns, int numRows, int connectLength) throws IOException {
+		this(port, numColumns, numRows, connectLength, GameRegistry.DEFAULT_COMPUTER_TIME_MILLIS);
+	}
+
+	/**
+	 * Creates a server for games on boards of the given size.
+	 * Call start to begin serving.
+	 * @param port port to listen on, or 0 for any free port
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param computerTimeMillis time the computer may take per move, for AI
+	 * 				 and HINT, in milliseconds
+	 * @throws IOException if the port cannot be listened on
+	 * @throws IllegalArgumentException if the dimensions are not valid
+	 */
+	public GameServer(int port, int numColumns, int numRows, int connectLength, long computerTimeMillis)
+			throws IOException {
+		this(port, numColumns, numRows, connectLength, computerTimeMillis, GameRegistry.DEFAULT_SOLVER_TABLE_BITS);
+	}
+
+	/**
+	 * Creates a server for games on boards of the given size.
+	 * Call start to begin serving.
+	 * @param port port to listen on, or 0 for any free port
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param computerTimeMillis time the computer may take per move, for AI
+	 * 				 and HINT, in milliseconds
+	 * @param solverTableBits each game's solver table holds 2^solverTableBits results
+	 * @throws IOException if the port cannot be listened on
+	 * @throws IllegalArgumentException if the dimensions or table size are not valid
+	 */
+	public GameServer(int port, int numColumns, int numRows, int connectLength, long computerTimeMillis,
+											 int solverTableBits) throws IOException {
+		games = new GameRegistry(numColumns, numRows, connectLength, computerTimeMillis, solverTableBits);
+		serverSocket = new ServerSocket(port);
+	}
+
+	/**
+	 * Begins accepting connections and reporting statistics, on threads of the server.
+	 */
+	public void start() {
+		connectionThreads.execute(this::acceptConnections);
+		statsReporter.scheduleAtFixedRate(() -> {
+			stats.report(System.err, games.size(), connections.get());
+			games.getAnalysisCache().report(System.err);
+		}, STATS_INTERVAL_SECONDS, STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops accepting connections and closes the server socket. Connections
+	 * already open are served until they close.
+	 */
+	public void stop() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// Closing anyway
+		}
+		connectionThreads.shutdown();
+		statsReporter.shutdown();
+	}
+
+	/**
+	 * Reports the port the server listens on.
+	 * @return port number
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Reports the number of games with at least one player connected.
+	 * @return number of games
+	 */
+	public int getGameCount() {
+		return games.size();
+	}
+
+	/**
+	 * Reports the number of commands served so far.
+	 * @return number of commands
+	 */
+	public long getCommandCount() {
+		return stats.getCommandCount();
+	}
+
+	// Accept connections until the server socket is closed, serving each
+	// on a thread of its own.
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connectionThreads.execute(() -> serve(socket));
+			} catch (IOException e) {
+				// Server socket closed, or the connection failed before it began
+			}
+		}
+	}
+
+	// Serve the commands of one connection until it exits or closes.
+	private void serve(Socket socket) {
+		connections.incrementAndGet();
+		GameRegistry.Game game = null;
+		int player = 0;
+		Command command = new Command();		// reused for each lobby command line
+		try (Socket connection = socket;
+				 BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+				 PrintStream out = new PrintStream(new BufferedOutputStream(connection.getOutputStream()))) {
+			out.print(PROMPT);
+			out.flush();
+			String line;
+			while ((line = in.readLine()) != null) {
+				long start = System.nanoTime();
+				boolean open;
+				GameRegistry.Game watched = null;
+				boolean played = game != null;
+				if (played) {
+					open = game.getSession().execute(line, player, out);
+				} else {
+					// Lobby commands are parsed as NioGameServer parses them, so
+					// that both servers answer every line alike.
+					command.parse(line);
+					Command.Type type = command.getType();
+					int words = command.getWordCount();
+					open = true;
+					if (type == Command.Type.CREATE && words == 1) {
+						game = games.create();
+						player = 1;
+						out.println(GAME_MESSAGE + " " + game.getId());
+					} else if (type == Command.Type.JOIN && words == 2) {
+						game = joinGame(command, out);
+						player = 2;
+					} else if (type == Command.Type.WATCH && words == 2) {
+						watched = watchGame(command, out);
+						open = watched == null;
+					} else if (type == Command.Type.EXIT && words == 1) {
+						open = false;
+					} else {
+						out.println(NO_GAME_MESSAGE);
+					}
+				}
+				if (open) {
+					out.print(PROMPT);
+				}
+				flush(out, played);
+				stats.record(System.nanoTime() - start);
+				if (watched != null) {
+					watch(watched, in, out);
+				}
+				if (!open) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			// Connection lost; the player has left the game
+		} finally {
+			if (game != null) {
+				games.leave(game);
+			}
+			connections.decrementAndGet();
+		}
+	}
+
+	// Find the game with the id given by the command to watch, telling the
+	// spectator whether they could. Returns the game, or null if there is no such game.
+	private GameRegistry.Game watchGame(Command command, PrintStream out) {
+		GameRegistry.Game game = command.hasNumber() ? games.watch(command.getNumber()) : null;
+		out.println(game == null ? GameSession.ERROR_MESSAGE : GameSession.SUCCESS_MESSAGE);
+		return game;
+	}
+
+	// Send a game's events to a spectator as they are published, until the
+	// spectator exits or the connection is lost. The connection is read on
+	// a thread of its own, which wakes this one when the spectator leaves.
+	private void watch(GameRegistry.Game game, BufferedReader in, PrintStream out) {
+		GameBroadcast.Spectator spectator = game.getBroadcast().subscribe(null);
+		Thread sender = Thread.currentThread();
+		AtomicBoolean watching = new AtomicBoolean(true);
+		connectionThreads.execute(() -> {
+			Command command = new Command();
+			try {
+				String line;
+				do {
+					line = in.readLine();
+				} while (line != null && !(command.parse(line).getType() == Command.Type.EXIT
+																	 && command.getWordCount() == 1));
+			} catch (IOException e) {
+				// Connection lost
+			}
+			synchronized (watching) {
+				if (watching.get()) {
+					sender.interrupt();
+				}
+			}
+		});
+		try {
+			while (true) {
+				sendEvents(spectator, game.getSession(), out);
+				if (out.checkError()) {
+					return;		// connection lost
+				}
+				spectator.await(WATCH_POLL_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			// The spectator has left
+		} finally {
+			synchronized (watching) {
+				watching.set(false);
+				Thread.interrupted();		// clear a wake up that came after the last wait
+			}
+			spectator.close();
+		}
+	}
+
+	// Send the spectator every event waiting for it, or the board in place
+	// of those it missed.
+	private static void sendEvents(GameBroadcast.Spectator spectator, GameSession session, PrintStream out) {
+		for (long event = spectator.next(); event != GameBroadcast.NO_EVENT; event = spectator.next()) {
+			if (GameBroadcast.kindOf(event) == GameBroadcast.BOARD) {
+				String moves;
+				synchronized (session) {
+					moves = GameBroadcast.describe(session.getBoard());
+					spectator.catchUp();
+				}
+				out.println(moves);
+			} else {
+				out.println(GameBroadcast.describe(event));
+			}
+		}
+		out.flush();
+	}
+
+	// Flush the responses written, timing it if metrics are being recorded
+	// and they answer a game command.
+	private static void flush(PrintStream out, boolean played) {
+		if (!Metrics.ENABLED || !played) {
+			out.flush();
+			return;
+		}
+		long start = System.nanoTime();
+		out.flush();
+		Metrics.OUTPUT.record(System.nanoTime() - start);
+	}
+
+	// Join the game with the id given by the command as player 2, telling the player whether
+	// they could. Returns the game, or null if it could not be joined.
+	private GameRegistry.Game joinGame(Command command, PrintStream out) {
+		GameRegistry.Game game = command.hasNumber() ? games.join(command.getNumber()) : null;
+		out.println(game == null ? GameSession.ERROR_MESSAGE : GameSession.SUCCESS_MESSAGE);
+		return game;
+	}
+}
@@ -0,0 +1,157 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameServerTest {
+
+	private GameServer server;
+
+	@Before
+	public void startServer() throws IOException {
+		server = new GameServer(0, 4, 4, 4);
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+
+	// Two players on their own connections play a game to a win.
+	@Test
+	public void testPlayersWin() throws IOException {
+		try (Socket first = connect(); Socket second = connect()) {
+			String id = send(first, "CREATE").substring("GAME ".length()).trim();
+			assertEquals("should join the game", "OK\n", send(second, "JOIN " + id));
+			for (int i = 0; i < 3; i++) {
+				assertEquals("should place player 1's tile", "OK\n", send(first, "PUT 1"));
+				assertEquals("should place player 2's tile", "OK\n", send(second, "PUT 2"));
+			}
+			assertEquals("should win with four in column 1", "WIN\n", send(first, "PUT 1"));
+			assertEquals("should list moves for either player", "1\n2\n1\n2\n1\n2\n1\n", send(second, "GET"));
+		}
+	}
+
+	// A player may only place a tile, or take one back, on their own turn.
+	@Test
+	public void testTurnsEnforced() throws IOException {
+		try (Socket first = connect(); Socket second = connect()) {
+			String id = send(first, "CREATE").substring("GAME ".length()).trim();
+			send(second, "JOIN " + id);
+			assertEquals("should refuse player 2 moving first", "Not your turn.\n", send(second, "PUT 1"));
+			assertEquals("should place player 1's tile", "OK\n", send(first, "PUT 1"));
+			assertEquals("should refuse player 1 moving twice", "Not your turn.\n", send(first, "PUT 1"));
+			assertEquals("should refuse player 2 taking back player 1's tile", "Not your turn.\n", send(second, "UNDO"));
+			assertEquals("should let player 1 take back their tile", "OK\n", send(first, "UNDO"));
+		}
+	}
+
+	// Games must be created or joined before playing, and only joined once.
+	@Test
+	public void testJoining() throws IOException {
+		try (Socket first = connect(); Socket second = connect(); Socket third = connect()) {
+			assertEquals("should ask for a game first", "Please CREATE or JOIN a game first.\n", send(first, "PUT 1"));
+			assertEquals("should refuse a game that does not exist", "ERROR\n", send(first, "JOIN 999"));
+			String id = send(first, "CREATE").substring("GAME ".length()).trim();
+			assertEquals("should join the game", "OK\n", send(second, "JOIN " + id));
+			assertEquals("should refuse a third player", "ERROR\n", send(third, "JOIN " + id));
+			assertEquals("should count the game", 1, server.getGameCount());
+		}
+	}
+
+	// A spectator is sent the board, then each move as it is made.
+	@Test
+	public void testSpectator() throws IOException {
+		try (Socket first = connect(); Socket second = connect(); Socket watcher = connect()) {
+			assertEquals("should refuse a game that does not exist", "ERROR\n", send(watcher, "WATCH 999"));
+			String id = send(first, "CREATE").substring("GAME ".length()).trim();
+			send(second, "JOIN " + id);
+			send(first, "PUT 1");
+			watch(watcher, id);
+			assertEquals("should be sent the moves so far", "MOVES 1", readLine(watcher));
+			send(second, "PUT 2");
+			assertEquals("should be sent player 2's move", "MOVE 2 2", readLine(watcher));
+			send(second, "UNDO");
+			assertEquals("should be sent the move taken back", "UNDO", readLine(watcher));
+			for (int i = 0; i < 2; i++) {
+				send(second, "PUT 2");
+				send(first, "PUT 1");
+			}
+			send(second, "PUT 2");
+			send(first, "PUT 1");
+			for (int i = 0; i < 5; i++) {
+				assertTrue("should be sent each move", readLine(watcher).startsWith("MOVE "));
+			}
+			assertEquals("should be sent the winning move", "MOVE 1 1 WIN", readLine(watcher));
+		}
+	}
+
+	// A spectator's EXIT is understood even when it arrives in pieces.
+	@Test
+	public void testSpectatorExitInPieces() throws Exception {
+		try (Socket first = connect(); Socket watcher = connect()) {
+			String id = send(first, "CREATE").substring("GAME ".length()).trim();
+			watch(watcher, id);
+			assertEquals("should be sent the moves so far", "MOVES", readLine(watcher));
+			watcher.setSoTimeout(5000);
+			OutputStream out = watcher.getOutputStream();
+			out.write("EX".getBytes());
+			out.flush();
+			Thread.sleep(50);
+			out.write("IT\n".getBytes());
+			out.flush();
+			assertEquals("should close the connection on EXIT", -1, watcher.getInputStream().read());
+		}
+	}
+
+	// Start watching a game, as GameServerTest and NioGameServerTest do.
+	static void watch(Socket socket, String id) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write(("WATCH " + id + "\n").getBytes());
+		out.flush();
+		assertEquals("should watch the game", "OK", readLine(socket));
+	}
+
+	// Read one line, without its end.
+	static String readLine(Socket socket) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = socket.getInputStream().read()) != '\n') {
+			assertTrue("server should not close the connection", c != -1);
+			line.append((char) c);
+		}
+		return line.toString();
+	}
+
+	private Socket connect() throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		readResponse(socket);
+		return socket;
+	}
+
+	// Send a command line and return the response written before the next prompt.
+	private static String send(Socket socket, String command) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write((command + "\n").getBytes());
+		out.flush();
+		return readResponse(socket);
+	}
+
+	private static String readResponse(Socket socket) throws IOException {
+		// Read a byte at a time so nothing past the prompt is consumed.
+		StringBuilder response = new StringBuilder();
+		int c;
+		while ((c = socket.getInputStream().read()) != '>') {
+			assertTrue("server should not close the connection", c != -1);
+			response.append((char) c);
+		}
+		return response.toString();
+	}
+}
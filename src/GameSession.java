@@ -0,0 +1,745 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+/**
+ * One game of Connect-Four-Cli, played through the text command protocol.
+ *
+ * A GameSession holds the board and whose turn it is, and carries out one
+ * command line at a time ("PUT X", "GET", "BOARD", "UNDO", "AI", "EXIT"),
+ * writing the response to the given output. The command line game runs a
+ * single session where players take turns at the same keyboard, and the
+ * game server runs one per game, with each player on their own connection.
+ *
+ * Commands are carried out one at a time, so players on different threads
+ * may share a session.
+ */
+public class GameSession {
+
+	public static final int NUM_PLAYERS = Board.NUM_PLAYERS;
+	public static final String ERROR_MESSAGE = "ERROR";
+	public static final String SUCCESS_MESSAGE = "OK";
+	public static final String WIN_MESSAGE = "WIN";
+	public static final String DRAW_MESSAGE = "DRAW";
+	public static final String NOT_YOUR_TURN_MESSAGE = "Not your turn.";
+	public static final String COMPUTER_MOVE_MESSAGE = "Computer plays column ";
+	public static final String HINT_MESSAGE = "Hint: column ";
+	public static final String PLACE_TOKEN_COMMAND = "PUT";
+	public static final String GET_MOVES_COMMAND = "GET";
+	public static final String VIEW_BOARD_COMMAND = "BOARD";
+	public static final String UNDO_MOVE_COMMAND = "UNDO";
+	public static final String COMPUTER_MOVE_COMMAND = "AI";
+	public static final String HINT_COMMAND = "HINT";
+	public static final String EXIT_GAME_COMMAND = "EXIT";
+	public static final String SAVE_GAME_COMMAND = "SAVE";
+	public static final String LOAD_GAME_COMMAND = "LOAD";
+	public static final String STATS_COMMAND = "STATS";
+	public static final int COMPUTER_PLAYER = 2;		// player the computer plays against a person
+
+	// Player given for commands from players sharing one keyboard, who may
+	// play for whoever's turn it is.
+	public static final int ANY_PLAYER = 0;
+
+	/**
+	 * Results of placing a tile or taking one back.
+	 */
+	public enum Result {OK, WIN, DRAW, ERROR, NOT_YOUR_TURN}
+
+	private final Board gameBoard;
+	private final boolean vsComputer;
+	private final long computerTimeMillis;
+	private final boolean fileCommands;
+	private final Command command = new Command();		// reused for each command line
+	private Solver computerPlayer;		// created when first needed
+	private int solverTableBits = Solver.DEFAULT_TABLE_BITS;	// computerPlayer's table holds 2^solverTableBits results
+	private OpeningBook openingBook;		// null if there is none
+	private Player opponent;		// plays the computer's moves, null for computerPlayer
+	private AnalysisCache analysisCache;		// null if hints are not kept
+	private GameBroadcast broadcast;		// null if no one may watch
+	private int currentPlayer;
+	private int winner;
+
+	/**
+	 * Begins a new game on an empty board. Player 1 goes first.
+	 * @param board board to play on, which the session takes over
+	 * @param vsComputer whether the computer plays player 2, replying to each move
+	 * @param computerTimeMillis time the computer may take per move, in milliseconds
+	 */
+	public GameSession(Board board, boolean vsComputer, long computerTimeMillis) {
+		this(board, vsComputer, computerTimeMillis, false);
+	}
+
+	/**
+	 * Begins a new game on an empty board. Player 1 goes first.
+	 * @param board board to play on, which the session takes over
+	 * @param vsComputer whether the computer plays player 2, replying to each move
+	 * @param computerTimeMillis time the computer may take per move, in milliseconds
+	 * @param fileCommands whether SAVE and LOAD may write and read local
+	 * 				 files, which only a local player should be allowed
+	 */
+	public GameSession(Board board, boolean vsComputer, long computerTimeMillis, boolean fileCommands) {
+		gameBoard = board;
+		this.vsComputer = vsComputer;
+		this.computerTimeMillis = computerTimeMillis;
+		this.fileCommands = fileCommands;
+		// Player 1 goes first. No one has won yet.
+		currentPlayer = 1;
+		winner = -1;
+	}
+
+	/**
+	 * Carries out one command line, writing the response to out.
+	 * @param line command line, such as "PUT 1"
+	 * @param player player giving the command, or ANY_PLAYER if players
+	 * 				 share the session and may play for whoever's turn it is
+	 * @param out output for the response
+	 * @return false if the command was EXIT, ending this player's game,
+	 * 				 true otherwise
+	 */
+	public synchronized boolean execute(String line, int player, PrintStream out) {
+		if (!Metrics.ENABLED) {
+			return carryOut(command.parse(line), player, out);
+		}
+		long start = System.nanoTime();
+		command.parse(line);
+		Metrics.PARSE.record(System.nanoTime() - start);
+		return execute(command, player, out);
+	}
+
+	/**
+	 * Carries out one command line, already parsed, writing the response to out.
+	 * @param command the parsed command line
+	 * @param player player giving the command, or ANY_PLAYER if players
+	 * 				 share the session and may play for whoever's turn it is
+	 * @param out output for the response
+	 * @return false if the command was EXIT, ending this player's game,
+	 * 				 true otherwise
+	 */
+	public synchronized boolean execute(Command command, int player, PrintStream out) {
+		if (!Metrics.ENABLED) {
+			return carryOut(command, player, out);
+		}
+		long start = System.nanoTime();
+		boolean open = carryOut(command, player, out);
+		Metrics.COMMANDS.increment();
+		Metrics.dispatch(command.getType()).record(System.nanoTime() - start);
+		return open;
+	}
+
+	// Carry out a parsed command line.
+	private boolean carryOut(Command command, int player, PrintStream out) {
+		// Ensure number of arguments from user is expected
+		int words = command.getWordCount();
+		if (words > 2 || words == 0) {
+			rejectCommand(out);
+			if (words == 0) {
+				return true;		// blank line
+			}
+		}
+
+		// Process input. Ensure it is valid, and if so,
+		// execute given command.
+		switch (command.getType()) {
+		case PUT:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 2) {
+				rejectCommand(out);
+				break;
+			}
+			int column = targetColumn(command, gameBoard.getNumColumns(), out);
+
+			// If input included a valid column, command as a whole is valid.
+			// First check to see if the game is already over, with a player winning
+			// or a draw. If so, report this to the user and do not try to place a tile.
+			if (reportIfGameFinished(out) || column == -1) {
+				break;
+			}
+
+			// If the game is still on, try to place a tile for the current player.
+			// When playing against the computer, it replies straight away.
+			Result result = put(column, player);
+			printResult(result, out);
+			if (result == Result.OK && vsComputer && currentPlayer == COMPUTER_PLAYER) {
+				playComputerMove(out);
+			}
+			break;
+		case AI:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 1) {
+				rejectCommand(out);
+				break;
+			}
+
+			// Let the computer place a tile for the current player.
+			if (reportIfGameFinished(out)) {
+				break;
+			}
+			if (!isTurnOf(player)) {
+				printResult(Result.NOT_YOUR_TURN, out);
+				break;
+			}
+			playComputerMove(out);
+			break;
+		case HINT:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 1) {
+				rejectCommand(out);
+				break;
+			}
+
+			// Suggest the best column for the current player.
+			if (reportIfGameFinished(out)) {
+				break;
+			}
+			out.println(hintMessage(hint()));
+			break;
+		case GET:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 1) {
+				rejectCommand(out);
+				break;
+			}
+
+			// Print moves made until present in this game.
+			printMoves(gameBoard, out);
+			break;
+		case BOARD:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 1) {
+				rejectCommand(out);
+				break;
+			}
+
+			// Print the current board layout
+			out.println(gameBoard.toString());
+			break;
+		case UNDO:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 1) {
+				rejectCommand(out);
+				break;
+			}
+			// Take back the last tile.
+			printResult(undo(player), out);
+			break;
+		case SAVE:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 2 || !fileCommands) {
+				rejectCommand(out);
+				break;
+			}
+			// Write the game to the named file as a game record.
+			printResult(save(new File(command.getArgument())), out);
+			break;
+		case LOAD:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 2 || !fileCommands) {
+				rejectCommand(out);
+				break;
+			}
+			// Replace the game with the one recorded in the named file.
+			printResult(load(new File(command.getArgument())), out);
+			break;
+		case STATS:
+			// Check for invalid input, printing usage or error message if not valid.
+			if (words != 1) {
+				rejectCommand(out);
+				break;
+			}
+			// Print the counts and timings recorded so far.
+			out.print(Metrics.report());
+			break;
+		case EXIT:
+			// End the game for this player
+			return false;
+		default:
+			// Command invalid; no valid command word included
+			rejectCommand(out);
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * Carries out command lines from input until it runs out or a player
+	 * exits, for players sharing one keyboard. Each command line is
+	 * preceded by a ">" prompt.
+	 * @param input source of command lines
+	 * @param out output for the prompts and responses
+	 * @param flushEachLine whether to flush out after each prompt, for a person
+	 * 				 waiting to see it before typing the next command
+	 * @return true if a player exited, false if the input ran out
+	 */
+	public boolean playCommands(Scanner input, PrintStream out, boolean flushEachLine) {
+		out.print(">"); 				// Mark line as an input line
+		if (flushEachLine) {
+			out.flush();
+		}
+		while (input.hasNextLine()) {
+			if (!execute(input.nextLine(), ANY_PLAYER, out)) {
+				flush(out);
+				return true;
+			}
+
+			// Mark the start of the next input line. This line has been processed.
+			out.print(">");
+			if (flushEachLine) {
+				flush(out);
+			}
+		}
+		flush(out);
+		return false;
+	}
+
+	// Flush the responses written, timing it if metrics are being recorded.
+	private static void flush(PrintStream out) {
+		if (!Metrics.ENABLED) {
+			out.flush();
+			return;
+		}
+		long start = System.nanoTime();
+		out.flush();
+		Metrics.OUTPUT.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Places a tile for the current player, if it is their turn.
+	 * The game must not be over.
+	 * @param column column to place the tile in, from 1
+	 * @param player player placing the tile, or ANY_PLAYER
+	 * @return WIN, DRAW or OK if the tile was placed, ERROR if the column
+	 * 				 was full or not on the board, or NOT_YOUR_TURN
+	 */
+	public synchronized Result put(int column, int player) {
+		if (!isTurnOf(player)) {
+			return Result.NOT_YOUR_TURN;
+		}
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		Board.Outcome outcome = gameBoard.play(column, currentPlayer);
+		if (Metrics.ENABLED) {
+			Metrics.MOVE.record(System.nanoTime() - start);
+		}
+		if (outcome == Board.Outcome.ILLEGAL) {
+			return Result.ERROR;
+		}
+		// Successfully placed a tile. It is the next player's turn.
+		if (outcome == Board.Outcome.WIN) {
+			winner = currentPlayer;
+		}
+		if (broadcast != null) {
+			broadcast.publishMove(currentPlayer, column, outcome);
+		}
+		currentPlayer = advanceToNextPlayer(currentPlayer);
+		return outcome == Board.Outcome.WIN ? Result.WIN
+				: outcome == Board.Outcome.DRAW ? Result.DRAW : Result.OK;
+	}
+
+	/**
+	 * Takes back the last tile, if it was placed by the given player. It is
+	 * the turn of the player who placed it again, and the game is back on
+	 * if that tile had won it. Against the computer, its reply is taken
+	 * back too so that it is the player's turn again.
+	 * @param player player taking back their tile, or ANY_PLAYER
+	 * @return OK if a tile was taken back, ERROR if the board was empty, or NOT_YOUR_TURN
+	 */
+	public synchronized Result undo(int player) {
+		// Only the player who placed the last tile may take it back.
+		if (player != ANY_PLAYER && player != returnToPreviousPlayer(currentPlayer)) {
+			return Result.NOT_YOUR_TURN;
+		}
+		if (!undoTile()) {
+			return Result.ERROR;
+		}
+		if (vsComputer && currentPlayer == COMPUTER_PLAYER) {
+			undoTile();
+		}
+		return Result.OK;
+	}
+
+	/**
+	 * Has the computer choose a column for the current player, without
+	 * placing a tile. The game must not be over.
+	 * @return column to play
+	 */
+	public synchronized int chooseComputerMove() {
+		if (opponent != null) {
+			return opponent.chooseMove(gameBoard, currentPlayer);
+		}
+		return computerPlayer().findBestMove(gameBoard, currentPlayer);
+	}
+
+	/**
+	 * Has another player choose the computer's moves. Hints are still
+	 * found by the solver.
+	 * @param player player to choose the moves, or null for the solver
+	 */
+	public synchronized void setOpponent(Player player) {
+		opponent = player;
+	}
+
+	/**
+	 * Finds the best column for the current player and its value, from the
+	 * analysis cache if the position is in it, otherwise by a search taking
+	 * up to the computer's time per move. The game must not be over.
+	 * @return the best move and its value
+	 */
+	public synchronized AnalysisCache.Analysis hint() {
+		if (analysisCache == null) {
+			return AnalysisCache.search(gameBoard, currentPlayer, computerPlayer());
+		}
+		return analysisCache.analyze(gameBoard, currentPlayer, this::computerPlayer);
+	}
+
+	/**
+	 * Writes the game to a file in the GameRecord format, replacing the file.
+	 * @param file file to write
+	 * @return OK if the game was saved, ERROR if the file could not be written
+	 */
+	public synchronized Result save(File file) {
+		try {
+			GameRecord.save(gameBoard, file);
+			return Result.OK;
+		} catch (IOException | IllegalArgumentException e) {
+			return Result.ERROR;
+		}
+	}
+
+	/**
+	 * Replaces the game with the first one recorded in a GameRecord file,
+	 * which must be of a board of the same dimensions. Play continues with
+	 * the player whose turn it was when the game was saved.
+	 * @param file file to read
+	 * @return OK if the game was loaded, ERROR if the file could not be read,
+	 * 				 held no valid game, or a game on a different board
+	 */
+	public synchronized Result load(File file) {
+		Board loaded;
+		try {
+			loaded = GameRecord.load(file);
+		} catch (IOException e) {
+			return Result.ERROR;
+		}
+		if (loaded.getNumColumns() != gameBoard.getNumColumns() || loaded.getNumRows() != gameBoard.getNumRows()
+				|| loaded.getConnectLength() != gameBoard.getConnectLength()) {
+			return Result.ERROR;
+		}
+
+		// The recorded moves are known to be legal, so replay them from the start.
+		gameBoard.reset();
+		currentPlayer = 1;
+		winner = -1;
+		for (int i = 0; i < loaded.getMoveCount(); i++) {
+			gameBoard.play(loaded.getMove(i), currentPlayer);
+			if (gameBoard.isWinState(currentPlayer)) {
+				winner = currentPlayer;
+			}
+			currentPlayer = advanceToNextPlayer(currentPlayer);
+		}
+		if (broadcast != null) {
+			broadcast.publishBoard();
+		}
+		return Result.OK;
+	}
+
+	/**
+	 * Has the computer look up its moves in an opening book while the game is in it.
+	 * @param book book of positions of this game's board, or null for none
+	 */
+	public synchronized void setOpeningBook(OpeningBook book) {
+		openingBook = book;
+		if (computerPlayer != null) {
+			computerPlayer.setOpeningBook(book);
+		}
+	}
+
+	/**
+	 * Sets the size of the computer player's transposition table, for a
+	 * session that is one of many, as the default table is large. Takes
+	 * effect only if the computer player has not yet been created.
+	 * @param tableBits the table holds 2^tableBits results
+	 */
+	public synchronized void setSolverTableBits(int tableBits) {
+		solverTableBits = tableBits;
+	}
+
+	/**
+	 * Keeps hints in a cache, which may be shared with other games.
+	 * @param cache cache of positions of this game's board, or null to search for every hint
+	 */
+	public synchronized void setAnalysisCache(AnalysisCache cache) {
+		analysisCache = cache;
+	}
+
+	/**
+	 * Publishes every tile placed or taken back from now on to spectators.
+	 * @param broadcast broadcast of this game, or null to publish nothing
+	 */
+	public synchronized void setBroadcast(GameBroadcast broadcast) {
+		this.broadcast = broadcast;
+	}
+
+	/**
+	 * Reports whether the given player may place a tile now.
+	 * @param player player to check, or ANY_PLAYER
+	 * @return true if it is their turn
+	 */
+	public synchronized boolean isTurnOf(int player) {
+		return player == ANY_PLAYER || player == currentPlayer;
+	}
+
+	/**
+	 * Plays moves on the board without reporting them, alternating players.
+	 * @param columns comma separated columns to play, or "" for none
+	 * @return false if a column could not be played or the game was already over
+	 * @throws NumberFormatException if a column is not a number
+	 */
+	public synchronized boolean playMoves(String columns) {
+		if (columns.isEmpty()) {
+			return true;
+		}
+		for (String column : columns.split(",")) {
+			if (isFinished() || gameBoard.play(Integer.parseInt(column), currentPlayer) == Board.Outcome.ILLEGAL) {
+				return false;
+			}
+			if (gameBoard.isWinState(currentPlayer)) {
+				winner = currentPlayer;
+			}
+			currentPlayer = advanceToNextPlayer(currentPlayer);
+		}
+		if (broadcast != null) {
+			broadcast.publishBoard();
+		}
+		return true;
+	}
+
+	/**
+	 * Reports the board this game is played on.
+	 * @return the game board
+	 */
+	public Board getBoard() {
+		return gameBoard;
+	}
+
+	/**
+	 * Reports whose turn it is.
+	 * @return the player to move
+	 */
+	public synchronized int getCurrentPlayer() {
+		return currentPlayer;
+	}
+
+	/**
+	 * Reports which player has won.
+	 * @return the winner, or -1 if no one has won
+	 */
+	public synchronized int getWinner() {
+		return winner;
+	}
+
+	/**
+	 * Reports whether a player has won or the board is full.
+	 * @return true if the game is over
+	 */
+	public synchronized boolean isFinished() {
+		return winner > 0 || gameBoard.boardFilled();
+	}
+
+	/**
+	 * If the game is over, tells the user no more tiles may be placed.
+	 * @param out output for the message
+	 * @return true if the game is over, false otherwise
+	 */
+	public synchronized boolean reportIfGameFinished(PrintStream out) {
+		if (!isFinished()) {
+			return false;
+		}
+		out.println(finishedMessage(winner));
+		return true;
+	}
+
+	/**
+	 * Describes a finished game to a user trying to place a tile.
+	 * @param winner the player who won, or -1 if the game was a draw
+	 * @return the message
+	 */
+	public static String finishedMessage(int winner) {
+		String message = "Sorry, the game has already finished.";
+		if (winner > 0) {
+			message += " Player " + winner + " has won.";
+		} else {
+			message += " The game was a draw.";
+		}
+		return message + " No more tiles may be placed.";
+	}
+
+	// The computer player, created when first needed.
+	private Solver computerPlayer() {
+		if (computerPlayer == null) {
+			computerPlayer = new Solver(solverTableBits, computerTimeMillis);
+			computerPlayer.setOpeningBook(openingBook);
+		}
+		return computerPlayer;
+	}
+
+	// Have the computer choose and place a tile for the current player,
+	// telling the user which column it chose. The game must not be over.
+	private void playComputerMove(PrintStream out) {
+		int column = chooseComputerMove();
+		out.println(COMPUTER_MOVE_MESSAGE + column + ".");
+		printResult(put(column, ANY_PLAYER), out);
+	}
+
+	// Print the response to a tile being placed or taken back.
+	private static void printResult(Result result, PrintStream out) {
+		if (Metrics.ENABLED) {
+			countResult(result);
+		}
+		switch (result) {
+		case WIN:
+			out.println(WIN_MESSAGE);
+			break;
+		case DRAW:
+			out.println(DRAW_MESSAGE);
+			break;
+		case ERROR:
+			out.println(ERROR_MESSAGE);
+			break;
+		case NOT_YOUR_TURN:
+			out.println(NOT_YOUR_TURN_MESSAGE);
+			break;
+		default:
+			out.println(SUCCESS_MESSAGE);
+			break;
+		}
+	}
+
+	// Count the outcome of a tile being placed or taken back.
+	private static void countResult(Result result) {
+		switch (result) {
+		case WIN:
+			Metrics.WINS.increment();
+			break;
+		case DRAW:
+			Metrics.DRAWS.increment();
+			break;
+		case ERROR:
+		case NOT_YOUR_TURN:
+			Metrics.REFUSED.increment();
+			break;
+		default:
+			break;
+		}
+	}
+
+	// Print usage for a command line that could not be carried out.
+	private static void rejectCommand(PrintStream out) {
+		if (Metrics.ENABLED) {
+			Metrics.REJECTED.increment();
+		}
+		printUsage(out);
+	}
+
+	// Take back the last tile placed, returning the turn to the player who
+	// placed it. Returns false if there was no tile to take back.
+	private boolean undoTile() {
+		if (!gameBoard.undoMove()) {
+			return false;
+		}
+		currentPlayer = returnToPreviousPlayer(currentPlayer);
+		if (winner > 0 && !gameBoard.isWinState(winner)) {
+			winner = -1;
+		}
+		if (broadcast != null) {
+			broadcast.publishUndo();
+		}
+		return true;
+	}
+
+	// Extract target column from the command's argument. Returns the
+	// column number if present, or -1 if the input was invalid.
+	// If user's input column was invalid, appropriate error message
+	// is printed to the user.
+	private static int targetColumn(Command command, int totalColumns, PrintStream out) {
+		if (!command.hasNumber()) {
+			rejectCommand(out);
+			return -1;
+		}
+
+		// Check to see if column exists on this board, printing an error message if not.
+		int targetColumn = command.getNumber();
+		if (targetColumn < 1 || targetColumn > totalColumns) {
+			if (Metrics.ENABLED) {
+				Metrics.REJECTED.increment();
+			}
+			printColumnOutOfBounds(totalColumns, out);
+			return -1;
+		}
+
+		// Return valid target column.
+		return targetColumn;
+	}
+
+	/**
+	 * Describes a hint, as the HINT command prints it.
+	 * @param hint best move and its value
+	 * @return the hint message
+	 */
+	public static String hintMessage(AnalysisCache.Analysis hint) {
+		return HINT_MESSAGE + hint.move + ", score " + hint.score + " (" + hint.describe() + ")";
+	}
+
+	// Prints usage if there is an error in user's command.
+	public static void printUsage(PrintStream out) {
+		out.println("Unrecognized command. Please choose from the following:");
+		out.println("\"PUT X\" - place a tile in column x of the board");
+		out.println("\"GET\" - get a list of moves made so far");
+		out.println("\"BOARD\" - display current board and locations of tiles");
+		out.println("\"UNDO\" - take back the last tile placed");
+		out.println("\"AI\" - let the computer place a tile for the current player");
+		out.println("\"HINT\" - suggest a column for the current player");
+		out.println("\"SAVE F\" - save the game to file f");
+		out.println("\"LOAD F\" - resume the game saved in file f");
+		out.println("\"STATS\" - show counts and timings of the commands run");
+		out.println("\"EXIT\" - exit the game");
+	}
+
+	// Prints an error message that the column was out of bounds for the
+	// place tile command.
+	public static void printColumnOutOfBounds(int totalColumns, PrintStream out) {
+		out.println("Column out of bounds. Please enter a value between 1 and "
+								+ totalColumns + ".");
+	}
+
+	// Upon the completion of a turn, advance current player to the next
+	// in the game.
+	public static int advanceToNextPlayer(int currentPlayer) {
+		int nextPlayer = currentPlayer + 1;
+		// If we have cycled through all the players,
+		// restart at the first.
+		if (nextPlayer > NUM_PLAYERS) {
+			nextPlayer = 1;
+		}
+		return nextPlayer;
+	}
+
+	// Upon taking back a turn, return current player to the one
+	// who played before them.
+	public static int returnToPreviousPlayer(int currentPlayer) {
+		int previousPlayer = currentPlayer - 1;
+		// If we were at the first player, go back to the last.
+		if (previousPlayer < 1) {
+			previousPlayer = NUM_PLAYERS;
+		}
+		return previousPlayer;
+	}
+
+	// Prints the moves to present in this game, one per line.
+	// Moves are columns where players put their tiles.
+	// Moves are printed in order.
+	public static void printMoves(Board board, PrintStream out) {
+		for (int i = 0; i < board.getMoveCount(); i++) {
+			out.println(board.getMove(i));
+		}
+	}
+}
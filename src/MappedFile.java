@@ -0,0 +1,132 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped into memory whole, however large, read and written by
+ * absolute position.
+ *
+ * A single mapping is limited to 2 GB, so the file is mapped in segments
+ * of 1 GB. Each segment reaches a few bytes into the next, so that a short
+ * or long starting anywhere in a segment may be read from it alone, and
+ * as the segments share the file, a write to one is seen in the other.
+ * Reads and writes at different positions may be made from any number of
+ * threads at once.
+ */
+public class MappedFile implements Closeable {
+
+	public static final int SEGMENT_SHIFT = 30;
+	private static final int OVERLAP = Long.BYTES;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long size;
+	private final int segmentShift;
+	private final long segmentMask;
+
+	/**
+	 * Maps a file to read.
+	 * @param file file to map
+	 * @throws IOException if the file could not be mapped
+	 */
+	public MappedFile(File file) throws IOException {
+		this(file, -1, SEGMENT_SHIFT);
+	}
+
+	/**
+	 * Creates a file of the given size, replacing any file already there, and maps it to read and write.
+	 * @param file file to create
+	 * @param size size of the file in bytes
+	 * @throws IOException if the file could not be created or mapped
+	 */
+	public MappedFile(File file, long size) throws IOException {
+		this(file, size, SEGMENT_SHIFT);
+	}
+
+	// Map a file in segments of 2^segmentShift bytes, which tests make small;
+	// to read if size is -1, otherwise to create and write.
+	MappedFile(File file, long size, int segmentShift) throws IOException {
+		boolean writable = size >= 0;
+		if (writable) {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+																 StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} else {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+		try {
+			if (writable) {
+				// Extend the file to its full size by writing its last byte.
+				if (size > 0) {
+					channel.write(ByteBuffer.allocate(1), size - 1);
+				}
+				this.size = size;
+			} else {
+				this.size = channel.size();
+			}
+			this.segmentShift = segmentShift;
+			segmentMask = (1L << segmentShift) - 1;
+			FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+			segments = new MappedByteBuffer[(int) ((this.size + segmentMask) >>> segmentShift)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << segmentShift;
+				segments[i] = channel.map(mode, start, Math.min(this.size - start, segmentMask + 1 + OVERLAP));
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reports the size of the file.
+	 * @return size in bytes
+	 */
+	public long size() {
+		return size;
+	}
+
+	public byte get(long position) {
+		return segments[(int) (position >>> segmentShift)].get((int) (position & segmentMask));
+	}
+
+	public short getShort(long position) {
+		return segments[(int) (position >>> segmentShift)].getShort((int) (position & segmentMask));
+	}
+
+	public int getInt(long position) {
+		return segments[(int) (position >>> segmentShift)].getInt((int) (position & segmentMask));
+	}
+
+	public long getLong(long position) {
+		return segments[(int) (position >>> segmentShift)].getLong((int) (position & segmentMask));
+	}
+
+	public void putInt(long position, int value) {
+		segments[(int) (position >>> segmentShift)].putInt((int) (position & segmentMask), value);
+	}
+
+	public void putLong(long position, long value) {
+		segments[(int) (position >>> segmentShift)].putLong((int) (position & segmentMask), value);
+	}
+
+	/**
+	 * Writes any changes out to the file.
+	 */
+	public void force() {
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released once it is no longer reachable.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
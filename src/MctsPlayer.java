@@ -0,0 +1,497 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Player that chooses moves by Monte Carlo tree search, for boards too
+ * large for Solver to see far ahead on.
+ *
+ * Each playout walks down the tree of positions searched so far, choosing
+ * moves by UCT, adds the moves from the position it reaches to the tree,
+ * and plays random moves from one of them to the end of the game. The
+ * result is then counted in every position on the way. A search stops
+ * after its time budget or its number of playouts, whichever comes first,
+ * and the move played most often from the root is chosen.
+ *
+ * Playouts may run on several threads sharing one tree. Walking the tree
+ * and counting results are done holding the player's lock, and the random
+ * games, which take most of the time, without it. A thread counts a loss
+ * in each position it walks through until its result is in (a virtual
+ * loss), so that other threads meanwhile try other moves.
+ *
+ * Nodes are kept in arrays allocated when the player is created rather
+ * than as objects, so a search makes no garbage. Between moves the part
+ * of the tree below the position now on the board is kept, copied to the
+ * front of a second set of arrays, so the playouts already made from that
+ * position are not lost.
+ */
+public class MctsPlayer implements Player {
+
+	// Default number of nodes in the tree, each taking 15 bytes in each of two sets of arrays.
+	public static final int DEFAULT_NODES = 1 << 20;
+
+	// Most columns of a board, so that a column and a node's number of moves fit in a byte.
+	public static final int MAX_COLUMNS = 255;
+
+	// Weight of exploring little played moves against playing well scoring ones.
+	public static final double EXPLORATION = Math.sqrt(2);
+
+	// Losses counted for a thread walking through a node until its result is in.
+	private static final int VIRTUAL_LOSS = 1;
+
+	// Outcomes of the move into a node.
+	private static final byte ONGOING = 0;
+	private static final byte WIN = 1;
+	private static final byte DRAW = 2;
+
+	// Nodes of a tree, with the children of each node next to each other.
+	private static class Tree {
+		final int[] firstChild;		// -1 until the node's moves are added
+		final byte[] childCount;
+		final byte[] move;				// column played into the node
+		final byte[] outcome;			// outcome of that move
+		final int[] visits;				// playouts through the node, and virtual losses
+		final int[] score;				// half points of the player who moved into the node: 2 a win, 1 a draw
+		int size;
+
+		Tree(int capacity) {
+			firstChild = new int[capacity];
+			childCount = new byte[capacity];
+			move = new byte[capacity];
+			outcome = new byte[capacity];
+			visits = new int[capacity];
+			score = new int[capacity];
+		}
+
+		// Empty the tree down to a root of no visits.
+		void clear() {
+			firstChild[0] = -1;
+			childCount[0] = 0;
+			outcome[0] = ONGOING;
+			visits[0] = 0;
+			score[0] = 0;
+			size = 1;
+		}
+	}
+
+	// State of one thread making playouts.
+	private static class Worker {
+		final SplittableRandom random;
+		Board board;							// the root position between playouts
+		int[] path = new int[0];	// nodes walked through by the current playout
+		int[] playableColumns = new int[0];
+
+		Worker(SplittableRandom random) {
+			this.random = random;
+		}
+	}
+
+	private final long timeBudgetNanos;
+	private final long playoutBudget;
+	private final Worker[] workers;
+	private ExecutorService executor;		// created on the first search with more than one thread
+
+	// The tree and the position at its root, guarded by this.
+	private Tree tree;
+	private Tree spare;
+	private int[] rootMoves = new int[0];
+	private int rootMoveCount = -1;		// -1 before the first search
+	private int rootPlayer;
+	private int rootColumns;
+	private int rootRows;
+	private int rootConnectLength;
+	private long playouts;
+	private long reusedPlayouts;
+
+	/**
+	 * Creates a player searching on one thread with a tree of the default size.
+	 * @param timeBudgetMillis most time to take per move, in milliseconds
+	 * @param seed seed for the random games, so that searches on one thread can be repeated
+	 */
+	public MctsPlayer(long timeBudgetMillis, long seed) {
+		this(timeBudgetMillis, Long.MAX_VALUE, 1, DEFAULT_NODES, seed);
+	}
+
+	/**
+	 * Creates a player.
+	 * @param timeBudgetMillis most time to take per move, in milliseconds
+	 * @param playoutBudget most playouts to make per move
+	 * @param threads number of threads to make playouts on
+	 * @param nodes most nodes to keep in the tree
+	 * @param seed seed for the random games, so that searches on one thread can be repeated
+	 */
+	public MctsPlayer(long timeBudgetMillis, long playoutBudget, int threads, int nodes, long seed) {
+		if (threads < 1 || nodes < 1 || playoutBudget < 1) {
+			throw new IllegalArgumentException("Threads, nodes and playouts must be at least 1");
+		}
+		timeBudgetNanos = timeBudgetMillis * 1000000;
+		this.playoutBudget = playoutBudget;
+		tree = new Tree(nodes);
+		spare = new Tree(nodes);
+		SplittableRandom random = new SplittableRandom(seed);
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(random.split());
+		}
+	}
+
+	@Override
+	public int chooseMove(Board board, int player) {
+		if (board.getNumColumns() > MAX_COLUMNS) {
+			throw new IllegalArgumentException("A tree cannot hold moves of more than " + MAX_COLUMNS + " columns");
+		}
+		long deadline = System.nanoTime() + timeBudgetNanos;
+		int cells = board.getNumColumns() * board.getNumRows();
+		synchronized (this) {
+			reuseTree(board, player);
+			playouts = 0;
+		}
+		for (Worker worker : workers) {
+			worker.board = new Board(board);
+			if (worker.path.length != cells + 1 || worker.playableColumns.length != board.getNumColumns()) {
+				worker.path = new int[cells + 1];
+				worker.playableColumns = new int[board.getNumColumns()];
+			}
+		}
+
+		if (workers.length == 1) {
+			search(workers[0], deadline);
+		} else {
+			if (executor == null) {
+				executor = Executors.newFixedThreadPool(workers.length - 1, runnable -> {
+					Thread thread = new Thread(runnable, "mcts");
+					thread.setDaemon(true);		// players are not shut down, so their threads must not keep the program running
+					return thread;
+				});
+			}
+			List<Future<?>> searches = new ArrayList<Future<?>>();
+			for (int i = 1; i < workers.length; i++) {
+				Worker worker = workers[i];
+				searches.add(executor.submit(() -> search(worker, deadline)));
+			}
+			search(workers[0], deadline);
+			try {
+				for (Future<?> search : searches) {
+					search.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Search interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Search failed", e.getCause());
+			}
+		}
+		return bestMove(board);
+	}
+
+	/**
+	 * Reports the number of playouts made by the last search.
+	 * @return playouts made
+	 */
+	public synchronized long getPlayouts() {
+		return playouts;
+	}
+
+	/**
+	 * Reports the number of playouts through the last search's root that
+	 * were made by earlier searches, and kept for it.
+	 * @return playouts reused
+	 */
+	public synchronized long getReusedPlayouts() {
+		return reusedPlayouts;
+	}
+
+	/**
+	 * Reports the number of nodes in the tree.
+	 * @return node count
+	 */
+	public synchronized int getNodeCount() {
+		return tree.size;
+	}
+
+	/**
+	 * Stops the threads of this player. It may not be used afterwards.
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	// Make playouts on one thread until the time or the playouts run out.
+	// At least one playout is made, so the root's moves are in the tree.
+	private void search(Worker worker, long deadline) {
+		while (playout(worker) && System.nanoTime() - deadline < 0) {
+			// keep going
+		}
+	}
+
+	// Make one playout from the root on the worker's board, leaving the
+	// board as it was. Returns false if no playouts were left to make.
+	private boolean playout(Worker worker) {
+		Board board = worker.board;
+		int depth = descend(worker);
+		if (depth == 0) {
+			return false;
+		}
+		int leaf = worker.path[depth - 1];
+
+		// The player who moved into the leaf, and the winner of the game, 0 for a draw.
+		int mover = (depth % 2 == 1) ? opponentOf(rootPlayer) : rootPlayer;
+		int winner;
+		byte outcome;
+		synchronized (this) {
+			outcome = tree.outcome[leaf];
+		}
+		if (outcome == WIN) {
+			winner = mover;
+		} else if (outcome == DRAW) {
+			winner = 0;
+		} else {
+			int movesBefore = board.getMoveCount();
+			winner = randomGame(worker, opponentOf(mover));
+			while (board.getMoveCount() > movesBefore) {
+				board.undoMove();
+			}
+		}
+		for (int i = 1; i < depth; i++) {
+			board.undoMove();
+		}
+		record(worker.path, depth, winner);
+		return true;
+	}
+
+	// Walk down the tree from the root, playing each move on the worker's
+	// board and counting a virtual loss in each node, adding the moves of
+	// the node reached if there is room, and stepping into one of them.
+	// Returns the number of nodes in the worker's path, the root first,
+	// or 0 if no playouts were left to make.
+	private synchronized int descend(Worker worker) {
+		if (playouts >= playoutBudget) {
+			return 0;
+		}
+		playouts++;
+		Board board = worker.board;
+		int node = 0;
+		int player = rootPlayer;
+		int depth = 0;
+		tree.visits[node] += VIRTUAL_LOSS;
+		worker.path[depth++] = node;
+		while (tree.outcome[node] == ONGOING) {
+			if (tree.firstChild[node] < 0) {
+				if (!expand(node, board, player)) {
+					break;		// tree full, play on from here
+				}
+				// A move of the new node at random, as none has been played.
+				node = tree.firstChild[node] + worker.random.nextInt(tree.childCount[node] & 0xFF);
+				descendInto(node, board, player, worker, depth++);
+				break;
+			}
+			node = select(node);
+			descendInto(node, board, player, worker, depth++);
+			player = opponentOf(player);
+		}
+		return depth;
+	}
+
+	// Play the move into a node and count a virtual loss there.
+	private void descendInto(int node, Board board, int player, Worker worker, int depth) {
+		board.play(tree.move[node] & 0xFF, player);
+		tree.visits[node] += VIRTUAL_LOSS;
+		worker.path[depth] = node;
+	}
+
+	// Child of a node with the highest UCT value, counting virtual losses
+	// as playouts scoring nothing.
+	private int select(int node) {
+		int first = tree.firstChild[node];
+		int last = first + (tree.childCount[node] & 0xFF);
+		double logVisits = Math.log(tree.visits[node]);
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < last; child++) {
+			int visits = tree.visits[child];
+			if (visits == 0) {
+				return child;
+			}
+			double value = tree.score[child] / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	// Add a node's moves to the tree, with player to move on the board.
+	// Returns false if the tree has no room for them.
+	private boolean expand(int node, Board board, int player) {
+		int first = tree.size;
+		int count = 0;
+		for (int column = board.nextLegalMove(0); column != -1; column = board.nextLegalMove(column)) {
+			if (first + count == tree.firstChild.length) {
+				return false;
+			}
+			Board.Outcome outcome = board.play(column, player);
+			board.undoMove();
+			int child = first + count++;
+			tree.firstChild[child] = -1;
+			tree.childCount[child] = 0;
+			tree.move[child] = (byte) column;
+			tree.outcome[child] = outcome == Board.Outcome.WIN ? WIN : outcome == Board.Outcome.DRAW ? DRAW : ONGOING;
+			tree.visits[child] = 0;
+			tree.score[child] = 0;
+		}
+		tree.firstChild[node] = first;
+		tree.childCount[node] = (byte) count;
+		tree.size = first + count;
+		return true;
+	}
+
+	// Play random moves to the end of the game, player first, on the
+	// worker's board. Returns the winner, or 0 for a draw.
+	private static int randomGame(Worker worker, int player) {
+		Board board = worker.board;
+		SplittableRandom random = worker.random;
+		while (true) {
+			Board.Outcome outcome = board.play(1 + random.nextInt(board.getNumColumns()), player);
+			if (outcome == Board.Outcome.ILLEGAL) {
+				// The column was full, choose again from those that are not.
+				int count = board.copyLegalMoves(worker.playableColumns);
+				outcome = board.play(worker.playableColumns[random.nextInt(count)], player);
+			}
+			if (outcome == Board.Outcome.WIN) {
+				return player;
+			} else if (outcome == Board.Outcome.DRAW) {
+				return 0;
+			}
+			player = opponentOf(player);
+		}
+	}
+
+	// Count the result of a playout in the nodes of its path, replacing
+	// its virtual losses with one playout.
+	private synchronized void record(int[] path, int depth, int winner) {
+		int mover = opponentOf(rootPlayer);
+		for (int i = 0; i < depth; i++) {
+			int node = path[i];
+			tree.visits[node] += 1 - VIRTUAL_LOSS;
+			if (winner == 0) {
+				tree.score[node] += 1;
+			} else if (winner == mover) {
+				tree.score[node] += 2;
+			}
+			mover = opponentOf(mover);
+		}
+	}
+
+	// The root's move that wins at once, or failing that the one played
+	// most often. With no room in the tree for the root's moves, the first
+	// column with room is played.
+	private synchronized int bestMove(Board board) {
+		int first = tree.firstChild[0];
+		if (first < 0) {
+			return board.nextLegalMove(0);
+		}
+		int last = first + (tree.childCount[0] & 0xFF);
+		int best = first;
+		for (int child = first; child < last; child++) {
+			if (tree.outcome[child] == WIN) {
+				return tree.move[child] & 0xFF;
+			}
+			if (tree.visits[child] > tree.visits[best]) {
+				best = child;
+			}
+		}
+		return tree.move[best] & 0xFF;
+	}
+
+	// Make the root the position on the board, with player to move, keeping
+	// the part of the last search's tree below it if it was searched.
+	private void reuseTree(Board board, int player) {
+		int node = -1;
+		int moveCount = board.getMoveCount();
+		if (rootMoveCount >= 0 && moveCount >= rootMoveCount && board.getNumColumns() == rootColumns
+				&& board.getNumRows() == rootRows && board.getConnectLength() == rootConnectLength
+				&& player == ((moveCount - rootMoveCount) % 2 == 0 ? rootPlayer : opponentOf(rootPlayer))) {
+			node = 0;
+			for (int i = 0; i < rootMoveCount && node == 0; i++) {
+				if (board.getMove(i) != rootMoves[i]) {
+					node = -1;
+				}
+			}
+			for (int i = rootMoveCount; i < moveCount && node >= 0; i++) {
+				node = childOf(node, board.getMove(i));
+			}
+		}
+		if (node < 0) {
+			tree.clear();
+		} else if (node > 0) {
+			compact(node);
+		}
+		reusedPlayouts = tree.visits[0];
+
+		if (rootMoves.length < moveCount) {
+			rootMoves = new int[board.getNumColumns() * board.getNumRows()];
+		}
+		board.copyMoves(rootMoves);
+		rootMoveCount = moveCount;
+		rootPlayer = player;
+		rootColumns = board.getNumColumns();
+		rootRows = board.getNumRows();
+		rootConnectLength = board.getConnectLength();
+	}
+
+	// The child of a node reached by playing column, or -1 if it is not in the tree.
+	private int childOf(int node, int column) {
+		int first = tree.firstChild[node];
+		for (int child = first; first >= 0 && child < first + (tree.childCount[node] & 0xFF); child++) {
+			if ((tree.move[child] & 0xFF) == column) {
+				return child;
+			}
+		}
+		return -1;
+	}
+
+	// Copy the subtree of a node to the spare arrays, breadth first with
+	// the node as the root, and make them the tree. While a node is waiting
+	// for its children to be copied, its firstChild holds its index in the
+	// old tree.
+	private void compact(int root) {
+		spare.size = 1;
+		copyNode(root, 0);
+		for (int node = 0; node < spare.size; node++) {
+			int first = tree.firstChild[spare.firstChild[node]];
+			if (first < 0) {
+				spare.firstChild[node] = -1;
+				continue;
+			}
+			int count = tree.childCount[spare.firstChild[node]] & 0xFF;
+			spare.firstChild[node] = spare.size;
+			for (int i = 0; i < count; i++) {
+				copyNode(first + i, spare.size++);
+			}
+		}
+		Tree old = tree;
+		tree = spare;
+		spare = old;
+	}
+
+	// Copy a node of the tree to the spare arrays, noting its old index.
+	private void copyNode(int from, int to) {
+		spare.firstChild[to] = from;
+		spare.childCount[to] = tree.childCount[from];
+		spare.move[to] = tree.move[from];
+		spare.outcome[to] = tree.outcome[from];
+		spare.visits[to] = tree.visits[from];
+		spare.score[to] = tree.score[from];
+	}
+
+	private static int opponentOf(int player) {
+		return Board.NUM_PLAYERS + 1 - player;
+	}
+}
@@ -0,0 +1,72 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MctsPlayerTest {
+
+	private static final int PLAYOUTS = 20000;
+
+	// A time budget that is never reached, so searches end at their playout budget.
+	private static final long UNLIMITED_MILLIS = Long.MAX_VALUE / 2000000;
+
+	// A win on the next move is taken, and the opponent's is blocked.
+	@Test
+	public void testWinsAndBlocks() {
+		MctsPlayer player = new MctsPlayer(UNLIMITED_MILLIS, PLAYOUTS, 1, MctsPlayer.DEFAULT_NODES, 1);
+		assertEquals("should complete its line", 4, player.chooseMove(played("1,5,2,5,3,6"), 1));
+		assertEquals("should block the line", 4, player.chooseMove(played("1,5,2,5,3"), 2));
+		assertEquals("should stop at its playout budget", PLAYOUTS, player.getPlayouts());
+	}
+
+	// The playouts below the position after the last move and the reply are kept.
+	@Test
+	public void testSubtreeReused() {
+		MctsPlayer player = new MctsPlayer(UNLIMITED_MILLIS, PLAYOUTS, 1, MctsPlayer.DEFAULT_NODES, 2);
+		Board board = new Board(7, 6, 4);
+		board.placeTile(player.chooseMove(board, 1), 1);
+		assertEquals("should start with an empty tree", 0, player.getReusedPlayouts());
+		board.placeTile(4, 2);
+		int move = player.chooseMove(board, 1);
+		assertTrue("should reuse the playouts of the last search", player.getReusedPlayouts() > 0);
+		assertEquals("should leave the board as it was", 2, board.getMoveCount());
+
+		board.reset();
+		board.placeTile(move, 2);
+		player.chooseMove(board, 1);
+		assertEquals("should start again for another game", 0, player.getReusedPlayouts());
+	}
+
+	// Playouts on several threads sharing a tree too small for them all make
+	// exactly the budgeted number, and a full tree still gives a legal move.
+	@Test
+	public void testParallelPlayoutsInSmallTree() {
+		MctsPlayer player = new MctsPlayer(UNLIMITED_MILLIS, PLAYOUTS, 4, 100, 3);
+		try {
+			Board board = played("1,1,1,1,1,1,2,2,2,2,2");
+			int move = player.chooseMove(board, 2);
+			assertTrue("should play a column with room", move >= 2 && move <= 7);
+			assertEquals("should make every playout", PLAYOUTS, player.getPlayouts());
+			assertTrue("should not grow past its nodes", player.getNodeCount() <= 100);
+		} finally {
+			player.shutdown();
+		}
+	}
+
+	// The player never loses to a random one on a board too large to solve quickly.
+	@Test
+	public void testBeatsRandom() {
+		Simulator simulator = new Simulator(7, 6, 4, seed -> new MctsPlayer(UNLIMITED_MILLIS, 2000, 1, 1 << 16, seed),
+																				RandomPlayer::new, 1, 5);
+		Simulator.Result result = simulator.run(10);
+		assertEquals("should never lose to a random player", 0, result.player2Wins);
+	}
+
+	// Board of the default 7x6 game with the given comma separated moves played.
+	private static Board played(String columns) {
+		Board board = new Board(7, 6, 4);
+		for (String column : columns.split(",")) {
+			board.placeTile(Integer.parseInt(column), 1 + board.getMoveCount() % 2);
+		}
+		return board;
+	}
+}
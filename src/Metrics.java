@@ -0,0 +1,263 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and latencies of the work done by game sessions, recorded from
+ * any number of threads.
+ *
+ * Recording is switched on for the whole run by the system property
+ * "connectfour.metrics", which "--metrics" sets before any game is
+ * played. ENABLED is read once, and every place that records guards
+ * itself with it, so when recording is off the compiler drops those
+ * places altogether. Counters are LongAdders, which spread increments
+ * from many threads over separate cells, and latencies are kept in
+ * Histograms whose buckets widen with the value, as in HdrHistogram, so
+ * recording one is a few additions however large the value. A histogram
+ * makes its buckets on the first value it counts, so while recording is
+ * off the registry takes almost no room.
+ *
+ * Counters and histograms are registered by name, and the report lists
+ * them in the order they were registered.
+ */
+public class Metrics {
+
+	public static final String PROPERTY = "connectfour.metrics";
+	public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+	// Reported by STATS when recording is off.
+	public static final String DISABLED_MESSAGE = "Metrics are off. Start with --metrics FILE to record them.";
+
+	/**
+	 * Distribution of latencies, in nanoseconds. Values are counted in
+	 * buckets of 16 per power of 2, so each is known to within 1/16th.
+	 */
+	public static class Histogram {
+		private static final int SUB_BUCKET_BITS = 4;
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+		private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+		private final String name;
+		private volatile LongAdder[] buckets;		// null until a value is counted
+		private final LongAdder count = new LongAdder();
+		private final LongAdder total = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+
+		private Histogram(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Counts one value.
+		 * @param nanos time taken, in nanoseconds; negative times count as 0
+		 */
+		public void record(long nanos) {
+			long value = Math.max(0, nanos);
+			buckets()[bucketOf(value)].increment();
+			count.increment();
+			total.add(value);
+			if (value > max.get()) {
+				max.accumulateAndGet(value, Math::max);
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getMax() {
+			return max.get();
+		}
+
+		/**
+		 * Reports the mean of the values counted.
+		 * @return mean, or 0 if none have been counted
+		 */
+		public double getMean() {
+			long n = count.sum();
+			return n == 0 ? 0 : (double) total.sum() / n;
+		}
+
+		/**
+		 * Reports a value that the given share of values counted are no more than.
+		 * @param percentile share of values, from 0 to 100
+		 * @return the highest value of the bucket holding that share, no more
+		 * 				 than the largest value counted, or 0 if none have been counted
+		 */
+		public long getValueAtPercentile(double percentile) {
+			LongAdder[] counted = buckets;
+			if (counted == null) {
+				return 0;
+			}
+			long n = count.sum();
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += counted[i].sum();
+				if (seen >= rank) {
+					return Math.min(highestOf(i), max.get());
+				}
+			}
+			return max.get();
+		}
+
+		// The buckets, made when the first value is counted.
+		private LongAdder[] buckets() {
+			LongAdder[] made = buckets;
+			if (made == null) {
+				synchronized (this) {
+					made = buckets;
+					if (made == null) {
+						made = new LongAdder[BUCKETS];
+						for (int i = 0; i < BUCKETS; i++) {
+							made[i] = new LongAdder();
+						}
+						buckets = made;
+					}
+				}
+			}
+			return made;
+		}
+
+		// Bucket counting a value: values below SUB_BUCKETS have one each,
+		// and each power of 2 above is split into SUB_BUCKETS by its next bits.
+		static int bucketOf(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+			int shift = exponent - SUB_BUCKET_BITS;
+			return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+		}
+
+		// Highest value counted in a bucket.
+		static long highestOf(int bucket) {
+			if (bucket < SUB_BUCKETS) {
+				return bucket;
+			}
+			int shift = bucket / SUB_BUCKETS - 1;
+			long top = bucket % SUB_BUCKETS + SUB_BUCKETS;
+			return ((top + 1) << shift) - 1;
+		}
+	}
+
+	private static final Map<String, LongAdder> counters = new LinkedHashMap<String, LongAdder>();
+	private static final Map<String, Histogram> histograms = new LinkedHashMap<String, Histogram>();
+
+	// What game sessions record.
+	public static final LongAdder COMMANDS = counter("commands");
+	public static final LongAdder REJECTED = counter("rejected commands");	// answered with usage or out of bounds
+	public static final LongAdder REFUSED = counter("refused moves");			// answered ERROR or Not your turn
+	public static final LongAdder WINS = counter("winning moves");
+	public static final LongAdder DRAWS = counter("drawing moves");
+	public static final Histogram PARSE = histogram("parse");
+	public static final Histogram MOVE = histogram("move");								// placing a tile and finding whether it won
+	public static final Histogram OUTPUT = histogram("output");						// flushing responses
+	private static final Histogram[] DISPATCH = new Histogram[Command.Type.values().length];
+	static {
+		for (Command.Type type : Command.Type.values()) {
+			DISPATCH[type.ordinal()] = histogram("command " + type);
+		}
+	}
+
+	/**
+	 * Finds the histogram of the time taken to carry out commands of a type.
+	 * @param type type of command
+	 * @return its histogram
+	 */
+	public static Histogram dispatch(Command.Type type) {
+		return DISPATCH[type.ordinal()];
+	}
+
+	/**
+	 * Finds the counter with a name, registering it if there is none.
+	 * @param name name of the counter
+	 * @return the counter
+	 */
+	public static synchronized LongAdder counter(String name) {
+		LongAdder counter = counters.get(name);
+		if (counter == null) {
+			counter = new LongAdder();
+			counters.put(name, counter);
+		}
+		return counter;
+	}
+
+	/**
+	 * Finds the histogram with a name, registering it if there is none.
+	 * @param name name of the histogram
+	 * @return the histogram
+	 */
+	public static synchronized Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histogram = new Histogram(name);
+			histograms.put(name, histogram);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Describes every counter, and every histogram that has counted
+	 * anything, with its latencies in microseconds.
+	 * @return the report, a line for each, or DISABLED_MESSAGE on a line
+	 * 				 of its own if recording is off
+	 */
+	public static synchronized String report() {
+		if (!ENABLED) {
+			return DISABLED_MESSAGE + System.lineSeparator();
+		}
+		StringBuilder report = new StringBuilder();
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			report.append(String.format("%-18s %10d%n", counter.getKey(), counter.getValue().sum()));
+		}
+		for (Histogram histogram : histograms.values()) {
+			if (histogram.getCount() > 0) {
+				report.append(String.format("%-18s %10d  mean %9.1f us  p50 %9.1f  p99 %9.1f  p99.9 %9.1f  max %9.1f%n",
+																		histogram.getName(), histogram.getCount(), histogram.getMean() / 1e3,
+																		histogram.getValueAtPercentile(50) / 1e3,
+																		histogram.getValueAtPercentile(99) / 1e3,
+																		histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMax() / 1e3));
+			}
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Writes the report to a file every so often, replacing what it held,
+	 * on a thread that does not keep the program running, and once more
+	 * when the program exits.
+	 * @param file file to write
+	 * @param intervalSeconds seconds between reports
+	 */
+	public static void dumpPeriodically(File file, long intervalSeconds) {
+		ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "Metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dumper.scheduleAtFixedRate(() -> dump(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(file)));
+	}
+
+	// Write the report to a file, replacing what it held.
+	private static void dump(File file) {
+		try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
+			out.print(report());
+		} catch (IOException e) {
+			System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+		}
+	}
+}
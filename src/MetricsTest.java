@@ -0,0 +1,50 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MetricsTest {
+
+	// Every value falls in a bucket whose highest value is at least it and
+	// within 1/16th of it, and buckets follow on from one another.
+	@Test
+	public void testBuckets() {
+		for (int bucket = 1; bucket < 900; bucket++) {
+			assertEquals("should follow on from the bucket before", bucket,
+									 Metrics.Histogram.bucketOf(Metrics.Histogram.highestOf(bucket - 1) + 1));
+		}
+		long[] values = {0, 1, 15, 16, 17, 31, 32, 1000, 123456789, 1L << 40, Long.MAX_VALUE};
+		for (long value : values) {
+			long highest = Metrics.Histogram.highestOf(Metrics.Histogram.bucketOf(value));
+			assertTrue("should count " + value + " in a bucket reaching it", highest >= value);
+			assertTrue("should count " + value + " in a narrow bucket", highest - value <= value / 16);
+		}
+	}
+
+	// Percentiles are found to within a bucket, and never above the largest value.
+	@Test
+	public void testPercentiles() {
+		Metrics.Histogram histogram = Metrics.histogram("MetricsTest latency");
+		assertEquals("should report nothing before any values", 0, histogram.getValueAtPercentile(50));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000);
+		}
+		histogram.record(-5);
+		assertEquals("should count every value", 1001, histogram.getCount());
+		assertEquals("should keep the largest value", 1000000, histogram.getMax());
+		long median = histogram.getValueAtPercentile(50);
+		assertTrue("should find the median within a bucket, was " + median, median >= 500000 && median <= 532000);
+		assertEquals("should not report above the largest value", 1000000, histogram.getValueAtPercentile(100));
+		assertEquals("should find the mean", 500000.0, histogram.getMean(), 1e-6);
+	}
+
+	// Counters and histograms are registered once by name.
+	@Test
+	public void testRegistry() {
+		assertSame("should find the same counter", Metrics.counter("MetricsTest count"),
+							 Metrics.counter("MetricsTest count"));
+		assertSame("should find the same histogram", Metrics.histogram("MetricsTest latency"),
+							 Metrics.histogram("MetricsTest latency"));
+		assertSame("should find each command's histogram", Metrics.histogram("command PUT"),
+							 Metrics.dispatch(Command.Type.PUT));
+	}
+}
@@ -0,0 +1,751 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves Connect-Four-Cli games over TCP with non-blocking sockets, all
+ * on one thread but for the computer's searches. It speaks the same
+ * protocol as GameServer.
+ *
+ * Command lines are parsed straight from each connection's read buffer
+ * into a reused Command, which the game's GameSession carries out, as it
+ * does for the other servers and the command line, writing its response
+ * straight into output buffers taken from a pool. The responses to all
+ * the commands read at once are sent with one gathering write. While a
+ * connection's output is waiting to be sent, no more of its commands are
+ * read.
+ *
+ * AI and HINT search, so they are carried out on a pool of search
+ * threads, and the selector thread goes on serving other connections.
+ * Until a search is answered, neither its connection's later commands nor
+ * those of the other player of its game are served, so each game's
+ * commands are still carried out one at a time, in order.
+ *
+ * Once a player's commands are answered, the moves they made are sent on
+ * to the game's spectators, except to those still sending earlier output,
+ * which are sent them as soon as that is done. So a slow spectator holds
+ * up no one, and its output waiting to be sent stays bounded: it is sent
+ * the board instead if it misses more moves than its game keeps.
+ */
+public class NioGameServer {
+
+	// Size of each read buffer, and so the longest command line, and of each output buffer.
+	public static final int BUFFER_SIZE = 8192;
+
+	// Most output buffers kept in the pool for reuse.
+	private static final int MAX_POOLED_BUFFERS = 1024;
+
+	private final ServerSocketChannel serverChannel;
+	private final Selector selector;
+	private final GameRegistry games;
+	private final ServerStats stats = new ServerStats();
+	private final ScheduledExecutorService statsReporter = Executors.newSingleThreadScheduledExecutor();
+	private final Thread selectorThread = new Thread(this::serve, "NioGameServer");
+	private final ExecutorService searchThreads;
+	private final ConcurrentLinkedQueue<Search> finishedSearches = new ConcurrentLinkedQueue<Search>();
+	private volatile boolean running;
+
+	// State used only by the selector thread.
+	private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<ByteBuffer>();
+	private final Command command = new Command();
+	private final byte[] digits = new byte[11];
+	private final Map<GameRegistry.Game, ArrayDeque<Connection>> searching
+			= new HashMap<GameRegistry.Game, ArrayDeque<Connection>>();		// connections waiting for each game's search
+	private volatile int connections;
+
+	// Responses that never change, encoded once.
+	private final byte[] prompt = encode(GameServer.PROMPT);
+	private final byte[] success = encodeLine(GameSession.SUCCESS_MESSAGE);
+	private final byte[] error = encodeLine(GameSession.ERROR_MESSAGE);
+	private final byte[] noGame = encodeLine(GameServer.NO_GAME_MESSAGE);
+	private final byte[] gamePrefix = encode(GameServer.GAME_MESSAGE + " ");
+	private final byte[] movePrefix = encode(GameBroadcast.MOVE_MESSAGE + " ");
+	private final byte[] moveWin = encodeLine(" " + GameSession.WIN_MESSAGE);
+	private final byte[] moveDraw = encodeLine(" " + GameSession.DRAW_MESSAGE);
+	private final byte[] undone = encodeLine(GameBroadcast.UNDO_MESSAGE);
+	private final byte[] movesPrefix = encode(GameBroadcast.MOVES_MESSAGE);
+	private final byte[] usage;
+
+	// A search finished on a search thread, with the response to the command that asked for it.
+	private static class Search {
+		final Connection connection;
+		final GameRegistry.Game game;
+		final byte[] response;
+		final long startTime;
+
+		Search(Connection connection, GameRegistry.Game game, byte[] response, long startTime) {
+			this.connection = connection;
+			this.game = game;
+			this.response = response;
+			this.startTime = startTime;
+		}
+	}
+
+	// A client connection, with the game it plays in or watches, if any.
+	private class Connection {
+		final SocketChannel channel;
+		final PrintStream printer = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				current().put((byte) b);
+			}
+
+			@Override
+			public void write(byte[] bytes, int offset, int length) {
+				put(bytes, offset, length);
+			}
+		});		// writes into the output buffers, for GameSession
+		SelectionKey key;
+		final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);		// left ready for reading into
+		ByteBuffer[] out = new ByteBuffer[4];
+		int outCount;
+		boolean sending;				// output buffers flipped and being sent
+		boolean discarding;			// skipping the rest of a line too long to read
+		boolean closing;				// the client has exited
+		GameRegistry.Game game;
+		int player;
+		GameRegistry.Game watched;
+		GameBroadcast.Spectator spectator;		// null unless watching
+		boolean searching;			// waiting for a search to answer its command
+		boolean waiting;				// waiting for another connection's search of its game
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		void put(byte[] bytes) {
+			put(bytes, 0, bytes.length);
+		}
+
+		void put(byte[] bytes, int offset, int length) {
+			int end = offset + length;
+			while (offset < end) {
+				ByteBuffer buffer = current();
+				int count = Math.min(buffer.remaining(), end - offset);
+				buffer.put(bytes, offset, count);
+				offset += count;
+			}
+		}
+
+		// Whether no more commands are to be served for now.
+		boolean isPaused() {
+			return searching || waiting;
+		}
+
+		// Write a non-negative number in decimal.
+		void putNumber(int value) {
+			int start = digits.length;
+			do {
+				digits[--start] = (byte) ('0' + value % 10);
+				value /= 10;
+			} while (value > 0);
+			for (int i = start; i < digits.length; i++) {
+				current().put(digits[i]);
+			}
+		}
+
+		void putNewline() {
+			current().put((byte) '\n');
+		}
+
+		void putByte(char c) {
+			current().put((byte) c);
+		}
+
+		// The output buffer with room in it, taken from the pool if the last is full.
+		private ByteBuffer current() {
+			if (outCount == 0 || !out[outCount - 1].hasRemaining()) {
+				if (outCount == out.length) {
+					out = Arrays.copyOf(out, outCount * 2);
+				}
+				ByteBuffer buffer = bufferPool.poll();
+				out[outCount++] = (buffer != null) ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+			}
+			return out[outCount - 1];
+		}
+
+		// Send as much output as the socket takes in one gathering write,
+		// returning drained buffers to the pool. Returns true once all of it is sent.
+		boolean flush() throws IOException {
+			if (outCount == 0) {
+				return true;
+			}
+			if (!sending) {
+				for (int i = 0; i < outCount; i++) {
+					out[i].flip();
+				}
+				sending = true;
+			}
+			channel.write(out, 0, outCount);
+			int drained = 0;
+			while (drained < outCount && !out[drained].hasRemaining()) {
+				release(out[drained++]);
+			}
+			System.arraycopy(out, drained, out, 0, outCount - drained);
+			Arrays.fill(out, outCount - drained, outCount, null);
+			outCount -= drained;
+			sending = outCount > 0;
+			return !sending;
+		}
+
+		void releaseAll() {
+			for (int i = 0; i < outCount; i++) {
+				release(out[i]);
+				out[i] = null;
+			}
+			outCount = 0;
+		}
+	}
+
+	/**
+	 * Creates a server for games on boards of the given size.
+	 * Call start to begin serving.
+	 * @param port port to listen on, or 0 for any free port
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @throws IOException if the port cannot be listened on
+	 * @throws IllegalArgumentException if the dimensions are not valid
+	 */
+	public NioGameServer(int port, int numColumns, int numRows, int connectLength) throws IOException {
+		this(port, numColumns, numRows, connectLength, GameRegistry.DEFAULT_COMPUTER_TIME_MILLIS);
+	}
+
+	/**
+	 * Creates a server for games on boards of the given size.
+	 * Call start to begin serving.
+	 * @param port port to listen on, or 0 for any free port
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param computerTimeMillis time the computer may take per move, for AI
+	 * 				 and HINT, in milliseconds
+	 * @throws IOException if the port cannot be listened on
+	 * @throws IllegalArgumentException if the dimensions are not valid
+	 */
+	public NioGameServer(int port, int numColumns, int numRows, int connectLength, long computerTimeMillis)
+			throws IOException {
+		this(port, numColumns, numRows, connectLength, computerTimeMillis, GameRegistry.DEFAULT_SOLVER_TABLE_BITS);
+	}
+
+	/**
+	 * Creates a server for games on boards of the given size.
+	 * Call start to begin serving.
+	 * @param port port to listen on, or 0 for any free port
+	 * @param numColumns number of columns of each board
+	 * @param numRows number of rows of each board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param computerTimeMillis time the computer may take per move, for AI
+	 * 				 and HINT, in milliseconds
+	 * @param solverTableBits each game's solver table holds 2^solverTableBits results
+	 * @throws IOException if the port cannot be listened on
+	 * @throws IllegalArgumentException if the dimensions or table size are not valid
+	 */
+	public NioGameServer(int port, int numColumns, int numRows, int connectLength, long computerTimeMillis,
+											 int solverTableBits) throws IOException {
+		games = new GameRegistry(numColumns, numRows, connectLength, computerTimeMillis, solverTableBits);
+
+		// Usage is encoded from the same code that prints it.
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes);
+		GameSession.printUsage(out);
+		out.flush();
+		usage = bytes.toByteArray();
+
+		searchThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+			Thread thread = new Thread(task, "NioGameServer search");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Begins accepting connections and reporting statistics, on threads of the server.
+	 */
+	public void start() {
+		running = true;
+		selectorThread.start();
+		statsReporter.scheduleAtFixedRate(() -> {
+			stats.report(System.err, games.size(), connections);
+			games.getAnalysisCache().report(System.err);
+		}, GameServer.STATS_INTERVAL_SECONDS, GameServer.STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops serving, closing every connection and the server socket.
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+		statsReporter.shutdown();
+		searchThreads.shutdownNow();
+		try {
+			selectorThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reports the port the server listens on.
+	 * @return port number
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Reports the number of games with at least one player connected.
+	 * @return number of games
+	 */
+	public int getGameCount() {
+		return games.size();
+	}
+
+	/**
+	 * Reports the number of commands served so far.
+	 * @return number of commands
+	 */
+	public long getCommandCount() {
+		return stats.getCommandCount();
+	}
+
+	// Serve every connection from the selector thread until stopped.
+	private void serve() {
+		try {
+			while (running) {
+				selector.select();
+				finishSearches();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (key.isValid() && key.isAcceptable()) {
+						accept();
+					} else if (key.isValid()) {
+						Connection connection = (Connection) key.attachment();
+						try {
+							if (key.isWritable()) {
+								sendPending(key, connection);
+							} else if (key.isReadable()) {
+								receive(key, connection);
+							}
+						} catch (IOException e) {
+							close(key, connection);		// connection lost
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Game server stopped: " + e.getMessage());
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				if (key.attachment() != null) {
+					close(key, (Connection) key.attachment());
+				}
+			}
+			try {
+				serverChannel.close();
+				selector.close();
+			} catch (IOException e) {
+				// Closing anyway
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Connection connection = new Connection(channel);
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+		connection.key = key;
+		connections++;
+		connection.put(prompt);
+		try {
+			send(key, connection);
+		} catch (IOException e) {
+			close(key, connection);
+		}
+	}
+
+	// Read what the client has sent and serve the complete lines in it.
+	private void receive(SelectionKey key, Connection connection) throws IOException {
+		if (connection.channel.read(connection.in) == -1) {
+			close(key, connection);
+			return;
+		}
+		serveAndSend(key, connection);
+	}
+
+	// Continue sending output the socket would not take, then serve any
+	// lines that were read while it was waiting, or for a spectator, send
+	// any moves made while it was.
+	private void sendPending(SelectionKey key, Connection connection) throws IOException {
+		if (!flush(connection)) {
+			return;
+		}
+		if (connection.closing) {
+			close(key, connection);
+			return;
+		}
+		if (connection.spectator != null) {
+			putEvents(connection);
+		}
+		serveAndSend(key, connection);
+	}
+
+	// Serve the lines read and send the responses, then send the moves made
+	// on to the game's spectators.
+	private void serveAndSend(SelectionKey key, Connection connection) throws IOException {
+		GameRegistry.Game game = connection.game;
+		long published = (game == null) ? 0 : game.getBroadcast().getPublished();
+		serveLines(connection);
+		send(key, connection);
+		if (game != null && game.getBroadcast().getPublished() != published) {
+			broadcast(game);
+		}
+	}
+
+	// Send a game's new events to each of its spectators that is not still
+	// sending earlier output.
+	private void broadcast(GameRegistry.Game game) {
+		for (GameBroadcast.Spectator spectator : game.getBroadcast().getSpectators()) {
+			Connection watcher = (Connection) spectator.getAttachment();
+			if (watcher.outCount == 0 && !watcher.closing && !watcher.waiting) {
+				putEvents(watcher);
+				try {
+					send(watcher.key, watcher);
+				} catch (IOException e) {
+					close(watcher.key, watcher);
+				}
+			}
+		}
+	}
+
+	// Put every event waiting for a spectator, or the board in place of
+	// those it missed, as GameServer sends them.
+	private void putEvents(Connection connection) {
+		GameBroadcast.Spectator spectator = connection.spectator;
+		for (long event = spectator.next(); event != GameBroadcast.NO_EVENT; event = spectator.next()) {
+			switch (GameBroadcast.kindOf(event)) {
+			case GameBroadcast.BOARD:
+				// The board cannot be read while the game's session is searching.
+				if (waitForSearch(connection, connection.watched)) {
+					return;
+				}
+				GameSession session = connection.watched.getSession();
+				synchronized (session) {
+					Board board = session.getBoard();
+					connection.put(movesPrefix);
+					for (int i = 0; i < board.getMoveCount(); i++) {
+						connection.putByte(i == 0 ? ' ' : ',');
+						connection.putNumber(board.getMove(i));
+					}
+					connection.putNewline();
+					spectator.catchUp();
+				}
+				break;
+			case GameBroadcast.UNDO:
+				connection.put(undone);
+				break;
+			default:
+				connection.put(movePrefix);
+				connection.putNumber(GameBroadcast.playerOf(event));
+				connection.putByte(' ');
+				connection.putNumber(GameBroadcast.columnOf(event));
+				switch (GameBroadcast.outcomeOf(event)) {
+				case WIN:
+					connection.put(moveWin);
+					break;
+				case DRAW:
+					connection.put(moveDraw);
+					break;
+				default:
+					connection.putNewline();
+					break;
+				}
+				break;
+			}
+		}
+	}
+
+	// Send the responses served, waiting for the socket to be writable if it
+	// will not take them all now, and close the connection once the client
+	// has exited and been answered.
+	private void send(SelectionKey key, Connection connection) throws IOException {
+		if (!flush(connection)) {
+			key.interestOps(SelectionKey.OP_WRITE);
+		} else if (connection.closing) {
+			close(key, connection);
+		} else {
+			key.interestOps(connection.isPaused() ? 0 : SelectionKey.OP_READ);
+		}
+	}
+
+	// Write as much of a connection's output as the socket will take,
+	// returning true if it took it all. The time taken is recorded if
+	// metrics are, for players' output.
+	private static boolean flush(Connection connection) throws IOException {
+		if (!Metrics.ENABLED || connection.game == null || connection.outCount == 0) {
+			return connection.flush();
+		}
+		long start = System.nanoTime();
+		boolean sent = connection.flush();
+		Metrics.OUTPUT.record(System.nanoTime() - start);
+		return sent;
+	}
+
+	// Answer the commands whose searches have finished, and serve the
+	// connections that were waiting for them.
+	private void finishSearches() {
+		Search search;
+		while ((search = finishedSearches.poll()) != null) {
+			Connection connection = search.connection;
+			connection.searching = false;
+			ArrayDeque<Connection> waiting = searching.remove(search.game);
+			stats.record(System.nanoTime() - search.startTime);
+			if (connection.channel.isOpen()) {
+				connection.put(search.response);
+				if (!connection.closing) {
+					connection.put(prompt);
+				}
+				resume(connection);
+			}
+			broadcast(search.game);
+			for (Connection waiter : waiting) {
+				if (waiter.channel.isOpen()) {
+					waiter.waiting = false;
+					resume(waiter);
+				}
+			}
+		}
+	}
+
+	// Go on serving a connection that was paused.
+	private void resume(Connection connection) {
+		try {
+			if (connection.spectator != null) {
+				putEvents(connection);
+			}
+			serveAndSend(connection.key, connection);
+		} catch (IOException e) {
+			close(connection.key, connection);
+		}
+	}
+
+	// If a search of the game is under way, pause the connection until it
+	// is done, returning true.
+	private boolean waitForSearch(Connection connection, GameRegistry.Game game) {
+		ArrayDeque<Connection> waiting = searching.get(game);
+		if (waiting == null) {
+			return false;
+		}
+		if (!connection.waiting) {
+			connection.waiting = true;
+			waiting.add(connection);
+		}
+		return true;
+	}
+
+	// Serve every complete line in the connection's read buffer.
+	private void serveLines(Connection connection) {
+		ByteBuffer in = connection.in;
+		in.flip();
+		int start = in.position();
+		for (int i = start; i < in.limit() && !connection.closing && !connection.isPaused(); i++) {
+			if (in.get(i) != '\n') {
+				continue;
+			}
+			int end = (i > start && in.get(i - 1) == '\r') ? i - 1 : i;
+			if (connection.discarding) {
+				connection.discarding = false;
+			} else if (connection.game != null && waitForSearch(connection, connection.game)) {
+				break;		// the line is served once the search is done
+			} else {
+				long startTime = System.nanoTime();
+				command.parse(in, start, end);
+				if (Metrics.ENABLED && connection.game != null) {
+					Metrics.PARSE.record(System.nanoTime() - startTime);
+				}
+				if (serveCommand(connection, command, in, start, end, startTime)) {
+					stats.record(System.nanoTime() - startTime);
+				}
+			}
+			start = i + 1;
+		}
+		in.position(start);
+		in.compact();
+
+		// A line that fills the whole buffer is too long to be a command.
+		// Answer it now and skip the rest of it.
+		if (!in.hasRemaining() && !connection.closing && !connection.isPaused()) {
+			in.clear();
+			if (!connection.discarding) {
+				connection.discarding = true;
+				connection.put(usage);
+				connection.put(prompt);
+			}
+		}
+	}
+
+	// Carry out one command, held between start and end of the read buffer,
+	// followed by the prompt for the next. Returns false if the command was
+	// given to a search thread, to be answered when the search is done.
+	private boolean serveCommand(Connection connection, Command command, ByteBuffer in, int start, int end,
+															 long startTime) {
+		if (connection.spectator != null) {
+			// Spectators are sent no prompts, and may only exit.
+			if (command.getType() == Command.Type.EXIT && command.getWordCount() == 1) {
+				connection.closing = true;
+			}
+			return true;
+		}
+		if (connection.game == null) {
+			serveLobbyCommand(connection, command);
+		} else if (command.getType() == Command.Type.AI || command.getType() == Command.Type.HINT) {
+			search(connection, lineOf(in, start, end), startTime);
+			return false;
+		} else if (!connection.game.getSession().execute(command, connection.player, connection.printer)) {
+			connection.closing = true;
+		}
+		if (!connection.closing && connection.spectator == null) {
+			connection.put(prompt);
+		}
+		return true;
+	}
+
+	// Carry out a command that searches on a search thread, pausing the
+	// connection, and any other of its game, until it is answered.
+	private void search(Connection connection, String line, long startTime) {
+		GameRegistry.Game game = connection.game;
+		int player = connection.player;
+		connection.searching = true;
+		searching.put(game, new ArrayDeque<Connection>());
+		searchThreads.execute(() -> {
+			ByteArrayOutputStream response = new ByteArrayOutputStream();
+			PrintStream out = new PrintStream(response);
+			game.getSession().execute(new Command().parse(line), player, out);
+			out.flush();
+			finishedSearches.add(new Search(connection, game, response.toByteArray(), startTime));
+			selector.wakeup();
+		});
+	}
+
+	// Copy a line of ASCII out of a buffer.
+	private static String lineOf(ByteBuffer buffer, int start, int end) {
+		char[] line = new char[end - start];
+		for (int i = start; i < end; i++) {
+			line[i - start] = (char) (buffer.get(i) & 0xFF);
+		}
+		return new String(line);
+	}
+
+	// Serve a command of a client that has not created or joined a game yet.
+	private void serveLobbyCommand(Connection connection, Command command) {
+		switch (command.getType()) {
+		case CREATE:
+			if (command.getWordCount() == 1) {
+				connection.game = games.create();
+				connection.player = 1;
+				connection.put(gamePrefix);
+				connection.putNumber(connection.game.getId());
+				connection.putNewline();
+				return;
+			}
+			break;
+		case JOIN:
+			if (command.getWordCount() == 2) {
+				connection.game = command.hasNumber() ? games.join(command.getNumber()) : null;
+				connection.player = 2;
+				connection.put(connection.game == null ? error : success);
+				return;
+			}
+			break;
+		case WATCH:
+			if (command.getWordCount() == 2) {
+				connection.watched = command.hasNumber() ? games.watch(command.getNumber()) : null;
+				if (connection.watched == null) {
+					connection.put(error);
+				} else {
+					connection.put(success);
+					connection.spectator = connection.watched.getBroadcast().subscribe(connection);
+					putEvents(connection);
+				}
+				return;
+			}
+			break;
+		case EXIT:
+			if (command.getWordCount() == 1) {
+				connection.closing = true;
+				return;
+			}
+			break;
+		default:
+			break;
+		}
+		connection.put(noGame);
+	}
+
+	private void close(SelectionKey key, Connection connection) {
+		if (!connection.channel.isOpen()) {
+			return;		// already closed
+		}
+		key.cancel();
+		try {
+			connection.channel.close();
+		} catch (IOException e) {
+			// Closing anyway
+		}
+		if (connection.game != null) {
+			games.leave(connection.game);
+			connection.game = null;
+		}
+		if (connection.spectator != null) {
+			connection.spectator.close();
+		}
+		connection.releaseAll();
+		connections--;
+	}
+
+	private void release(ByteBuffer buffer) {
+		if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+			buffer.clear();
+			bufferPool.push(buffer);
+		}
+	}
+
+	private static byte[] encode(String text) {
+		return text.getBytes();
+	}
+
+	private static byte[] encodeLine(String text) {
+		return (text + "\n").getBytes();
+	}
+}
@@ -0,0 +1,191 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NioGameServerTest {
+
+	// Commands sent by the two players, with the player sending each first.
+	private static final String[] SCRIPT = {
+		"1PUT 1", "1CREATE", "2JOIN 1", "2PUT 1", "1PUT 1", "1PUT 5", "1PUT a", "1PUT 1 2", "1 PUT 1",
+		"1   ", "1", "1put 1", "2GET", "2PUT 2", "1BOARD", "1UNDO", "2UNDO", "1PUT 1", "1AI", "2AI",
+		"1PUT 3", "2PUT 1", "1PUT 2", "2PUT 1", "1PUT 2", "2PUT 4", "1PUT 2", "2PUT 4", "1PUT 2",
+		"2PUT 3", "1GET", "2BOARD", "1PUT 2147483648", "1JOIN 1", "1HINT", "2HINT 1", "2EXIT"
+	};
+
+	// The non-blocking server answers every command as the blocking one does.
+	@Test
+	public void testMatchesBlockingServer() throws IOException {
+		GameServer blocking = new GameServer(0, 4, 4, 4);
+		blocking.start();
+		List<String> expected = runScript(blocking.getPort());
+		blocking.stop();
+
+		NioGameServer server = new NioGameServer(0, 4, 4, 4);
+		server.start();
+		try {
+			assertEquals("should answer as the blocking server", expected, runScript(server.getPort()));
+			assertEquals("should count every command", SCRIPT.length, server.getCommandCount());
+		} finally {
+			server.stop();
+		}
+	}
+
+	// Lobby lines, odd ones included, sent by one connection before it has a game.
+	private static final String[] LOBBY_LINES = {
+		"CREATE 1", "JOIN", "JOIN 1", "JOIN  1", "JOIN 1 2", "JOIN x", "JOIN -1", "JOIN 99999999999", "join 1",
+		"WATCH", "WATCH 1", "WATCH 1 ", " CREATE", "", "PUT 1", "EXIT 1", "CREATE ", "GET", "EXIT "
+	};
+
+	// Both servers parse lobby lines alike, and answer each the same way.
+	@Test
+	public void testLobbyMatchesBlockingServer() throws IOException {
+		GameServer blocking = new GameServer(0, 4, 4, 4);
+		blocking.start();
+		List<String> expected;
+		try {
+			expected = runLines(blocking.getPort(), LOBBY_LINES);
+		} finally {
+			blocking.stop();
+		}
+		assertEquals("should create a game despite the trailing space", "GAME 1\n", expected.get(16));
+		assertEquals("should close on EXIT despite the trailing space", "", expected.get(LOBBY_LINES.length - 1));
+
+		NioGameServer server = new NioGameServer(0, 4, 4, 4);
+		server.start();
+		try {
+			assertEquals("should answer as the blocking server", expected, runLines(server.getPort(), LOBBY_LINES));
+		} finally {
+			server.stop();
+		}
+	}
+
+	// Commands sent together are all answered, in order.
+	@Test
+	public void testPipelinedCommands() throws IOException {
+		NioGameServer server = new NioGameServer(0, 7, 6, 4);
+		server.start();
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			StringBuilder commands = new StringBuilder("CREATE\r\n");
+			for (int i = 0; i < 1000; i++) {
+				commands.append("GET\nBOARD\n");
+			}
+			commands.append("EXIT\n");
+			socket.getOutputStream().write(commands.toString().getBytes());
+			InputStream in = socket.getInputStream();
+			int prompts = 0;
+			int c;
+			while ((c = in.read()) != -1) {
+				if (c == '>') {
+					prompts++;
+				}
+			}
+			assertEquals("should prompt once at the start and once per command but EXIT", 2002, prompts);
+		} finally {
+			server.stop();
+		}
+	}
+
+	// A spectator is sent the board, then the moves made, with no prompts.
+	@Test
+	public void testSpectator() throws IOException {
+		NioGameServer server = new NioGameServer(0, 4, 4, 4);
+		server.start();
+		try (Socket first = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+				 Socket second = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+				 Socket watcher = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			readResponse(first);
+			readResponse(second);
+			readResponse(watcher);
+			send(first, "CREATE");
+			send(second, "JOIN 1");
+			send(first, "PUT 3");
+			GameServerTest.watch(watcher, "1");
+			assertEquals("should be sent the moves so far", "MOVES 3", GameServerTest.readLine(watcher));
+			send(second, "PUT 4");
+			send(first, "GET");
+			send(first, "PUT 4");
+			assertEquals("should be sent each move", "MOVE 2 4", GameServerTest.readLine(watcher));
+			assertEquals("should be sent only moves", "MOVE 1 4", GameServerTest.readLine(watcher));
+			watcher.getOutputStream().write("EXIT\n".getBytes());
+			assertEquals("should close the connection on EXIT", -1, watcher.getInputStream().read());
+		} finally {
+			server.stop();
+		}
+	}
+
+	// Other games are served while the computer searches for one of them.
+	@Test
+	public void testServesDuringSearch() throws IOException {
+		NioGameServer server = new NioGameServer(0, 7, 6, 4, 2000);
+		server.start();
+		try (Socket searcher = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+				 Socket other = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			readResponse(searcher);
+			readResponse(other);
+			send(searcher, "CREATE");
+			searcher.getOutputStream().write("HINT\nGET\n".getBytes());
+			send(other, "CREATE");
+			assertEquals("should serve another game", GameSession.SUCCESS_MESSAGE + "\n", send(other, "PUT 4"));
+			assertEquals("should still be searching", 0, searcher.getInputStream().available());
+			assertTrue("should answer the search", readResponse(searcher).startsWith(GameSession.HINT_MESSAGE));
+			assertEquals("should serve the next command after it", "", readResponse(searcher));
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static String send(Socket socket, String command) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write((command + "\n").getBytes());
+		out.flush();
+		return readResponse(socket);
+	}
+
+	// Send the script to a server, returning every response.
+	private static List<String> runScript(int port) throws IOException {
+		List<String> responses = new ArrayList<String>();
+		try (Socket first = new Socket(InetAddress.getLoopbackAddress(), port);
+				 Socket second = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			Socket[] players = {first, second};
+			readResponse(first);
+			readResponse(second);
+			for (String line : SCRIPT) {
+				Socket socket = players[line.charAt(0) - '1'];
+				OutputStream out = socket.getOutputStream();
+				out.write((line.substring(1) + "\n").getBytes());
+				out.flush();
+				responses.add(readResponse(socket));
+			}
+		}
+		return responses;
+	}
+
+	// Send lines from one connection, one at a time, returning every response.
+	private static List<String> runLines(int port, String[] lines) throws IOException {
+		List<String> responses = new ArrayList<String>();
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			readResponse(socket);
+			for (String line : lines) {
+				responses.add(send(socket, line));
+			}
+		}
+		return responses;
+	}
+
+	private static String readResponse(Socket socket) throws IOException {
+		StringBuilder response = new StringBuilder();
+		int c;
+		while ((c = socket.getInputStream().read()) != '>' && c != -1) {
+			response.append((char) c);
+		}
+		return response.toString();
+	}
+}
@@ -0,0 +1,265 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Book of the exact values and best moves of the opening positions of
+ * games on boards of one size, solved ahead of time.
+ *
+ * A book is built once with build, which solves every position reachable
+ * in up to a given number of moves, and written to a file of entries
+ * sorted by the position's Board.canonicalKey:
+ *   "C4OB", version, columns, rows, connect length, depth    6 ints
+ *   number of entries                                       long
+ *   entries:                                                key long, score short, move byte
+ * Scores are those of Solver, for the player to move, and the move is the
+ * column that achieves the score in the canonical orientation. A position
+ * and its mirror image share an entry, so each is solved and stored once.
+ * Positions in which a player has already won are not in the book.
+ *
+ * Opening a book only notes its file. The file is mapped into memory the
+ * first time a position is looked up, and each lookup is a binary search
+ * of the entries in place, so nothing is read that is not needed.
+ */
+public class OpeningBook {
+
+	public static final byte[] MAGIC = {'C', '4', 'O', 'B'};
+	public static final int VERSION = 2;
+
+	// Returned by getScore for a position not in the book.
+	public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+	private static final int HEADER_LENGTH = 32;
+	private static final int ENTRY_LENGTH = 11;
+
+	private final File file;
+	private volatile MappedFile entries;		// mapped on the first lookup
+	private int numColumns;
+	private int numRows;
+	private int connectLength;
+	private int depth;
+	private long entryCount;
+
+	/**
+	 * Opens a book file, without reading it yet.
+	 * @param file book file, as written by build
+	 */
+	public OpeningBook(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Reports whether the book holds a position.
+	 * @param board board holding the position
+	 * @return true if the position is in the book
+	 * @throws IllegalStateException if the book file could not be read
+	 */
+	public boolean contains(Board board) {
+		return find(board) >= 0;
+	}
+
+	/**
+	 * Looks up the value of a position, with the player whose turn it is
+	 * by the number of tiles on the board to move.
+	 * @param board board holding the position
+	 * @return score of the position for the player to move, or NOT_FOUND
+	 * 				 if it is not in the book
+	 * @throws IllegalStateException if the book file could not be read
+	 */
+	public int getScore(Board board) {
+		long entry = find(board);
+		return entry < 0 ? NOT_FOUND : entries.getShort(entry + 8);
+	}
+
+	/**
+	 * Looks up the best move from a position, with the player whose turn
+	 * it is by the number of tiles on the board to move.
+	 * @param board board holding the position
+	 * @return column to play, or -1 if the position is not in the book
+	 * @throws IllegalStateException if the book file could not be read
+	 */
+	public int getMove(Board board) {
+		long entry = find(board);
+		return entry < 0 ? -1 : board.canonicalColumn(entries.get(entry + 10) & 0xFF);
+	}
+
+	/**
+	 * Reports the number of moves the book's positions were built up to.
+	 * @return depth of the book
+	 * @throws IllegalStateException if the book file could not be read
+	 */
+	public int getDepth() {
+		map();
+		return depth;
+	}
+
+	/**
+	 * Reports the number of positions in the book.
+	 * @return number of entries
+	 * @throws IllegalStateException if the book file could not be read
+	 */
+	public long size() {
+		map();
+		return entryCount;
+	}
+
+	// Position in the file of the entry for a position, or -1 if there is none.
+	private long find(Board board) {
+		map();
+		if (board.getMoveCount() > depth || board.getNumColumns() != numColumns || board.getNumRows() != numRows
+				|| board.getConnectLength() != connectLength) {
+			return -1;
+		}
+		long key = board.canonicalKey();
+		long low = 0;
+		long high = entryCount - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			long entry = HEADER_LENGTH + middle * ENTRY_LENGTH;
+			long middleKey = entries.getLong(entry);
+			if (middleKey < key) {
+				low = middle + 1;
+			} else if (middleKey > key) {
+				high = middle - 1;
+			} else {
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	// Map the file and read its header, if not done already.
+	private void map() {
+		if (entries != null) {
+			return;
+		}
+		synchronized (this) {
+			if (entries != null) {
+				return;
+			}
+			try {
+				MappedFile mapped = new MappedFile(file);
+				boolean valid = mapped.size() >= HEADER_LENGTH;
+				for (int i = 0; valid && i < MAGIC.length; i++) {
+					valid = mapped.get(i) == MAGIC[i];
+				}
+				if (!valid || mapped.getInt(4) != VERSION
+						|| mapped.size() != HEADER_LENGTH + mapped.getLong(24) * ENTRY_LENGTH) {
+					mapped.close();
+					throw new IOException(file + " is not an opening book");
+				}
+				numColumns = mapped.getInt(8);
+				numRows = mapped.getInt(12);
+				connectLength = mapped.getInt(16);
+				depth = mapped.getInt(20);
+				entryCount = mapped.getLong(24);
+				// The channel is not needed once mapped.
+				mapped.close();
+				entries = mapped;
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not read the opening book " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Solves every position of a board of the given size that can be
+	 * reached in up to depth moves, and writes them as a book, replacing any
+	 * file already there. Each position is solved exactly, so the depth
+	 * must leave few enough empty positions for the board to be solved.
+	 * @param numColumns number of columns of the board
+	 * @param numRows number of rows of the board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param depth number of moves to build the book up to
+	 * @param file file to write
+	 * @param threads number of threads to solve on
+	 * @return number of positions in the book
+	 * @throws IOException if the file could not be written
+	 * @throws IllegalArgumentException if the dimensions are not valid, or
+	 * 				 too large for a book
+	 */
+	public static long build(int numColumns, int numRows, int connectLength, int depth, File file, int threads)
+			throws IOException {
+		if (numColumns > 0xFF || numColumns * numRows > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("A " + numColumns + "x" + numRows + " board is too large for a book");
+		}
+
+		// Find the positions of each depth, each once however it is reached
+		// and whichever way round it is.
+		List<List<Board>> levels = new ArrayList<List<Board>>();
+		List<Board> level = new ArrayList<Board>();
+		level.add(new Board(numColumns, numRows, connectLength));
+		while (!level.isEmpty()) {
+			levels.add(level);
+			if (levels.size() > depth) {
+				break;
+			}
+			List<Board> next = new ArrayList<Board>();
+			Set<Long> seen = new HashSet<Long>();
+			for (Board board : level) {
+				for (int column = 1; column <= numColumns; column++) {
+					Board child = new Board(board);
+					if (child.play(column, 1 + board.getMoveCount() % Board.NUM_PLAYERS) == Board.Outcome.ONGOING
+							&& seen.add(child.canonicalKey())) {
+						next.add(child);
+					}
+				}
+			}
+			level = next;
+		}
+
+		// Solve the deepest positions first, so that the solver's table holds
+		// results the shallower ones can use.
+		ParallelSolver solver = new ParallelSolver(threads);
+		Map<Long, Integer> values = new HashMap<Long, Integer>();
+		try {
+			for (int ply = levels.size() - 1; ply >= 0; ply--) {
+				for (Board board : levels.get(ply)) {
+					int[] scores = solver.solveMoves(board, 1 + ply % Board.NUM_PLAYERS);
+					int best = 0;
+					for (int column : Solver.centerFirstOrder(numColumns)) {
+						if (scores[column - 1] != ParallelSolver.ILLEGAL_MOVE
+								&& (best == 0 || scores[column - 1] > scores[best - 1])) {
+							best = column;
+						}
+					}
+					values.put(board.canonicalKey(), scores[best - 1] << 8 | board.canonicalColumn(best));
+				}
+			}
+		} finally {
+			solver.shutdown();
+		}
+
+		long[] keys = new long[values.size()];
+		int count = 0;
+		for (long key : values.keySet()) {
+			keys[count++] = key;
+		}
+		Arrays.sort(keys);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(numColumns);
+			out.writeInt(numRows);
+			out.writeInt(connectLength);
+			out.writeInt(levels.size() - 1);
+			out.writeLong(keys.length);
+			for (long key : keys) {
+				int value = values.get(key);
+				out.writeLong(key);
+				out.writeShort(value >> 8);
+				out.writeByte(value & 0xFF);
+			}
+		}
+		return keys.length;
+	}
+}
@@ -0,0 +1,87 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OpeningBookTest {
+
+	private static final int DEPTH = 3;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// Every position up to the depth is in the book with its solved value
+	// and a move achieving it; later positions are not.
+	@Test
+	public void testScoresMatchSolver() throws IOException {
+		File file = folder.newFile("4x4.book");
+		long positions = OpeningBook.build(4, 4, 4, DEPTH, file, 2);
+		OpeningBook book = new OpeningBook(file);
+		assertEquals("should hold every position", positions, book.size());
+		assertEquals("should report its depth", DEPTH, book.getDepth());
+
+		ParallelSolver solver = new ParallelSolver(1);
+		try {
+			checkPositions(book, solver, new Board(4, 4, 4));
+		} finally {
+			solver.shutdown();
+		}
+		assertFalse("should not hold a board of another size", book.contains(new Board(5, 4, 4)));
+	}
+
+	// A solver with a book answers from it at once, with no search.
+	@Test
+	public void testSolverUsesBook() throws IOException {
+		File file = folder.newFile("4x4.book");
+		OpeningBook.build(4, 4, 4, DEPTH, file, 1);
+		Board board = new Board(4, 4, 4);
+		board.placeTile(1, 1);
+		Solver solver = new Solver(0);
+		solver.setOpeningBook(new OpeningBook(file));
+		assertEquals("should play the book move", new OpeningBook(file).getMove(board), solver.findBestMove(board, 2));
+		assertTrue("should report the position solved", solver.isSolved());
+		assertEquals("should not search", 0, solver.getNodeCount());
+		assertEquals("should leave the board as it was", 1, board.getMoveCount());
+	}
+
+	// A book is not read until a position is looked up in it.
+	@Test
+	public void testLazyLoading() {
+		OpeningBook book = new OpeningBook(new File(folder.getRoot(), "missing.book"));
+		try {
+			book.contains(new Board());
+			fail("should not read a missing book");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	// Check the book's entry for a position and those after it, up to the book's depth.
+	private static void checkPositions(OpeningBook book, ParallelSolver solver, Board board) {
+		int player = 1 + board.getMoveCount() % 2;
+		if (board.getMoveCount() > DEPTH) {
+			assertFalse("should not hold positions past its depth", book.contains(board));
+			return;
+		}
+		int[] scores = solver.solveMoves(board, player);
+		int best = ParallelSolver.ILLEGAL_MOVE;
+		for (int score : scores) {
+			best = Math.max(best, score);
+		}
+		assertEquals("should hold the value of " + board.getMoves(), best, book.getScore(board));
+		assertEquals("should hold a move achieving it", best, scores[book.getMove(board) - 1]);
+		for (int column = 1; column <= board.getNumColumns(); column++) {
+			Board.Outcome outcome = board.play(column, player);
+			if (outcome == Board.Outcome.ONGOING) {
+				checkPositions(book, solver, board);
+			}
+			if (outcome != Board.Outcome.ILLEGAL) {
+				board.undoMove();
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the perfect play value of positions in the Connect-Four-Cli game
+ * using every core.
+ *
+ * Each move from the position being solved is searched as a separate task
+ * in a ForkJoinPool. The first few levels of each search are split further
+ * in young brothers wait style: the first (most promising) move of a
+ * position is searched alone to set the alpha-beta window, then the rest
+ * of its moves are searched in parallel with that window. Below the split
+ * levels each task runs an ordinary Solver search. All the searches share
+ * one lock-free TranspositionTable, so work done on one thread is reused
+ * by the others.
+ *
+ * Scores are those of Solver, from the point of view of the player to move.
+ */
+public class ParallelSolver {
+
+	// Default number of levels below each move that are split into parallel tasks.
+	public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+	// Default size of the shared transposition table, 2^22 entries.
+	public static final int DEFAULT_TABLE_BITS = 22;
+
+	// Score reported for a column that cannot be played.
+	public static final int ILLEGAL_MOVE = Integer.MIN_VALUE;
+
+	private final ForkJoinPool pool;
+	private final TranspositionTable table;
+	private final int splitDepth;
+	private final ThreadLocal<Solver> solvers;
+	private final LongAdder nodeCount = new LongAdder();
+
+	/**
+	 * Creates a parallel solver with the default table size and split depth.
+	 * @param threads number of threads to search with
+	 */
+	public ParallelSolver(int threads) {
+		this(threads, DEFAULT_TABLE_BITS, DEFAULT_SPLIT_DEPTH);
+	}
+
+	/**
+	 * Creates a parallel solver.
+	 * @param threads number of threads to search with
+	 * @param tableBits the shared transposition table holds 2^tableBits results
+	 * @param splitDepth number of levels below each move that are split into parallel tasks
+	 */
+	public ParallelSolver(int threads, int tableBits, int splitDepth) {
+		pool = new ForkJoinPool(threads);
+		table = new TranspositionTable(tableBits);
+		this.splitDepth = splitDepth;
+		solvers = ThreadLocal.withInitial(() -> new Solver(table, 0));
+	}
+
+	/**
+	 * Finds the exact value of playing each column of the board.
+	 * @param board board to solve, with no player having won yet; it is not changed
+	 * @param player player to move
+	 * @return the score for player of playing each column, indexed by
+	 * 				 column - 1, or ILLEGAL_MOVE for columns that are full
+	 */
+	public int[] solveMoves(Board board, int player) {
+		List<SearchTask> tasks = new ArrayList<SearchTask>();
+		int[] scores = new int[board.getNumColumns()];
+		for (int column = 1; column <= board.getNumColumns(); column++) {
+			Board child = new Board(board);
+			Board.Outcome outcome = child.play(column, player);
+			if (outcome == Board.Outcome.ILLEGAL) {
+				scores[column - 1] = ILLEGAL_MOVE;
+			} else if (outcome == Board.Outcome.WIN) {
+				scores[column - 1] = winScore(board);
+			} else if (outcome == Board.Outcome.DRAW) {
+				scores[column - 1] = 0;
+			} else {
+				// Each move is solved with a full window so that its exact value is found.
+				tasks.add(new SearchTask(child, opponentOf(player), -Integer.MAX_VALUE, Integer.MAX_VALUE,
+																 splitDepth, column));
+			}
+		}
+		for (SearchTask task : tasks) {
+			pool.execute(task);
+		}
+		for (SearchTask task : tasks) {
+			scores[task.column - 1] = -task.join();
+		}
+		return scores;
+	}
+
+	/**
+	 * Reports the number of positions visited by all searches so far.
+	 * @return node count
+	 */
+	public long getNodeCount() {
+		return nodeCount.sum();
+	}
+
+	/**
+	 * Stops the threads of this solver once the searches in progress are done.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	// Score of winning with the next tile on the board, as in Solver.
+	private static int winScore(Board board) {
+		return board.getNumColumns() * board.getNumRows() - board.getMoveCount();
+	}
+
+	private static int opponentOf(int player) {
+		return Board.NUM_PLAYERS + 1 - player;
+	}
+
+	// Search of one position, with no player having won and at least one
+	// empty position, that owns its board. Returns the score for the player
+	// to move, or a bound on it if it is not strictly between alpha and beta.
+	private class SearchTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+
+		private final Board board;
+		private final int player;
+		private final int alpha;
+		private final int beta;
+		private final int splitLevels;	// levels below this one still to split
+		final int column;								// move that led to this position, for the caller
+
+		SearchTask(Board board, int player, int alpha, int beta, int splitLevels, int column) {
+			this.board = board;
+			this.player = player;
+			this.alpha = alpha;
+			this.beta = beta;
+			this.splitLevels = splitLevels;
+			this.column = column;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (splitLevels == 0) {
+				Solver solver = solvers.get();
+				long nodesBefore = solver.getNodeCount();
+				int score = solver.solve(board, player, alpha, beta);
+				nodeCount.add(solver.getNodeCount() - nodesBefore);
+				return score;
+			}
+			nodeCount.increment();
+
+			int[] order = Solver.centerFirstOrder(board.getNumColumns());
+			int windowAlpha = alpha;
+			int best = -Integer.MAX_VALUE;
+			boolean eldestSearched = false;
+			List<SearchTask> youngerBrothers = new ArrayList<SearchTask>();
+			for (int column : order) {
+				int movesBefore = board.getMoveCount();
+				Board.Outcome outcome = board.play(column, player);
+				if (outcome == Board.Outcome.ILLEGAL) {
+					continue;
+				}
+				if (outcome != Board.Outcome.ONGOING) {
+					// A finished game needs no search.
+					best = Math.max(best, outcome == Board.Outcome.WIN
+																? board.getNumColumns() * board.getNumRows() - movesBefore : 0);
+					board.undoMove();
+				} else if (!eldestSearched) {
+					// Eldest brother: search it here to narrow the window for the rest.
+					eldestSearched = true;
+					best = Math.max(best, -new SearchTask(board, opponentOf(player), -beta, -windowAlpha,
+																								splitLevels - 1, column).compute());
+					board.undoMove();
+				} else {
+					youngerBrothers.add(new SearchTask(new Board(board), opponentOf(player), -beta, -windowAlpha,
+																						 splitLevels - 1, column));
+					board.undoMove();
+					continue;
+				}
+				windowAlpha = Math.max(windowAlpha, best);
+				if (windowAlpha >= beta) {
+					return best;		// cut off, the rest need not be searched
+				}
+			}
+			invokeAll(youngerBrothers);
+			for (SearchTask task : youngerBrothers) {
+				best = Math.max(best, -task.join());
+			}
+			return best;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelSolverTest {
+
+	public ParallelSolver parallelSolver;
+	
+	@Before
+	public void setUp() throws Exception {
+		parallelSolver = new ParallelSolver(4, 16, 2);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		parallelSolver.shutdown();
+		parallelSolver = null;
+	}
+	
+	// Every opening on the default board is a draw.
+	@Test
+	public void testSolvesDefaultBoardOpenings() {
+		Board board = new Board();
+		assertArrayEquals("should find every opening is a draw", new int[] {0, 0, 0, 0},
+											parallelSolver.solveMoves(board, 1));
+		assertEquals("should leave the board as it was", 0, board.getMoveCount());
+		assertTrue("should count positions searched", parallelSolver.getNodeCount() > 0);
+	}
+	
+	// The parallel search should agree with a single threaded search of each move.
+	@Test
+	public void testMatchesSequentialSolver() {
+		Board board = new Board(5, 4, 4);
+		int[] columns = {3, 3, 2, 4};
+		for (int i = 0; i < columns.length; i++) {
+			board.placeTile(columns[i], 1 + i % 2);
+		}
+		assertMatchesSequentialSolver(board);
+	}
+	
+	// After most moves the opponent wins at once in the center column, the
+	// first one searched, and the next column still has to be searched first.
+	@Test
+	public void testImmediateWinSearchedFirst() {
+		Board board = new Board(5, 4, 4);
+		int[] columns = {1, 3, 1, 3, 5, 3};
+		for (int i = 0; i < columns.length; i++) {
+			board.placeTile(columns[i], 1 + i % 2);
+		}
+		assertMatchesSequentialSolver(board);
+	}
+	
+	@Test
+	public void testFullColumn() {
+		Board board = new Board();
+		board.placeTile(1, 1);
+		board.placeTile(1, 2);
+		board.placeTile(1, 1);
+		board.placeTile(1, 2);
+		assertEquals("should report a full column", ParallelSolver.ILLEGAL_MOVE, parallelSolver.solveMoves(board, 1)[0]);
+	}
+
+	// Check the parallel score of each move by player 1 against Solver's.
+	private void assertMatchesSequentialSolver(Board board) {
+		int[] scores = parallelSolver.solveMoves(board, 1);
+		int cells = board.getNumColumns() * board.getNumRows();
+		Solver solver = new Solver(16, 0);
+		for (int column = 1; column <= board.getNumColumns(); column++) {
+			int movesBefore = board.getMoveCount();
+			Board.Outcome outcome = board.play(column, 1);
+			int expected = (outcome == Board.Outcome.WIN) ? cells - movesBefore
+					: -solver.solve(board, 2, -Integer.MAX_VALUE, Integer.MAX_VALUE);
+			board.undoMove();
+			assertEquals("should find the same score for column " + column, expected, scores[column - 1]);
+		}
+	}
+}
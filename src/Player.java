@@ -0,0 +1,19 @@
+/**
+ * A computer player for the Connect-Four-Cli game, which chooses the
+ * column to play on a board.
+ *
+ * Players may keep state between moves, so one player should only be
+ * used by one thread at a time.
+ */
+public interface Player {
+	
+	/**
+	 * Chooses a column for the player to play on the board. The board
+	 * is left as it was.
+	 * @param board board to play on, with no player having won yet
+	 * 				 and at least one empty position
+	 * @param player player to move
+	 * @return column to play, between 1 and the number of columns
+	 */
+	int chooseMove(Board board, int player);
+}
@@ -0,0 +1,28 @@
+import java.util.SplittableRandom;
+
+/**
+ * Player that chooses uniformly at random between the columns that
+ * still have room for a tile.
+ */
+public class RandomPlayer implements Player {
+	
+	private final SplittableRandom random;
+	private int[] playableColumns = new int[0];
+	
+	/**
+	 * Creates a random player.
+	 * @param seed seed for the random choices, so that games can be repeated
+	 */
+	public RandomPlayer(long seed) {
+		random = new SplittableRandom(seed);
+	}
+	
+	@Override
+	public int chooseMove(Board board, int player) {
+		if (playableColumns.length != board.getNumColumns()) {
+			playableColumns = new int[board.getNumColumns()];
+		}
+		int count = board.copyLegalMoves(playableColumns);
+		return playableColumns[random.nextInt(count)];
+	}
+}
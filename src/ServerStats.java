@@ -0,0 +1,61 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of the commands served by a game server and the time they took,
+ * recorded from any number of threads.
+ */
+public class ServerStats {
+
+	private final LongAdder commandCount = new LongAdder();
+	private final LongAdder commandNanos = new LongAdder();
+	private final AtomicLong maxCommandNanos = new AtomicLong();
+
+	// Totals at the last report.
+	private long lastCount;
+	private long lastNanos;
+	private long lastTime = System.nanoTime();
+
+	/**
+	 * Counts one command served.
+	 * @param nanos time taken to serve it
+	 */
+	public void record(long nanos) {
+		commandCount.increment();
+		commandNanos.add(nanos);
+		if (nanos > maxCommandNanos.get()) {
+			maxCommandNanos.accumulateAndGet(nanos, Math::max);
+		}
+	}
+
+	/**
+	 * Reports the number of commands served so far.
+	 * @return number of commands
+	 */
+	public long getCommandCount() {
+		return commandCount.sum();
+	}
+
+	/**
+	 * Writes the statistics of the commands served since the last report.
+	 * Reports must not be written from more than one thread at a time.
+	 * @param out output for the report
+	 * @param games number of games being served
+	 * @param connections number of open connections
+	 */
+	public void report(PrintStream out, int games, int connections) {
+		long now = System.nanoTime();
+		long count = commandCount.sum();
+		long nanos = commandNanos.sum();
+		long intervalCount = count - lastCount;
+		out.printf("Server: %d games, %d connections, %.0f commands/sec, "
+							 + "%.1f us average latency, %.1f us max%n",
+							 games, connections, intervalCount / ((now - lastTime) / 1e9),
+							 intervalCount == 0 ? 0.0 : (nanos - lastNanos) / 1e3 / intervalCount,
+							 maxCommandNanos.getAndSet(0) / 1e3);
+		lastCount = count;
+		lastNanos = nanos;
+		lastTime = now;
+	}
+}
@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * Plays many Connect-Four-Cli games between computer players without any
+ * console input or output, and collects statistics about them.
+ *
+ * Games are shared out between threads. Each thread reuses one board and
+ * one pair of players for all its games, and keeps its own counts, which
+ * are added up once every thread is done. Each thread's players are
+ * seeded from the simulation seed, so a simulation with the same seed
+ * and number of threads plays the same games.
+ */
+public class Simulator {
+
+	private final int numColumns;
+	private final int numRows;
+	private final int connectLength;
+	private final LongFunction<Player> player1Factory;
+	private final LongFunction<Player> player2Factory;
+	private final int threads;
+	private final long seed;
+
+	/**
+	 * Statistics of the games played by a simulation.
+	 */
+	public static class Result {
+		public long games;
+		public long player1Wins;
+		public long player2Wins;
+		public long draws;
+		public long totalMoves;
+		public int shortestGame = Integer.MAX_VALUE;	// in moves
+		public int longestGame;												// in moves
+		public long nanos;														// time taken to play all the games
+
+		// Count a finished game with the given outcome for the player who made the last move.
+		void record(Board.Outcome outcome, int lastPlayer, int moves) {
+			games++;
+			if (outcome == Board.Outcome.DRAW) {
+				draws++;
+			} else if (lastPlayer == 1) {
+				player1Wins++;
+			} else {
+				player2Wins++;
+			}
+			totalMoves += moves;
+			shortestGame = Math.min(shortestGame, moves);
+			longestGame = Math.max(longestGame, moves);
+		}
+
+		// Add the counts of another thread's games to these.
+		void add(Result other) {
+			games += other.games;
+			player1Wins += other.player1Wins;
+			player2Wins += other.player2Wins;
+			draws += other.draws;
+			totalMoves += other.totalMoves;
+			shortestGame = Math.min(shortestGame, other.shortestGame);
+			longestGame = Math.max(longestGame, other.longestGame);
+		}
+
+		public double gamesPerSecond() {
+			return games / (nanos / 1e9);
+		}
+
+		public double averageGameLength() {
+			return games == 0 ? 0 : (double) totalMoves / games;
+		}
+	}
+
+	/**
+	 * Creates a simulation.
+	 * @param numColumns number of columns of the board
+	 * @param numRows number of rows of the board
+	 * @param connectLength number of tiles in a row needed to win
+	 * @param player1Factory creates player 1 for each thread from a seed
+	 * @param player2Factory creates player 2 for each thread from a seed
+	 * @param threads number of threads to play games on
+	 * @param seed seed for all random choices of the players
+	 */
+	public Simulator(int numColumns, int numRows, int connectLength, LongFunction<Player> player1Factory,
+									 LongFunction<Player> player2Factory, int threads, long seed) {
+		// Check the dimensions now rather than on every thread.
+		new Board(numColumns, numRows, connectLength);
+		this.numColumns = numColumns;
+		this.numRows = numRows;
+		this.connectLength = connectLength;
+		this.player1Factory = player1Factory;
+		this.player2Factory = player2Factory;
+		this.threads = threads;
+		this.seed = seed;
+	}
+
+	/**
+	 * Plays the given number of games and reports their statistics.
+	 * @param games number of games to play
+	 * @return statistics of the games
+	 */
+	public Result run(long games) {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try {
+			List<Future<Result>> results = new ArrayList<Future<Result>>();
+			for (int i = 0; i < threads; i++) {
+				long threadGames = games / threads + (i < games % threads ? 1 : 0);
+				long threadSeed = seed + i * 0x9E3779B97F4A7C15L;
+				results.add(executor.submit(() -> playGames(threadGames, threadSeed)));
+			}
+			Result total = new Result();
+			for (Future<Result> result : results) {
+				total.add(result.get());
+			}
+			total.nanos = System.nanoTime() - start;
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Simulation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Simulation failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	// Play games on one thread, reusing a board and a pair of players.
+	private Result playGames(long games, long threadSeed) {
+		Board board = new Board(numColumns, numRows, connectLength);
+		Player[] players = {player1Factory.apply(threadSeed), player2Factory.apply(threadSeed + 1)};
+		Result result = new Result();
+		for (long game = 0; game < games; game++) {
+			board.reset();
+			int player = 1;
+			Board.Outcome outcome;
+			while ((outcome = board.play(players[player - 1].chooseMove(board, player), player))
+						 == Board.Outcome.ONGOING) {
+				player = (player == 1) ? 2 : 1;
+			}
+			if (outcome == Board.Outcome.ILLEGAL) {
+				throw new IllegalStateException("Player " + player + " chose a full column");
+			}
+			result.record(outcome, player, board.getMoveCount());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,35 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SimulatorTest {
+
+	// Every game ends in a win for one player or a draw.
+	@Test
+	public void testCountsAddUp() {
+		Simulator simulator = new Simulator(7, 6, 4, RandomPlayer::new, RandomPlayer::new, 2, 42);
+		Simulator.Result result = simulator.run(1001);
+		assertEquals("should play every game", 1001, result.games);
+		assertEquals("should count every outcome", 1001, result.player1Wins + result.player2Wins + result.draws);
+		assertTrue("should not play games shorter than a win", result.shortestGame >= 7);
+		assertTrue("should not play games longer than the board", result.longestGame <= 42);
+	}
+	
+	// The same seed and number of threads play the same games.
+	@Test
+	public void testSeedRepeatsGames() {
+		Simulator.Result first = new Simulator(5, 4, 4, RandomPlayer::new, RandomPlayer::new, 3, 7).run(500);
+		Simulator.Result second = new Simulator(5, 4, 4, RandomPlayer::new, RandomPlayer::new, 3, 7).run(500);
+		assertEquals("should have the same player 1 wins", first.player1Wins, second.player1Wins);
+		assertEquals("should have the same draws", first.draws, second.draws);
+		assertEquals("should have the same total moves", first.totalMoves, second.totalMoves);
+	}
+	
+	// The computer player always wins or draws against a random one on the default board.
+	@Test
+	public void testComputerBeatsRandom() {
+		Simulator simulator = new Simulator(4, 4, 4, seed -> new Solver(16, 1000), RandomPlayer::new, 1, 3);
+		Simulator.Result result = simulator.run(20);
+		assertEquals("should never lose to a random player", 0, result.player2Wins);
+	}
+}
@@ -0,0 +1,377 @@
+/**
+ * Computer player for the Connect-Four-Cli game.
+ *
+ * A Solver chooses a column to play with a negamax search with
+ * alpha-beta pruning. Columns are tried center first, the search is
+ * deepened one move at a time until the position is solved or the time
+ * budget runs out, and results are kept in a TranspositionTable so that
+ * positions reached by different orders of moves are searched once.
+ *
+ * Scores are from the point of view of the player to move: positive if
+ * they can force a win, higher the sooner it comes, 0 for a draw or
+ * when the outcome lies beyond the searched depth, and negative if the
+ * opponent can force a win.
+ *
+ * The search plays and undoes moves on the board it is given, leaving
+ * it as it was once a move has been chosen. Positions in an OpeningBook
+ * given to the solver are looked up rather than searched.
+ */
+public class Solver implements Player {
+
+	// Default size of the transposition table, 2^20 entries.
+	public static final int DEFAULT_TABLE_BITS = 20;
+
+	// The clock is checked once every this many + 1 nodes.
+	private static final long TIME_CHECK_MASK = 0xFFF;
+
+	private final TranspositionTable table;
+	private final long timeBudgetNanos;
+	private OpeningBook openingBook;		// null if there is none
+
+	// State of the search in progress.
+	private long deadline;
+	private boolean outOfTime;
+	private boolean reachedHorizon;		// some line was cut off at the depth limit
+	private long nodeCount;
+	private int[] columnOrder;
+
+	// Results of the last call to findBestMove.
+	private int bestMove;
+	private int score;
+	private int depth;
+	private boolean solved;
+
+	/**
+	 * Creates a solver with the default table size.
+	 * @param timeBudgetMillis time allowed for choosing a move, in milliseconds
+	 */
+	public Solver(long timeBudgetMillis) {
+		this(DEFAULT_TABLE_BITS, timeBudgetMillis);
+	}
+
+	/**
+	 * Creates a solver.
+	 * @param tableBits the transposition table holds 2^tableBits results
+	 * @param timeBudgetMillis time allowed for choosing a move, in milliseconds
+	 */
+	public Solver(int tableBits, long timeBudgetMillis) {
+		this(new TranspositionTable(tableBits), timeBudgetMillis);
+	}
+
+	/**
+	 * Creates a solver that keeps its results in the given table, which
+	 * may be shared with solvers on other threads.
+	 * @param table transposition table to use
+	 * @param timeBudgetMillis time allowed for choosing a move, in milliseconds
+	 */
+	public Solver(TranspositionTable table, long timeBudgetMillis) {
+		this.table = table;
+		timeBudgetNanos = timeBudgetMillis * 1000000L;
+	}
+
+	/**
+	 * Chooses the best column for the player to play on the board.
+	 * Details of the search are available from getScore, getDepth,
+	 * isSolved and getNodeCount afterwards.
+	 * @param board board to play on, with no player having won yet
+	 * @param player player to move
+	 * @return column to play, or -1 if the board is full
+	 */
+	public int findBestMove(Board board, int player) {
+		deadline = System.nanoTime() + timeBudgetNanos;
+		outOfTime = false;
+		nodeCount = 0;
+		columnOrder = centerFirstOrder(board.getNumColumns());
+		bestMove = -1;
+		score = 0;
+		depth = 0;
+		solved = false;
+
+		// The book holds positions with players taking turns from player 1.
+		int emptyPositions = board.getNumColumns() * board.getNumRows() - board.getMoveCount();
+		if (openingBook != null && player == 1 + board.getMoveCount() % Board.NUM_PLAYERS) {
+			int move = openingBook.getMove(board);
+			if (move != -1) {
+				bestMove = move;
+				score = openingBook.getScore(board);
+				depth = emptyPositions;
+				solved = true;
+				return bestMove;
+			}
+		}
+		for (int searchDepth = 1; searchDepth <= emptyPositions; searchDepth++) {
+			reachedHorizon = false;
+			int move = searchRoot(board, player, searchDepth);
+			if (outOfTime && bestMove != -1) {
+				break;	// unfinished search, keep the last complete one
+			}
+			depth = searchDepth;
+			if (move == -1 || !reachedHorizon) {
+				solved = move != -1;
+				break;
+			}
+			if (outOfTime) {
+				break;
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Has the solver look up positions in a book rather than search them.
+	 * @param book book of positions of the boards to be played on, or null for none
+	 */
+	public void setOpeningBook(OpeningBook book) {
+		openingBook = book;
+	}
+
+	@Override
+	public int chooseMove(Board board, int player) {
+		return findBestMove(board, player);
+	}
+
+	/**
+	 * Finds the exact value of a position by searching to the end of every
+	 * game, with no time budget. Positions visited are added to the node count.
+	 * @param board board to search, with no player having won yet and
+	 * 				 at least one empty position
+	 * @param player player to move
+	 * @param alpha the value is only needed exactly if it is above alpha
+	 * @param beta the value is only needed exactly if it is below beta
+	 * @return score of the position for player, or a bound on it if it is
+	 * 				 not strictly between alpha and beta
+	 */
+	int solve(Board board, int player, int alpha, int beta) {
+		deadline = System.nanoTime() + Long.MAX_VALUE / 2;	// never reached
+		outOfTime = false;
+		reachedHorizon = false;
+		columnOrder = centerFirstOrder(board.getNumColumns());
+		int emptyPositions = board.getNumColumns() * board.getNumRows() - board.getMoveCount();
+		return negamax(board, player, emptyPositions, alpha, beta);
+	}
+
+	/**
+	 * Reports the score of the move chosen by the last search.
+	 * @return score from the point of view of the player who was to move
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Reports the depth, in moves, of the last completed search.
+	 * @return search depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Reports whether the last search saw to the end of every game,
+	 * in which case its score is exact.
+	 * @return true if the position was solved
+	 */
+	public boolean isSolved() {
+		return solved;
+	}
+
+	/**
+	 * Reports the number of positions visited by the last search,
+	 * or by all calls to solve since then.
+	 * @return node count
+	 */
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	// Search each column at the root to the given depth, trying the best
+	// move of the previous depth first, and record the best one found.
+	// Returns the best column, or -1 if there is no legal move.
+	private int searchRoot(Board board, int player, int searchDepth) {
+		int alpha = -Integer.MAX_VALUE;
+		int move = -1;
+		int previousBest = bestMove;
+		for (int i = -1; i < columnOrder.length; i++) {
+			int column = (i == -1) ? previousBest : columnOrder[i];
+			if (column == -1 || (i != -1 && column == previousBest)) {
+				continue;
+			}
+			int result = scoreMove(board, player, column, searchDepth, alpha, Integer.MAX_VALUE);
+			if (result == Integer.MIN_VALUE) {
+				continue;		// column full
+			}
+			if (outOfTime && move != -1) {
+				break;
+			}
+			if (result > alpha || move == -1) {
+				alpha = result;
+				move = column;
+			}
+		}
+		if (move != -1 && (!outOfTime || bestMove == -1)) {
+			bestMove = move;
+			score = alpha;
+		}
+		return move;
+	}
+
+	// Play column for player and score the result by searching the rest of
+	// the game to depth - 1. Returns Integer.MIN_VALUE if the column is full.
+	private int scoreMove(Board board, int player, int column, int depth, int alpha, int beta) {
+		if (!board.isPlayable(column)) {
+			return Integer.MIN_VALUE;
+		}
+		int movesBefore = board.getMoveCount();
+		Board.Outcome outcome = board.play(column, player);
+		int result;
+		switch (outcome) {
+		case WIN:
+			result = winScore(board, movesBefore);
+			break;
+		case DRAW:
+			result = 0;
+			break;
+		default:
+			result = -negamax(board, opponentOf(player), depth - 1, -beta, -alpha);
+			break;
+		}
+		board.undoMove();
+		return result;
+	}
+
+	// Negamax search with alpha-beta pruning of the position with player
+	// to move, no one having won yet, and at least one empty position.
+	// Returns the score for player, exact if it is strictly between alpha
+	// and beta, otherwise only a bound on the other side of the window.
+	private int negamax(Board board, int player, int depth, int alpha, int beta) {
+		nodeCount++;
+		if ((nodeCount & TIME_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) {
+			outOfTime = true;
+		}
+		if (outOfTime) {
+			return 0;
+		}
+
+		// If player can win right away, nothing else needs searching.
+		int movesBefore = board.getMoveCount();
+		for (int column = board.nextLegalMove(0); column != -1; column = board.nextLegalMove(column)) {
+			Board.Outcome outcome = board.play(column, player);
+			board.undoMove();
+			if (outcome == Board.Outcome.WIN) {
+				return winScore(board, movesBefore);
+			}
+		}
+		if (depth == 0) {
+			reachedHorizon = true;
+			return 0;
+		}
+
+		// Player cannot win on this move, so the best they can do is win on their
+		// next one, or draw if the board fills up before then.
+		int positions = board.getNumColumns() * board.getNumRows();
+		int maxScore = (movesBefore + 2 < positions) ? winScore(board, movesBefore + 2) : 0;
+		if (beta > maxScore) {
+			beta = maxScore;
+			if (alpha >= beta) {
+				return beta;
+			}
+		}
+
+		// A position and its mirror image share an entry, with its move stored
+		// for the canonical orientation.
+		long key = board.canonicalKey();
+		long entry = table.get(key);
+		int tableMove = 0;
+		if (entry != TranspositionTable.NOT_FOUND) {
+			tableMove = TranspositionTable.moveOf(entry);
+			if (tableMove != 0) {
+				tableMove = board.canonicalColumn(tableMove);
+			}
+			boolean solved = TranspositionTable.isSolved(entry);
+			if (solved || TranspositionTable.depthOf(entry) >= depth) {
+				if (!solved) {
+					reachedHorizon = true;	// the stored result was cut off at a depth limit
+				}
+				int tableScore = TranspositionTable.scoreOf(entry);
+				switch (TranspositionTable.boundOf(entry)) {
+				case TranspositionTable.EXACT:
+					return tableScore;
+				case TranspositionTable.LOWER_BOUND:
+					alpha = Math.max(alpha, tableScore);
+					break;
+				default:
+					beta = Math.min(beta, tableScore);
+					break;
+				}
+				if (alpha >= beta) {
+					return tableScore;
+				}
+			}
+		}
+
+		// Track whether this subtree alone was cut off at the depth limit.
+		boolean horizonAbove = reachedHorizon;
+		reachedHorizon = false;
+
+		int originalAlpha = alpha;
+		int best = -Integer.MAX_VALUE;
+		int bestColumn = 0;
+		for (int i = -1; i < columnOrder.length; i++) {
+			int column = (i == -1) ? tableMove : columnOrder[i];
+			if (column == 0 || (i != -1 && column == tableMove)) {
+				continue;
+			}
+			int result = scoreMove(board, player, column, depth, alpha, beta);
+			if (result == Integer.MIN_VALUE) {
+				continue;		// column full
+			}
+			if (result > best) {
+				best = result;
+				bestColumn = column;
+			}
+			if (best > alpha) {
+				alpha = best;
+			}
+			if (alpha >= beta) {
+				break;
+			}
+		}
+
+		if (!outOfTime) {
+			int bound = TranspositionTable.EXACT;
+			if (best <= originalAlpha) {
+				bound = TranspositionTable.UPPER_BOUND;
+			} else if (best >= beta) {
+				bound = TranspositionTable.LOWER_BOUND;
+			}
+			// A result is solved, not depending on the search depth, when every
+			// line below it was searched to the end of the game.
+			table.put(key, best, bestColumn == 0 ? 0 : board.canonicalColumn(bestColumn), depth, bound, !reachedHorizon);
+		}
+		reachedHorizon |= horizonAbove;
+		return best;
+	}
+
+	// Score of winning with the tile placed after movesBefore moves:
+	// one more for every position left empty.
+	private static int winScore(Board board, int movesBefore) {
+		return board.getNumColumns() * board.getNumRows() - movesBefore;
+	}
+
+	// The other player in a two player game.
+	private static int opponentOf(int player) {
+		return Board.NUM_PLAYERS + 1 - player;
+	}
+
+	// Columns in the order to search them: center first, then alternating
+	// outwards, since center columns are part of the most lines.
+	static int[] centerFirstOrder(int numColumns) {
+		int[] order = new int[numColumns];
+		for (int i = 0; i < numColumns; i++) {
+			int offset = (i + 1) / 2;
+			// For an even number of columns start left of center.
+			order[i] = (numColumns + 1) / 2 + (i % 2 == 1 ? offset : -offset);
+		}
+		return order;
+	}
+}
@@ -0,0 +1,105 @@
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SolverTest {
+
+	public Board testBoard;
+	public Solver solver;
+	
+	@Before
+	public void setUp() throws Exception {
+		testBoard = new Board();
+		solver = new Solver(10000);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		testBoard = null;
+		solver = null;
+	}
+	
+	// The default 4x4 board is small enough to search to the end of every game,
+	// and neither player can force a win on it.
+	@Test
+	public void testSolvesEmptyDefaultBoard() {
+		int column = solver.findBestMove(testBoard, 1);
+		assertTrue("should solve the default board", solver.isSolved());
+		assertEquals("should find the default board is a draw", 0, solver.getScore());
+		assertTrue("should choose a column on the board", column >= 1 && column <= 4);
+		assertEquals("should leave the board as it was", 0, testBoard.getMoveCount());
+	}
+	
+	@Test
+	public void testTakesImmediateWin() {
+		/* Building | 0 0 0 0
+								| 1 2 0 0
+								| 1 2 0 0
+								| 1 2 0 0
+								+--------
+								  1 2 3 4 */
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(2, 2);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(2, 2);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(2, 2);
+		assertEquals("should complete the column of 1s", 1, solver.findBestMove(testBoard, 1));
+		assertTrue("should report a win", solver.getScore() > 0);
+	}
+	
+	@Test
+	public void testBlocksOpponentWin() {
+		testBoard = new Board(7, 6, 4);
+		testBoard.placeTile(1, 1);
+		testBoard.placeTile(7, 2);
+		testBoard.placeTile(2, 1);
+		testBoard.placeTile(7, 2);
+		testBoard.placeTile(3, 1);
+		assertEquals("should block the row of 1s", 4, solver.findBestMove(testBoard, 2));
+	}
+	
+	// On a standard board the solver cannot see to the end of the game in time,
+	// but should still return a move within its budget.
+	@Test
+	public void testRespectsTimeBudget() {
+		testBoard = new Board(7, 6, 4);
+		solver = new Solver(200);
+		long start = System.currentTimeMillis();
+		int column = solver.findBestMove(testBoard, 1);
+		assertTrue("should stop searching close to its time budget", System.currentTimeMillis() - start < 1000);
+		assertTrue("should choose a column on the board", column >= 1 && column <= 7);
+		assertFalse("should not claim to have solved the standard board", solver.isSolved());
+	}
+	
+	@Test
+	public void testFullBoard() {
+		int[] columns = {1, 2, 3, 4, 4, 3, 2, 1, 1, 2, 3, 4, 1, 2, 3, 4};
+		for (int i = 0; i < columns.length; i++) {
+			testBoard.placeTile(columns[i], 1 + i % 2);
+		}
+		assertEquals("should find no move on a full board", -1, solver.findBestMove(testBoard, 1));
+	}
+	
+	@Test
+	public void testCenterFirstOrder() {
+		assertArrayEquals("should try center columns first", new int[] {4, 5, 3, 6, 2, 7, 1}, Solver.centerFirstOrder(7));
+		assertArrayEquals("should try center columns first", new int[] {2, 3, 1, 4}, Solver.centerFirstOrder(4));
+	}
+	
+	// A result cut off at a depth past what the table can hold is not taken as solved.
+	@Test
+	public void testDeepResultNotSolved() {
+		TranspositionTable table = new TranspositionTable(4);
+		table.put(1, 5, 3, TranspositionTable.MAX_DEPTH + 100, TranspositionTable.LOWER_BOUND, false);
+		long entry = table.get(1);
+		assertFalse("should not be solved", TranspositionTable.isSolved(entry));
+		assertEquals("should keep the greatest depth it can", TranspositionTable.MAX_DEPTH, TranspositionTable.depthOf(entry));
+		assertEquals("should keep the bound", TranspositionTable.LOWER_BOUND, TranspositionTable.boundOf(entry));
+		table.put(2, -5, 1, 0, TranspositionTable.EXACT, true);
+		assertTrue("should be solved", TranspositionTable.isSolved(table.get(2)));
+		assertEquals("should keep a negative score", -5, TranspositionTable.scoreOf(table.get(2)));
+	}
+}
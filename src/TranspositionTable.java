@@ -0,0 +1,123 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size table of search results for positions, used by a Solver
+ * to avoid searching the same position twice.
+ *
+ * Positions are stored by a 64 bit key in a slot chosen by the low bits
+ * of the key. A new result always replaces the one in its slot, so the
+ * table never grows, and a lookup is a single array access.
+ *
+ * A table can be shared by solvers on several threads without locking.
+ * Each slot holds the entry and the key XORed with the entry, each written
+ * atomically, so a slot read while another thread was writing it does not
+ * check out against any key and is treated as empty.
+ */
+public class TranspositionTable {
+	
+	// Kinds of bound a stored score is.
+	public static final int EXACT = 1;				// score is the value of the position
+	public static final int LOWER_BOUND = 2;	// value of the position is at least score
+	public static final int UPPER_BOUND = 3;	// value of the position is at most score
+	
+	// Returned by get when a position is not in the table.
+	public static final long NOT_FOUND = 0;
+	
+	// Layout of an entry: score in the low 32 bits, then 12 bits of best move,
+	// 12 bits of depth, 2 bits for the kind of bound and a bit set if the
+	// result is solved. A stored entry is never NOT_FOUND since the bound is
+	// never 0.
+	private static final int MOVE_SHIFT = 32;
+	private static final int DEPTH_SHIFT = 44;
+	private static final int BOUND_SHIFT = 56;
+	private static final long FIELD_MASK = 0xFFF;
+	private static final long BOUND_MASK = 0x3;
+	private static final long SOLVED_BIT = 1L << 58;
+	
+	// Largest move and depth that can be stored.
+	public static final int MAX_MOVE = (int) FIELD_MASK;
+	public static final int MAX_DEPTH = (int) FIELD_MASK;
+	
+	private final AtomicLongArray checks;		// key ^ entry of each slot
+	private final AtomicLongArray entries;
+	private final int slotMask;
+	
+	/**
+	 * Creates an empty table.
+	 * @param sizeBits the table holds 2^sizeBits entries
+	 */
+	public TranspositionTable(int sizeBits) {
+		if (sizeBits < 0 || sizeBits > 30) {
+			throw new IllegalArgumentException("Table size bits must be between 0 and 30, was " + sizeBits);
+		}
+		checks = new AtomicLongArray(1 << sizeBits);
+		entries = new AtomicLongArray(1 << sizeBits);
+		slotMask = (1 << sizeBits) - 1;
+	}
+	
+	/**
+	 * Looks up the result stored for a position.
+	 * @param key key of the position
+	 * @return the packed entry, read with scoreOf, moveOf, depthOf, boundOf and isSolved,
+	 * 				 or NOT_FOUND if no result is stored for this position
+	 */
+	public long get(long key) {
+		int slot = (int) key & slotMask;
+		long entry = entries.get(slot);
+		return (checks.get(slot) ^ entry) == key ? entry : NOT_FOUND;
+	}
+	
+	/**
+	 * Stores the result of searching a position, replacing whatever was in its slot.
+	 * @param key key of the position
+	 * @param score score found for the position
+	 * @param move best column found, or 0 if none
+	 * @param depth depth the position was searched to; deeper than MAX_DEPTH
+	 * 				 is stored as MAX_DEPTH
+	 * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param solved whether the result holds whatever the depth, every line
+	 * 				 having been searched to the end of the game
+	 */
+	public void put(long key, int score, int move, int depth, int bound, boolean solved) {
+		int slot = (int) key & slotMask;
+		long entry = (score & 0xFFFFFFFFL)
+				| ((move & FIELD_MASK) << MOVE_SHIFT)
+				| ((Math.min(depth, MAX_DEPTH) & FIELD_MASK) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| (solved ? SOLVED_BIT : 0);
+		entries.lazySet(slot, entry);
+		checks.lazySet(slot, key ^ entry);
+	}
+	
+	/**
+	 * Removes all stored results. Must not be called while the table is in use.
+	 */
+	public void clear() {
+		for (int slot = 0; slot <= slotMask; slot++) {
+			entries.set(slot, NOT_FOUND);
+			checks.set(slot, 0);
+		}
+	}
+	
+	// Accessors for the fields of an entry returned by get.
+	
+	public static int scoreOf(long entry) {
+		return (int) entry;
+	}
+	
+	public static int moveOf(long entry) {
+		return (int) ((entry >>> MOVE_SHIFT) & FIELD_MASK);
+	}
+	
+	public static int depthOf(long entry) {
+		return (int) ((entry >>> DEPTH_SHIFT) & FIELD_MASK);
+	}
+	
+	public static int boundOf(long entry) {
+		return (int) ((entry >>> BOUND_SHIFT) & BOUND_MASK);
+	}
+	
+	public static boolean isSolved(long entry) {
+		return (entry & SOLVED_BIT) != 0;
+	}
+}